@@ -0,0 +1,40 @@
+package bufmgr;
+
+import diskmgr.DiskMgr;
+import global.Page;
+import global.PageId;
+
+/**
+ * An in-memory stand-in for the disk manager, so benchmarks measure the
+ * buffer manager rather than the file system. Pages are handed out in order
+ * and never kept: a read copies the same page of zeros, and a write is
+ * dropped, so a pool of a million frames needs no disk to match.
+ */
+class BenchDiskMgr extends DiskMgr {
+
+    /** What every page reads as. */
+    private final byte[] blank = new byte[MINIBASE_PAGESIZE];
+
+    /** Next page to allocate. */
+    private int next;
+
+    public synchronized PageId allocate_page(int run_size) {
+        PageId pageno = new PageId(next);
+        next += run_size;
+        return pageno;
+    }
+
+    public void deallocate_page(PageId pageno) {
+    }
+
+    public void deallocate_page(PageId pageno, int run_size) {
+    }
+
+    public void read_page(PageId pageno, Page mempage) {
+        System.arraycopy(blank, 0, mempage.getData(), 0, MINIBASE_PAGESIZE);
+    }
+
+    public void write_page(PageId pageno, Page mempage) {
+    }
+
+} // class BenchDiskMgr extends DiskMgr
@@ -0,0 +1,111 @@
+package bufmgr;
+
+import global.Minibase;
+import global.Page;
+import global.PageId;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of a pinPage and unpinPage pair, for a page in the pool and for one
+ * that has to replace another, by policy and pool size. Read-ahead is off,
+ * so every miss is a miss. Run with -prof gc for the bytes allocated per
+ * operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PinBench {
+
+    @Param({"Clock", "Lru", "Random"})
+    public String policy;
+
+    @Param({"100", "10000", "1000000"})
+    public int frames;
+
+    /** The pool, filled with pages 0 to frames - 1. */
+    BufferManager mgr;
+
+    /** Pages in the pool, in random order, for hits. */
+    int[] resident;
+
+    /** First page of a run twice the size of the pool, for misses. */
+    int firstMiss;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Minibase.DiskManager = new BenchDiskMgr();
+        mgr = new BufferManager(frames, policy);
+        mgr.setReadAhead(0, 0);
+        Page page = new Page();
+        PageId first = mgr.newPage(page, frames);
+        mgr.unpinPage(first, false);
+        PageId pageno = new PageId();
+        resident = new int[frames];
+        for (int i = 0; i < frames; i++) {
+            pageno.pid = first.pid + i;
+            mgr.pinPage(pageno, page, false);
+            mgr.unpinPage(pageno, false);
+            resident[i] = pageno.pid;
+        }
+        Random random = new Random(42);
+        for (int i = frames - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = resident[i];
+            resident[i] = resident[j];
+            resident[j] = t;
+        }
+        firstMiss = Minibase.DiskManager.allocate_page(2 * frames).pid;
+    }
+
+    /**
+     * Where each thread is in its sequence of pages.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        final PageId pageno = new PageId();
+        final Page page = new Page();
+        int hit;
+        int miss;
+    }
+
+    @Benchmark
+    public Page hit(Cursor cursor) {
+        cursor.pageno.pid = resident[cursor.hit];
+        if (++cursor.hit == resident.length) {
+            cursor.hit = 0;
+        }
+        mgr.pinPage(cursor.pageno, cursor.page, false);
+        mgr.unpinPage(cursor.pageno, false);
+        return cursor.page;
+    }
+
+    @Benchmark
+    public Page miss(Cursor cursor) {
+        // a loop over twice as many pages as frames misses every time under
+        // Clock and Lru, and nearly always under Random
+        cursor.pageno.pid = firstMiss + cursor.miss;
+        if (++cursor.miss == 2 * frames) {
+            cursor.miss = 0;
+        }
+        mgr.pinPage(cursor.pageno, cursor.page, false);
+        mgr.unpinPage(cursor.pageno, false);
+        return cursor.page;
+    }
+
+} // public class PinBench
@@ -0,0 +1,68 @@
+package bufmgr;
+
+import global.Minibase;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of a replacer choosing a victim in a full pool of unpinned pages, by
+ * policy and pool size, apart from the rest of the buffer manager. Each
+ * victim is given a new page and unpinned again, as after a miss, so the
+ * pool stays full.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class VictimBench {
+
+    @Param({"Clock", "Lru", "Random"})
+    public String policy;
+
+    @Param({"100", "10000", "1000000"})
+    public int frames;
+
+    FrameDesc[] frametab;
+    Replacer replacer;
+
+    /** Next page number to give a victim. */
+    int nextPid;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Minibase.DiskManager = new BenchDiskMgr();
+        BufferManager mgr = new BufferManager(frames, policy);
+        frametab = mgr.frametab;
+        replacer = mgr.replacer;
+        for (nextPid = 0; nextPid < frames; nextPid++) {
+            frametab[nextPid].pageno.pid = nextPid;
+            replacer.adopt(frametab[nextPid]);
+        }
+    }
+
+    @Benchmark
+    public int pickVictim() {
+        int victim = replacer.pickVictim();
+        FrameDesc fdesc = frametab[victim];
+        fdesc.pageno.pid = nextPid++;
+        fdesc.pincnt = 1;
+        replacer.pinPage(fdesc);
+        fdesc.pincnt = 0;
+        replacer.unpinPage(fdesc);
+        return victim;
+    }
+
+} // public class VictimBench
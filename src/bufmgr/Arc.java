@@ -0,0 +1,269 @@
+
+package bufmgr;
+
+import java.util.Map;
+
+/**
+ * ARC (Adaptive Replacement Cache) replacement policy (Megiddo and Modha).
+ * <p>
+ * Resident pages seen once recently are in T1, pages seen at least twice are
+ * in T2, and the ghost lists B1 and B2 remember pages recently evicted from
+ * each. A miss on a B1 ghost means T1 was too small, and grows the target size
+ * p of T1; a miss on a B2 ghost shrinks it. Victims come from T1 while it is
+ * larger than p, otherwise from T2, so the split between recency and frequency
+ * follows the workload as it shifts between point lookups and scans.
+ * <p>
+ * Only unpinned frames are kept on the T1/T2 lists, so a victim is always at
+ * the head of one of them; the list sizes used by the algorithm count pinned
+ * frames too. The victim is chosen before the incoming page is known, so the
+ * tie case of REPLACE that depends on whether the new page is in B2 uses
+ * |T1| > p alone. All operations are O(1).
+ */
+class Arc extends Replacer {
+
+    //
+    // Frame State Constants
+    //
+    protected static final int AVAILABLE = 10;
+    protected static final int PINNED = 12;
+
+    /** Which list a resident frame belongs to. */
+    protected static final int NONE = 0;
+    protected static final int T1 = 1;
+    protected static final int T2 = 2;
+
+    /** Cache size, in frames. */
+    protected final int c;
+
+    /** Target size of T1; adapted on every ghost hit. */
+    protected int p;
+
+    /** Page held by each frame, or INVALID_PAGEID. */
+    protected int[] residentPid;
+
+    /** List (T1 or T2) each frame belongs to, pinned or not. */
+    protected int[] list;
+
+    /** Sizes of T1 and T2, counting pinned frames. */
+    protected int t1Size;
+    protected int t2Size;
+
+    /** Empty frames. */
+    protected FrameList availableFrames;
+
+    /** Unpinned frames of T1 and T2, least recently used first. */
+    protected FrameList t1;
+    protected FrameList t2;
+
+    /** Ghosts of pages evicted from T1 and T2. */
+    protected GhostList b1;
+    protected GhostList b2;
+
+    /** Misses on a B1 and a B2 ghost. */
+    protected long b1Hits;
+    protected long b2Hits;
+
+    /**
+     * Class constructor
+     */
+    public Arc(BufferManager mgrArg) {
+        super(mgrArg);
+        c = frametab.length;
+        p = 0;
+        residentPid = new int[c];
+        list = new int[c];
+        availableFrames = new FrameList(c);
+        t1 = new FrameList(c);
+        t2 = new FrameList(c);
+        b1 = new GhostList(c);
+        b2 = new GhostList(c);
+        for (int i = 0; i < c; i++) {
+            frametab[i].state = AVAILABLE;
+            residentPid[i] = INVALID_PAGEID;
+            list[i] = NONE;
+            availableFrames.addLast(i);
+        }
+    }
+
+    /**
+     * Notifies the replacer of a new page.
+     */
+    public synchronized void newPage(FrameDesc fdesc) {
+        // no need to update frame state
+    }
+
+    /**
+     * Notifies the replacer of a free page.
+     */
+    public synchronized void freePage(FrameDesc fdesc) {
+        int f = fdesc.index;
+        fdesc.state = AVAILABLE;
+        setList(f, NONE);
+        residentPid[f] = INVALID_PAGEID;
+        availableFrames.addLast(f);
+    }
+
+    /**
+     * Notifies the replacer of a pined page.
+     */
+    public synchronized void pinPage(FrameDesc fdesc) {
+        int f = fdesc.index;
+        int pid = fdesc.pageno.pid;
+        fdesc.state = PINNED;
+        availableFrames.remove(f);
+        t1.remove(f);
+        t2.remove(f);
+
+        if (residentPid[f] == pid) {
+            // hit in T1 or T2: the page has now been seen twice
+            setList(f, T2);
+            return;
+        }
+
+        residentPid[f] = pid;
+        if (b1.contains(pid)) {
+            // T1 was too small to keep this page; favor recency
+            p = Math.min(c, p + Math.max(1, b2.size() / b1.size()));
+            b1Hits++;
+            b1.remove(pid);
+            setList(f, T2);
+        } else if (b2.contains(pid)) {
+            // T2 was too small to keep this page; favor frequency
+            p = Math.max(0, p - Math.max(1, b1.size() / b2.size()));
+            b2Hits++;
+            b2.remove(pid);
+            setList(f, T2);
+        } else {
+            setList(f, T1);
+            // keep |T1| + |B1| <= c
+            while (t1Size + b1.size() > c && b1.size() > 0) {
+                b1.removeOldest();
+            }
+        }
+    }
+
+    /**
+     * Notifies the replacer of an unpinned page.
+     */
+    public synchronized void unpinPage(FrameDesc fdesc) {
+        if (fdesc.pincnt == 0) {
+            fdesc.state = AVAILABLE;
+            int f = fdesc.index;
+            if (list[f] == T1) {
+                t1.addLast(f);
+            } else if (list[f] == T2) {
+                t2.addLast(f);
+            }
+        }
+    }
+
+    /**
+     * Takes back a victim the buffer manager could not use: its page leaves
+     * the ghost list it was just put on, without adapting p, and the frame
+     * goes back to the head of its list.
+     */
+    protected synchronized void unpick(FrameDesc fdesc) {
+        int f = fdesc.index;
+        int pid = fdesc.pageno.pid;
+        if (pid == INVALID_PAGEID) {
+            freePage(fdesc);
+            return;
+        }
+        if (residentPid[f] == pid) {
+            // pinned again since it was picked, which put it back
+            return;
+        }
+        residentPid[f] = pid;
+        if (b2.remove(pid) != GhostList.NONE) {
+            setList(f, T2);
+        } else {
+            b1.remove(pid);
+            setList(f, T1);
+        }
+        if (fdesc.pincnt == 0) {
+            fdesc.state = AVAILABLE;
+            (list[f] == T1 ? t1 : t2).addFirst(f);
+        } else {
+            fdesc.state = PINNED;
+        }
+    }
+
+    /**
+     * Finding a free frame in the buffer pool
+     * or choosing a page to replace using your policy
+     *
+     * @return  return the frame number
+     *      return -1 if failed
+     */
+    public synchronized int pickVictim() {
+        //check if any frame is empty
+        int f = availableFrames.removeFirst();
+        if (f != FrameList.NONE) {
+            return f;
+        }
+
+        // REPLACE: take from T1 while it exceeds its target, else from T2;
+        // if the preferred list has only pinned frames, use the other one
+        boolean fromT1 = t1Size > p || t2.isEmpty();
+        FrameList first = fromT1 ? t1 : t2;
+        FrameList second = fromT1 ? t2 : t1;
+        f = first.removeFirst();
+        if (f == FrameList.NONE) {
+            f = second.removeFirst();
+        }
+        if (f == FrameList.NONE) {
+            return -1;
+        }
+
+        // remember the evicted page in the matching ghost list
+        if (residentPid[f] != INVALID_PAGEID) {
+            GhostList ghosts = (list[f] == T1) ? b1 : b2;
+            ghosts.add(residentPid[f]);
+        }
+        setList(f, NONE);
+        residentPid[f] = INVALID_PAGEID;
+
+        // keep |T1| + |T2| + |B1| + |B2| <= 2c
+        while (t1Size + t2Size + b1.size() + b2.size() > 2 * c) {
+            if (b2.size() > 0) {
+                b2.removeOldest();
+            } else {
+                b1.removeOldest();
+            }
+        }
+        return f;
+    }
+
+    /**
+     * Moves the frame to the given list, keeping the list sizes.
+     */
+    protected void setList(int f, int to) {
+        int from = list[f];
+        if (from == to) {
+            return;
+        }
+        if (from == T1) {
+            t1Size--;
+            t1.remove(f);
+        } else if (from == T2) {
+            t2Size--;
+            t2.remove(f);
+        }
+        if (to == T1) {
+            t1Size++;
+        } else if (to == T2) {
+            t2Size++;
+        }
+        list[f] = to;
+    }
+
+    /**
+     * Adds the ghost hits and the target size of T1.
+     */
+    protected synchronized void addCounters(Map<String, Long> counters) {
+        counters.put("b1Hits", b1Hits);
+        counters.put("b2Hits", b2Hits);
+        counters.put("t1Target", (long) p);
+    }
+
+} // class Arc extends Replacer
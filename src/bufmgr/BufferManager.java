@@ -1,10 +1,24 @@
 package bufmgr;
 
+import diskmgr.MappedDiskMgr;
+import diskmgr.RunReader;
+import diskmgr.RunWriter;
 import global.GlobalConst;
 import global.Minibase;
 import global.Page;
 import global.PageId;
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * <h3>Minibase Buffer Manager</h3>
@@ -13,6 +27,18 @@ import java.util.HashMap;
  * for this purpose is called the buffer pool. This is just an array of Page
  * objects. The buffer manager is used by access methods, heap files, and
  * relational operators to read, write, allocate, and de-allocate pages.
+ * <p>
+ * All public methods may be called from several threads at once. A hit only
+ * touches the page map and the frame's atomic pin count; a miss claims the
+ * victim frame by latching it and swinging its pin count to
+ * {@link FrameDesc#LATCHED}, so no other frame is blocked while the victim is
+ * written and the new page is read in.
+ * <p>
+ * setPolicy and resize replace the replacer or the frames themselves, so
+ * they hold the pool lock exclusively; every other call that uses the frames
+ * holds it shared, as does read-ahead, and so waits for them. Pages may stay
+ * pinned across either. Holding the pool lock shared writes only to a
+ * counter that few other threads share; see {@link PoolLock}.
  */
 public class BufferManager implements GlobalConst {
 
@@ -23,45 +49,122 @@ public class BufferManager implements GlobalConst {
     protected FrameDesc[] frametab;
 
     /** Maps current page numbers to frames; used for efficient lookups. */
-    protected HashMap<Integer, FrameDesc> pagemap;
+    protected PageTable pagemap;
+
+    /** System property naming the policy of pools made without one. Only
+     * BufferManager reads it; Minibase.init makes the shipped BufMgr, whose
+     * policy is fixed. */
+    public static final String POLICY_PROPERTY = "bufmgr.policy";
+
+    /** Policy of pools made without one, if the property is not set. */
+    public static final String DEFAULT_POLICY = "Clock";
 
     /** The replacement policy to use. */
-    protected Replacer replacer;
+    protected volatile Replacer replacer;
+
+    /** Name of the replacement policy, as given. */
+    protected volatile String policy;
+
+    // Variable to keep track of request and hit; every hit counts toward
+    // both ratios, so the hits of BHR2 are those of BHR1
+    protected final LongAdder bhr1RequestCount = new LongAdder();
+    protected final LongAdder bhr1HitCount = new LongAdder();
+    protected final LongAdder bhr2RequestCount = new LongAdder();
+
+    /** Default number of pages read ahead of a sequential scan. */
+    public static final int DEFAULT_READ_AHEAD_WINDOW = 8;
+
+    /** Pages read ahead of a sequential scan; 0 turns read-ahead off. */
+    protected volatile int readAheadWindow;
+
+    /** Most frames that may hold read-ahead pages not pinned yet. */
+    protected volatile int readAheadLimit;
+
+    /** Number of read-ahead pages not pinned yet. */
+    protected final AtomicInteger readAheadPending = new AtomicInteger();
+
+    /** Last page missed, and the number of consecutive pages it ends. */
+    protected volatile int lastMiss = INVALID_PAGEID;
+    protected volatile int missRun;
+
+    /** First page after those already asked for by read-ahead. */
+    protected volatile int readAheadNext = INVALID_PAGEID;
+
+    /** Reads pages ahead in the background; started on first use. */
+    protected ThreadPoolExecutor readAhead;
+
+    /** Writes dirty pages in the background, or null if not started. */
+    protected PageWriter pageWriter;
+
+    /** Hits, misses, evictions, disk traffic and so on. */
+    protected final BufferStats stats = new BufferStats(this);
+
+    /** Records page references, or null if not tracing. */
+    protected volatile TraceWriter tracer;
+
+    /** Estimates hit ratios at other pool sizes, or null if not sampling. */
+    protected volatile MissRatioSampler sampler;
+
+    /** Held shared while the frames are in use, and exclusively by
+     * setPolicy and resize; not reentrant, so public methods that hold it
+     * call each other's work through pin, unpin and flushAll. */
+    protected final PoolLock poolLock = new PoolLock();
 
-    // Variable to keep track of request and hit
-    protected int bhr1RequestCount;
-    protected int bhr1HitCount;
-    protected int bhr2RequestCount;
-    protected int bhr2HitCount;
+    /** Held by pinPages while it claims frames for missing pages. */
+    protected final ReentrantLock runLock = new ReentrantLock();
+
+    /** Most pages written together by one call to the disk manager. */
+    protected static final int MAX_RUN = 64;
+
+    /** Frames that may be dirty; every dirty frame is in it. */
+    protected FrameBitmap dirtyFrames;
     
 //-------------------------------------------------------------
 
     /**
-     * Constructs a buffer mamanger with the given settings.
+     * Constructs a buffer mamanger with the given settings, and the policy
+     * named by the bufmgr.policy system property, or else Clock.
      * 
      * @param numbufs number of buffers in the buffer pool
+     * @throws IllegalArgumentException if no policy has the name
      */
     public BufferManager(int numbufs) 
+    {
+        this(numbufs, System.getProperty(POLICY_PROPERTY, DEFAULT_POLICY));
+    }
+
+    /**
+     * Constructs a buffer mamanger with the given settings.
+     * 
+     * @param numbufs number of buffers in the buffer pool
+     * @param policy name of the replacement policy, such as Clock, Lru or
+     * Lirs, or TinyLfu:Lru for TinyLFU admission in front of Lru; see
+     * getPolicyNames
+     * @throws IllegalArgumentException if no policy has the name
+     */
+    public BufferManager(int numbufs, String policy) 
     {   
       //initializing buffer pool and frame table 
         bufpool = new Page[numbufs];
         frametab = new FrameDesc[numbufs];
         // System.out.println(numbufs);
+        //each frame keeps its own heap byte[]: pinPage hands that very array
+        //to the caller through Page.setPage, and a Page can only wrap a
+        //byte[], so frames cannot be slices of one off-heap region.
         for(int i = 0; i < frametab.length; i++)
         {
             bufpool[i] = new Page();
             frametab[i] = new FrameDesc(i);
         }
+        dirtyFrames = new FrameBitmap(numbufs);
         
         //initializing page map and replacer here. 
-        pagemap = new HashMap<Integer, FrameDesc>(numbufs);
-        replacer = new Clock(this);
+        pagemap = new PageTable(numbufs);
+        replacer = ReplacerRegistry.create(policy, this);
+        this.policy = policy;
 
-        // initializing hit and request count
-        bhr1RequestCount = 0;
-        bhr1HitCount = 0;
-        bhr2RequestCount = 0;
-        bhr2HitCount = 0;
+        // read-ahead may hold up to an eighth of the pool
+        setReadAhead(DEFAULT_READ_AHEAD_WINDOW, Math.max(1, numbufs / 8));
     }
 
     /**
@@ -77,24 +180,36 @@ public class BufferManager implements GlobalConst {
 
     public PageId newPage(Page firstpg, int run_size)
     {
-      //Allocating set of new pages on disk using run size.
-        PageId firstpgid = Minibase.DiskManager.allocate_page(run_size);
-        try {
-            pinPage(firstpgid, firstpg, true);
-        }
-        catch (Exception e) {
-            // pinning failed so deallocating the pages from disk
-            for(int i=0; i < run_size; i++) {   
-                firstpgid.pid += i;
-                Minibase.DiskManager.deallocate_page(firstpgid);
+        poolLock.lockShared();
+        try
+        {
+          //Allocating set of new pages on disk using run size.
+            PageId firstpgid;
+            synchronized (Minibase.DiskManager)
+            {
+                firstpgid = Minibase.DiskManager.allocate_page(run_size);
+            }
+            try {
+                pin(firstpgid, firstpg, true);
+            }
+            catch (Exception e) {
+                // pinning failed so deallocating the pages from disk
+                synchronized (Minibase.DiskManager)
+                {
+                    Minibase.DiskManager.deallocate_page(firstpgid, run_size);
+                }
+                return null;
             }
-            return null;
-        }
       
-        // notifying replacer
-        replacer.newPage(pagemap.get(Integer.valueOf(firstpgid.pid)));
-        //return the page id of the first page
-        return firstpgid; 
+            // notifying replacer
+            replacer.newPage(lookup(firstpgid.pid));
+            //return the page id of the first page
+            return firstpgid; 
+        }
+        finally
+        {
+            poolLock.unlockShared();
+        }
     }
   
     /**
@@ -105,24 +220,46 @@ public class BufferManager implements GlobalConst {
      */
     public void freePage(PageId pageno) 
     {  
-        // the frame descriptor as the page is in the buffer pool 
-        FrameDesc tempfd = pagemap.get(Integer.valueOf(pageno.pid));
-        // the page is in the pool so it cannot be null.
-        if(tempfd != null) {
-            //checking the pin count of frame descriptor
-            if(tempfd.pincnt > 0)
-                throw new IllegalArgumentException("Page currently pinned");
-            //remove page as it's pin count is 0, remove the page, updating its pin count and dirty status, the policy and notifying replacer.
-            pagemap.remove(Integer.valueOf(pageno.pid));
-            tempfd.pageno.pid = INVALID_PAGEID;
-            tempfd.pincnt = 0;
-            tempfd.dirty = false;
-            // tempfd.state = Clock.AVAILABLE;
-            replacer.freePage(tempfd);
-        }
-        //deallocate the page from disk 
-        Minibase.DiskManager.deallocate_page(pageno);
-        //Intialize to 0 since all the pages are removed from pool
+        poolLock.lockShared();
+        try
+        {
+            // the frame descriptor as the page is in the buffer pool 
+            FrameDesc tempfd = lookup(pageno.pid);
+            // the page is in the pool so it cannot be null.
+            if(tempfd != null) {
+                tempfd.latch.lock();
+                try {
+                    // the page may have been evicted before we got the latch
+                    if(tempfd.pageno.pid == pageno.pid) {
+                        //checking the pin count of frame descriptor
+                        if(!tempfd.tryClaim())
+                            throw new IllegalArgumentException("Page currently pinned");
+                        //remove page as it's pin count is 0, remove the page, updating its pin count and dirty status, the policy and notifying replacer.
+                        pagemap.remove(pageno.pid, tempfd.index);
+                        tempfd.pageno.pid = INVALID_PAGEID;
+                        markClean(tempfd);
+                        dropPrefetched(tempfd);
+                        // tempfd.state = Clock.AVAILABLE;
+                        replacer.freePage(tempfd);
+                        tempfd.pincnt = 0;
+                    }
+                }
+                finally {
+                    tempfd.latch.unlock();
+                }
+            }
+            //deallocate the page from disk 
+            synchronized (Minibase.DiskManager)
+            {
+                Minibase.DiskManager.deallocate_page(pageno);
+            }
+            trace(TraceWriter.FREE, pageno.pid);
+            //Intialize to 0 since all the pages are removed from pool
+        }
+        finally
+        {
+            poolLock.unlockShared();
+        }
     }
 
     /**
@@ -136,74 +273,85 @@ public class BufferManager implements GlobalConst {
      * @throws IllegalArgumentException if PIN_MEMCPY and the page is pinned
      * @throws IllegalStateException if all pages are pinned (i.e. pool exceeded)
      */
-    public void pinPage(PageId pageno, Page page, boolean skipRead) 
-    {  
-        //the frame descriptor as the page is in the buffer pool 
-        FrameDesc tempfd = pagemap.get(Integer.valueOf(pageno.pid));
-        //pin the first page using pinpage() function using the id of firstpage, page firstpg and skipread = PIN_MEMCPY(true)
-      
+    public void pinPage(PageId pageno, Page page, boolean skipRead)
+    {
+        poolLock.lockShared();
+        try
+        {
+            pin(pageno, page, skipRead);
+        }
+        finally
+        {
+            poolLock.unlockShared();
+        }
+    }
+
+    /**
+     * Does the work of pinPage, for callers holding the pool lock shared.
+     */
+    protected void pin(PageId pageno, Page page, boolean skipRead)
+    {
+        boolean timed = stats.timing;
+        long start = timed ? System.nanoTime() : 0;
         //Increment bhr1RequestCount
         if (pageno.pid > 8) {
-            bhr1RequestCount++;
+            bhr1RequestCount.increment();
         }
-        if(tempfd != null)
+        for (;;)
         {
-            //if the page is in the pool and already pinned then by using PIN_MEMCPY(true) throws an exception "Page pinned PIN_MEMCPY not allowed"
-            if(skipRead) {
-                throw new IllegalArgumentException("Page pinned so PIN_MEMCPY not allowed");
-            }
-            else
+            //the frame descriptor as the page is in the buffer pool
+            FrameDesc tempfd = lookup(pageno.pid);
+            if(tempfd != null)
             {
-                //else the page is in the pool and has not been pinned so incrementing the pincount and setting Policy status to pinned
-                tempfd.pincnt++;
-                //Increment bh1HitCount and bhr2HitCount since page in pool and it's a hit
+                //if the page is in the pool and already pinned then by using PIN_MEMCPY(true) throws an exception "Page pinned PIN_MEMCPY not allowed"
+                if(skipRead) {
+                    if(takeOverPrefetched(tempfd, pageno, page)) {
+                        notePin(pageno.pid);
+                        return;
+                    }
+                    //the frame may have changed pages under us
+                    if(tempfd.pageno.pid != pageno.pid)
+                        continue;
+                    throw new IllegalArgumentException("Page pinned so PIN_MEMCPY not allowed");
+                }
+                //the frame may be changing pages under us; if so look it up again
+                if(!pinResident(tempfd, pageno.pid))
+                    continue;
+                //Increment bh1HitCount since page in pool and it's a hit
                 if (pageno.pid > 8) {
-                    bhr1HitCount++;
-                    bhr2HitCount++;
-                    // System.out.println(pageno.pid);
+                    bhr1HitCount.increment();
                 }
-                // tempfd.state = Clock.PINNED;
-                replacer.pinPage(tempfd);
+                stats.hits.increment();
                 page.setPage(bufpool[tempfd.index]);
+                notePin(pageno.pid);
+                if(timed)
+                    stats.pinHitLatency.record(System.nanoTime() - start);
                 return;
             }
+
+            //as the page is not in pool claiming a victim; it stays latched until loaded
+            tempfd = claimVictim(pageno);
+            if(pagemap.putIfAbsent(pageno.pid, tempfd.index) != PageTable.NOT_FOUND)
+            {
+                //another thread is already loading this page, so give the victim back
+                releaseVictim(tempfd);
+                continue;
+            }
+            loadPage(tempfd, pageno, page, skipRead);
+            if(!skipRead)
+            {
+                stats.misses.increment();
+                noteMiss(pageno.pid);
+                if(timed)
+                    stats.pinMissLatency.record(System.nanoTime() - start);
+            }
+            //Increment bh2RequestCount
+            if (pageno.pid > 8) {
+                bhr2RequestCount.increment();
+            }
+            notePin(pageno.pid);
+            return;
         }
-      else
-      {
-          //as the page is not in pool choosing a victim
-          int i = replacer.pickVictim();
-          //if buffer pool is full throws an Exception("Buffer pool exceeded")
-          if(i < 0)
-              throw new IllegalStateException("Buffer pool exceeded");
-                  
-          tempfd = frametab[i];
-
-          //if the victim is dirty writing it to disk 
-          if(tempfd.pageno.pid != -1)
-          {
-              pagemap.remove(Integer.valueOf(tempfd.pageno.pid));
-              if(tempfd.dirty)
-                  Minibase.DiskManager.write_page(tempfd.pageno, bufpool[i]);
-              
-          }
-          //reading the page from disk to the page given and pinning it. 
-          if(skipRead)
-              bufpool[i].copyPage(page);
-          else
-              Minibase.DiskManager.read_page(pageno, bufpool[i]);
-          page.setPage(bufpool[i]);
-      }
-      //updating frame descriptor and notifying to replacer
-      tempfd.pageno.pid = pageno.pid;
-      tempfd.pincnt = 1;
-      tempfd.dirty = false;
-      pagemap.put(Integer.valueOf(pageno.pid), tempfd);
-      // tempfd.state = Clock.PINNED;
-      replacer.pinPage(tempfd);
-      //Increment bh2RequestCount
-      if (pageno.pid > 8) {
-          bhr2RequestCount++;
-      }
     }
 
     /**
@@ -213,29 +361,157 @@ public class BufferManager implements GlobalConst {
      * @param dirty UNPIN_DIRTY if the page was modified, UNPIN_CLEAN otherrwise
      * @throws IllegalArgumentException if the page is not present or not pinned
      */
-    public void unpinPage(PageId pageno, boolean dirty) 
-    {  
+    public void unpinPage(PageId pageno, boolean dirty)
+    {
+        poolLock.lockShared();
+        try
+        {
+            unpin(pageno, dirty);
+        }
+        finally
+        {
+            poolLock.unlockShared();
+        }
+    }
+
+    /**
+     * Does the work of unpinPage, for callers holding the pool lock shared.
+     */
+    protected void unpin(PageId pageno, boolean dirty)
+    {
         //the frame descriptor as the page is in the buffer pool 
-        FrameDesc tempfd = pagemap.get(Integer.valueOf(pageno.pid));
-      
+        FrameDesc tempfd = lookup(pageno.pid);
+  
         //if page is not present an exception is thrown as "Page not present"
-        if(tempfd == null)
+        if(tempfd == null || tempfd.pageno.pid != pageno.pid)
             throw new IllegalArgumentException("Page not present");
-        
+    
+        //mark the page dirty before the pin goes away, so an evictor never
+        //sees it clean; a clean unpin never clears another pinner's changes
+        if(dirty)
+            markDirty(tempfd);
+
+        //unpinning the page by decrementing pincount and notifying replacer
+        int pincnt = tempfd.unpin();
         //if the page is present but not pinned an exception is thrown as "page not pinned"
-        if(tempfd.pincnt == 0)
-        {
+        if(pincnt < 0)
             throw new IllegalArgumentException("Page not pinned");
-        } 
-        else
-        {
-            //unpinning the page by decrementing pincount and updating the frame descriptor and notifying replacer
-            tempfd.pincnt--;
-            tempfd.dirty = dirty;
-            // if(tempfd.pincnt== 0)
-            // tempfd.state = Clock.REFERENCED;
+        if(pincnt == 0)
             replacer.unpinPage(tempfd);
-            return;
+        trace(dirty ? TraceWriter.UNPIN_DIRTY : TraceWriter.UNPIN, pageno.pid);
+    }
+
+    /**
+     * Pins a run of consecutive disk pages into the buffer pool. Pages already
+     * in the pool are pinned as by pinPage; frames are claimed and emptied for
+     * all the others first, and each run of them is then read in with one
+     * call to the disk manager. If the pages cannot all be pinned, none stay
+     * pinned.
+     * 
+     * @param firstno identifies the first page to pin
+     * @param count number of pages to pin
+     * @param pages set to the contents of the pages, one per page
+     * @throws IllegalStateException if all pages are pinned (i.e. pool exceeded)
+     */
+    public void pinPages(PageId firstno, int count, Page[] pages)
+    {
+        poolLock.lockShared();
+        try
+        {
+            //frames claimed for missing pages, and pages pinned so far
+            FrameDesc[] claimed = new FrameDesc[count];
+            boolean[] pinned = new boolean[count];
+            int i = 0;
+            try
+            {
+                //a caller holding claimed frames waits for others' latches
+                //while it claims more, so two such callers could wait for
+                //each other; runLock lets one claim at a time. Pins of pages
+                //in the pool are taken without it, up to the first miss, and
+                //the runs are read in after it is released.
+                boolean claiming = false;
+                try
+                {
+                    PageId pageno = new PageId();
+                    for(; i < count; i++)
+                    {
+                        pageno.pid = firstno.pid + i;
+                        if(!claiming && pinIfResident(pageno, pages[i]))
+                        {
+                            pinned[i] = true;
+                            continue;
+                        }
+                        if(!claiming)
+                        {
+                            runLock.lock();
+                            claiming = true;
+                        }
+                        claimed[i] = pinOrClaim(pageno, pages[i]);
+                        pinned[i] = claimed[i] == null;
+                    }
+                }
+                finally
+                {
+                    if(claiming)
+                        runLock.unlock();
+                }
+                for(int start = 0; start < count; )
+                {
+                    if(claimed[start] == null)
+                    {
+                        start++;
+                        continue;
+                    }
+                    int end = start + 1;
+                    while(end < count && claimed[end] != null)
+                        end++;
+                    loadRun(firstno.pid, claimed, pinned, pages, start, end);
+                    start = end;
+                }
+                for(int j = 0; j < count; j++)
+                    notePin(firstno.pid + j);
+            }
+            catch(RuntimeException e)
+            {
+                for(int j = 0; j < i; j++)
+                {
+                    if(pinned[j])
+                        unpin(new PageId(firstno.pid + j), false);
+                    else if(claimed[j] != null)
+                        abandonLoad(claimed[j], firstno.pid + j);
+                }
+                throw e;
+            }
+        }
+        finally
+        {
+            poolLock.unlockShared();
+        }
+    }
+
+    /**
+     * Unpins a run of consecutive disk pages from the buffer pool.
+     * 
+     * @param firstno identifies the first page to unpin
+     * @param count number of pages to unpin
+     * @param dirty UNPIN_DIRTY if the pages were modified, UNPIN_CLEAN otherrwise
+     * @throws IllegalArgumentException if a page is not present or not pinned
+     */
+    public void unpinPages(PageId firstno, int count, boolean dirty)
+    {
+        poolLock.lockShared();
+        try
+        {
+            PageId pageno = new PageId();
+            for(int i = 0; i < count; i++)
+            {
+                pageno.pid = firstno.pid + i;
+                unpin(pageno, dirty);
+            }
+        }
+        finally
+        {
+            poolLock.unlockShared();
         }
     }
 
@@ -244,70 +520,1216 @@ public class BufferManager implements GlobalConst {
      */
     public void flushPage(PageId pageno) 
     {  
-        for(int i = 0; i < frametab.length; i++)
-            //checking for pageid or id the pageid is the frame descriptor and the dirty status of the page
-            if((pageno == null || frametab[i].pageno.pid == pageno.pid) && frametab[i].dirty)
+        poolLock.lockShared();
+        try
+        {
+            if(pageno == null)
             {
-                //writing down to disk if dirty status is true and updating dirty status of page to clean
-                Minibase.DiskManager.write_page(frametab[i].pageno, bufpool[i]);
-                frametab[i].dirty = false;
+                flushAll();
+                return;
             }
+            //finding the frame through the page table rather than scanning the pool
+            FrameDesc tempfd = lookup(pageno.pid);
+            if(tempfd != null && tempfd.pageno.pid == pageno.pid && tempfd.dirty)
+                flushFrame(tempfd);
+        }
+        finally
+        {
+            poolLock.unlockShared();
+        }
     }
 
     /**
      * Immediately writes all dirty pages in the buffer pool to disk.
      */
-    public void flushAllPages() 
+    public void flushAllPages()
     {
-      for(int i=0; i<frametab.length; i++) 
-          flushPage(frametab[i].pageno);
+        poolLock.lockShared();
+        try
+        {
+            flushAll();
+        }
+        finally
+        {
+            poolLock.unlockShared();
+        }
     }
 
     /**
-     * Gets the total number of buffer frames.
+     * Does the work of flushAllPages, for callers holding the pool lock shared.
      */
-    public int getNumBuffers() 
+    protected void flushAll()
     {
-        return bufpool.length;
+      //only the dirty frames, sorted by page number so the writes go through
+      //the file in one direction; each key is the page number over the frame
+      long[] keys = new long[dirtyFrames.cardinality()];
+      int n = 0;
+      for(int i = dirtyFrames.nextSetBit(0); i >= 0; i = dirtyFrames.nextSetBit(i + 1))
+      {
+          int pid = frametab[i].pageno.pid;
+          if(!frametab[i].dirty || pid == INVALID_PAGEID)
+          {
+              dropIfClean(frametab[i]);
+              continue;
+          }
+          //frames dirtied since the count are left for the next flush
+          if(n == keys.length)
+              break;
+          keys[n++] = ((long) pid << 32) | i;
+      }
+      Arrays.sort(keys, 0, n);
+      for(int k = 0; k < n; )
+          k = flushRun(keys, k, n);
+      //a mapped disk manager only copied the pages into the mapping
+      if(Minibase.DiskManager instanceof MappedDiskMgr)
+      {
+          synchronized(Minibase.DiskManager)
+          {
+              ((MappedDiskMgr) Minibase.DiskManager).force();
+          }
+      }
     }
 
     /**
-     * Gets the total number of unpinned buffer frames.
+     * Sets how far ahead of a sequential scan pages are read, and how many
+     * frames may hold pages read ahead but not pinned yet, so read-ahead
+     * cannot push the rest of the pool out.
+     * 
+     * @param window pages to read ahead; 0 turns read-ahead off
+     * @param limit most frames holding read-ahead pages not pinned yet
      */
-    public int getNumUnpinned() 
+    public void setReadAhead(int window, int limit)
     {
-        int numUnpinned = 0;
-        for(int i=0; i<frametab.length; i++) 
+        readAheadWindow = Math.max(0, window);
+        readAheadLimit = Math.max(0, limit);
+    }
+
+    /**
+     * Starts reading the given pages into unpinned frames in the background,
+     * for a caller that knows it will pin them soon, such as a file scan.
+     * Pages already in the pool are skipped; pages that cannot be read, or
+     * that would exceed the read-ahead limit, are not read.
+     * 
+     * @param first identifies the first page to read
+     * @param count number of consecutive pages to read
+     */
+    public void prefetch(PageId first, int count)
+    {
+        final int pid = first.pid;
+        final int n = count;
+        if(n <= 0)
+            return;
+        try
         {
-            if(frametab[i].pincnt == 0)
-            numUnpinned++;
+            readAheadExecutor().execute(new Runnable() {
+                public void run() {
+                    poolLock.lockShared();
+                    try
+                    {
+                        for(int i = 0; i < n && readAheadPending.get() < readAheadLimit; i++)
+                            if(!prefetchPage(pid + i))
+                                break;
+                    }
+                    finally
+                    {
+                        poolLock.unlockShared();
+                    }
+                }
+            });
+        }
+        catch(RejectedExecutionException e)
+        {
+            // too far behind already; drop the hint
         }
-        // System.out.println(numUnpinned);
-        return numUnpinned;
     }
 
-    public void printBhrAndRefCount(){ 
-    
-        //print counts:
-        System.out.println("totPageHits: "+bhr1HitCount);
-        System.out.println("totPageRequests: "+bhr1RequestCount);
-        System.out.println("pageLoadHits: "+bhr2HitCount);
-        System.out.println("pageLoadRequests: "+bhr2RequestCount);
-        System.out.println("+----------------------------------------+");
-        
-      
-        //compute BHR1 and BHR2 
-        float aggregateBHR = (float)bhr1HitCount/bhr1RequestCount;   
-        float pageLoadBHR = (float)bhr2HitCount/bhr2RequestCount;
-    
-        // System.out.println("Aggregate BHR (BHR1): "+ aggregateBHR);
-        // System.out.println("Load-based BHR (BHR2): "+ pageLoadBHR);
-        System.out.print("Aggregate BHR (BHR1): ");
-        System.out.printf("%9.5f\n", aggregateBHR);
-        System.out.print("Load-based BHR (BHR2): ");
-        System.out.printf("%9.5f\n", pageLoadBHR);
-        System.out.println("+----------------------------------------+");
-        
-  }
+    /**
+     * Starts writing dirty, unpinned pages in the background whenever more
+     * than the given share of the pool is dirty, so that victims are usually
+     * clean; replaces a page writer already running.
+     * 
+     * @param rate most pages written per second
+     * @param dirtyRatio share of dirty frames, from 0 to 1, above which
+     * pages are written
+     */
+    public synchronized void startPageWriter(int rate, double dirtyRatio)
+    {
+        stopPageWriter();
+        pageWriter = new PageWriter(this, rate, dirtyRatio);
+        pageWriter.start();
+    }
+
+    /**
+     * Stops the background page writer, if running.
+     */
+    public synchronized void stopPageWriter()
+    {
+        if(pageWriter != null)
+        {
+            pageWriter.shutdown();
+            pageWriter = null;
+        }
+    }
+
+    /**
+     * Switches to the named replacement policy, keeping the pages in the
+     * pool. The new replacer is told of each frame that holds a page as if it
+     * had just been loaded; what the old one knew of their history is lost.
+     * Read-ahead already asked for is finished first, and calls in progress
+     * on other threads; new ones wait until this returns.
+     *
+     * @throws IllegalArgumentException if no policy has the name
+     */
+    public void setPolicy(String policy)
+    {
+        //not synchronized: pins holding the pool lock shared may need the
+        //monitor, to start read-ahead, so waiting for the lock under it
+        //could deadlock
+        awaitReadAhead();
+        poolLock.lockExclusive();
+        try
+        {
+            replacer = rebuildReplacer(policy);
+            this.policy = policy;
+        }
+        finally
+        {
+            poolLock.unlockExclusive();
+        }
+    }
+
+    /**
+     * Makes the named policy's replacer and gives it every frame that holds
+     * a page.
+     */
+    protected Replacer rebuildReplacer(String policy)
+    {
+        Replacer next = ReplacerRegistry.create(policy, this);
+        for(int i = 0; i < frametab.length; i++)
+            if(frametab[i].pageno.pid != INVALID_PAGEID)
+                next.adopt(frametab[i]);
+        return next;
+    }
+
+    /**
+     * Grows or shrinks the buffer pool to the given number of frames, keeping
+     * the pages in the frames that remain. New frames start empty. When
+     * shrinking, the pages in the frames past the new end are written if
+     * dirty and dropped from the pool. The replacer is rebuilt for the new
+     * size as by setPolicy, and the page writer, if running, is restarted.
+     * As with setPolicy, calls in progress on other threads are finished
+     * first, and new ones wait until this returns.
+     *
+     * @param numbufs new number of buffers in the buffer pool
+     * @throws IllegalArgumentException if numbufs is not positive
+     * @throws IllegalStateException if a frame being released is pinned
+     */
+    public void resize(int numbufs)
+    {
+        if(numbufs <= 0)
+            throw new IllegalArgumentException("Invalid number of buffers");
+        //not synchronized, for the same reason as setPolicy
+        awaitReadAhead();
+        poolLock.lockExclusive();
+        try
+        {
+            int oldbufs = frametab.length;
+            if(numbufs == oldbufs)
+                return;
+            for(int i = numbufs; i < oldbufs; i++)
+                if(frametab[i].pincnt != 0)
+                    throw new IllegalStateException("Page currently pinned");
+            //the page writer walks the frames without the pool lock
+            PageWriter writer = pageWriter;
+            stopPageWriter();
+            if(writer != null)
+                awaitThread(writer);
+
+            //releasing the frames past the new end
+            for(int i = numbufs; i < oldbufs; i++)
+            {
+                FrameDesc fdesc = frametab[i];
+                if(fdesc.pageno.pid == INVALID_PAGEID)
+                    continue;
+                flushFrame(fdesc);
+                dropPrefetched(fdesc);
+                pagemap.remove(fdesc.pageno.pid, i);
+                fdesc.pageno.pid = INVALID_PAGEID;
+            }
+
+            //the frames that remain keep their pages, and new ones start empty
+            Page[] newpool = Arrays.copyOf(bufpool, numbufs);
+            FrameDesc[] newtab = Arrays.copyOf(frametab, numbufs);
+            FrameBitmap newdirty = new FrameBitmap(numbufs);
+            PageTable newmap = new PageTable(numbufs);
+            for(int i = 0; i < numbufs; i++)
+            {
+                if(i >= oldbufs)
+                {
+                    newpool[i] = new Page();
+                    newtab[i] = new FrameDesc(i);
+                    continue;
+                }
+                if(newtab[i].dirty)
+                    newdirty.set(i);
+                if(newtab[i].pageno.pid != INVALID_PAGEID)
+                    newmap.putIfAbsent(newtab[i].pageno.pid, i);
+            }
+            bufpool = newpool;
+            frametab = newtab;
+            dirtyFrames = newdirty;
+            pagemap = newmap;
+
+            replacer = rebuildReplacer(policy);
+
+            if(writer != null)
+                startPageWriter(writer.rate, writer.dirtyRatio);
+        }
+        finally
+        {
+            poolLock.unlockExclusive();
+        }
+    }
+
+    /**
+     * Waits for a background thread that was asked to stop.
+     */
+    protected void awaitThread(Thread thread)
+    {
+        try
+        {
+            thread.join();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for " + thread.getName());
+        }
+    }
+
+    /**
+     * Gets the name of the replacement policy, as given.
+     */
+    public String getPolicy()
+    {
+        return policy;
+    }
+
+    /**
+     * Gets the names of the registered replacement policies. Any other
+     * Replacer subclass in this package may also be named by its class name.
+     */
+    public static List<String> getPolicyNames()
+    {
+        return ReplacerRegistry.names();
+    }
+
+    /**
+     * Stops the page writer and the read-ahead thread and waits for both, so
+     * that the disk can be closed under the pool. Read-ahead starts again on
+     * the next scan, and the page writer when started again.
+     */
+    public void shutdown()
+    {
+        PageWriter writer;
+        ThreadPoolExecutor executor;
+        synchronized(this)
+        {
+            writer = pageWriter;
+            stopPageWriter();
+            executor = readAhead;
+            readAhead = null;
+        }
+        if(writer != null)
+            awaitThread(writer);
+        if(executor == null)
+            return;
+        executor.shutdown();
+        try
+        {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for read-ahead");
+        }
+    }
+
+    /**
+     * Starts recording every pin, unpin and free to the given file, for
+     * TraceReplay; a trace already being recorded is closed first.
+     *
+     * @throws IOException if the file cannot be created, or the last trace
+     * could not be written
+     */
+    public synchronized void startTrace(String fname) throws IOException
+    {
+        stopTrace();
+        tracer = new TraceWriter(fname);
+    }
+
+    /**
+     * Stops recording page references and closes the trace file, if any.
+     *
+     * @throws IOException if any of the trace could not be written
+     */
+    public synchronized void stopTrace() throws IOException
+    {
+        TraceWriter t = tracer;
+        if(t != null)
+        {
+            tracer = null;
+            t.close();
+        }
+    }
+
+    /**
+     * Records an operation on a page, if tracing.
+     */
+    protected void trace(int op, int pid)
+    {
+        TraceWriter t = tracer;
+        if(t != null)
+            t.record(op, pid);
+    }
+
+    /**
+     * Notes a pin of a page, for the trace and the miss ratio sampler.
+     */
+    protected void notePin(int pid)
+    {
+        trace(TraceWriter.PIN, pid);
+        MissRatioSampler s = sampler;
+        if(s != null)
+            s.pin(pid);
+    }
+
+    /**
+     * Starts estimating the hit ratio the pool would have at other sizes,
+     * from the pins of a sample of the pages, forgetting any earlier
+     * estimate. A rate of 0.01 costs little; lower rates cost less but need
+     * more pins, and cannot tell apart sizes less than 1 / rate frames apart.
+     * 
+     * @param rate share of pages sampled, above 0 and at most 1
+     * @param reportSeconds seconds between reports of the curve to
+     * System.out, or 0 for none
+     * @throws IllegalArgumentException if the rate is out of range
+     */
+    public synchronized void startMissRatioSampling(double rate, int reportSeconds)
+    {
+        sampler = new MissRatioSampler(this, rate, reportSeconds);
+    }
+
+    /**
+     * Stops estimating hit ratios at other pool sizes.
+     */
+    public synchronized void stopMissRatioSampling()
+    {
+        sampler = null;
+    }
+
+    /**
+     * Gets the estimated hit ratios of LRU pools of the given sizes, from the
+     * pins sampled so far.
+     * 
+     * @param sizes numbers of frames
+     * @return the hit ratio at each size
+     * @throws IllegalStateException if not sampling
+     */
+    public double[] getMissRatioCurve(int[] sizes)
+    {
+        MissRatioSampler s = sampler;
+        if(s == null)
+            throw new IllegalStateException("Miss ratio sampling not started");
+        double[] hits = new double[sizes.length];
+        for(int i = 0; i < sizes.length; i++)
+            hits[i] = s.hitRatio(sizes[i]);
+        return hits;
+    }
+
+    /**
+     * Prints the estimated hit ratios at pool sizes from 16 frames, doubling,
+     * up to enough to hold every sampled page, and at the current size.
+     * 
+     * @throws IllegalStateException if not sampling
+     */
+    public void printMissRatioCurve()
+    {
+        MissRatioSampler s = sampler;
+        if(s == null)
+            throw new IllegalStateException("Miss ratio sampling not started");
+        System.out.print(s.report(getNumBuffers()));
+    }
+
+    /**
+     * Gets the number of pins that had to write a dirty victim to disk
+     * before reading their page.
+     */
+    public int getDirtyVictimWrites()
+    {
+        return (int) stats.getDirtyVictimWrites();
+    }
+
+    /**
+     * Gets the number of disk writes flushAllPages saved by writing runs of
+     * consecutive pages together.
+     */
+    public int getWritesSaved()
+    {
+        return (int) stats.getWritesSaved();
+    }
+
+    /**
+     * Gets the total number of buffer frames.
+     */
+    public int getNumBuffers() 
+    {
+        return bufpool.length;
+    }
+
+    /**
+     * Gets the number of buffer frames pinned now.
+     */
+    public int getNumPinned()
+    {
+        int numPinned = 0;
+        for(int i = 0; i < frametab.length; i++)
+        {
+            if(frametab[i].pincnt > 0)
+                numPinned++;
+        }
+        return numPinned;
+    }
+
+    /**
+     * Gets this pool's counters, which can also be registered with JMX.
+     */
+    public BufferStats getStats()
+    {
+        return stats;
+    }
+
+    /**
+     * Gets the total number of unpinned buffer frames.
+     */
+    public int getNumUnpinned() 
+    {
+        int numUnpinned = 0;
+        for(int i=0; i<frametab.length; i++) 
+        {
+            if(frametab[i].pincnt == 0)
+            numUnpinned++;
+        }
+        // System.out.println(numUnpinned);
+        return numUnpinned;
+    }
+
+    /**
+     * Prints the BHR counts, which leave out pages 0 to 8, to System.out; see
+     * getStats for counters of every page that can be read at any time.
+     */
+    public void printBhrAndRefCount(){ 
+    
+        //print counts:
+        long hits = bhr1HitCount.sum();
+        long requests = bhr1RequestCount.sum();
+        long loadRequests = bhr2RequestCount.sum();
+        System.out.println("totPageHits: "+hits);
+        System.out.println("totPageRequests: "+requests);
+        System.out.println("pageLoadHits: "+hits);
+        System.out.println("pageLoadRequests: "+loadRequests);
+        System.out.println("+----------------------------------------+");
+        
+      
+        //compute BHR1 and BHR2 
+        float aggregateBHR = (float)hits/requests;   
+        float pageLoadBHR = (float)hits/loadRequests;
+    
+        // System.out.println("Aggregate BHR (BHR1): "+ aggregateBHR);
+        // System.out.println("Load-based BHR (BHR2): "+ pageLoadBHR);
+        System.out.print("Aggregate BHR (BHR1): ");
+        System.out.printf("%9.5f\n", aggregateBHR);
+        System.out.print("Load-based BHR (BHR2): ");
+        System.out.printf("%9.5f\n", pageLoadBHR);
+        System.out.println("+----------------------------------------+");
+        
+  }
+
+//-------------------------------------------------------------
+
+    /**
+     * Gets the frame holding the given page, or null if it is not in the pool.
+     */
+    protected FrameDesc lookup(int pid)
+    {
+        int i = pagemap.get(pid);
+        return i == PageTable.NOT_FOUND ? null : frametab[i];
+    }
+
+    /**
+     * Pins a frame found through the page map, provided it still holds the
+     * page; waits out a load or eviction in progress instead of spinning.
+     *
+     * @return false if the caller must look the page up again
+     */
+    protected boolean pinResident(FrameDesc fdesc, int pid)
+    {
+        if(!fdesc.tryPin())
+        {
+            // the frame is latched while it changes pages; wait for it
+            fdesc.latch.lock();
+            fdesc.latch.unlock();
+            return false;
+        }
+        if(fdesc.pageno.pid != pid)
+        {
+            // evicted and reused between the lookup and the pin
+            if(fdesc.unpin() == 0)
+                replacer.unpinPage(fdesc);
+            return false;
+        }
+        if(fdesc.prefetched.get() && dropPrefetched(fdesc))
+        {
+            //the replacer sees a page read ahead arrive at its first pin, so
+            //the read-ahead itself does not count as a reference
+            replacer.freePage(fdesc);
+            replacer.pinPage(fdesc);
+            //the scan has reached pages read ahead, so keep ahead of it
+            readAheadFrom(pid);
+            return true;
+        }
+        replacer.pinPage(fdesc);
+        return true;
+    }
+
+    /**
+     * Pins a page if it is in the pool, as pinPage would.
+     *
+     * @return false if the page is not in the pool
+     */
+    protected boolean pinIfResident(PageId pageno, Page page)
+    {
+        for (;;)
+        {
+            FrameDesc tempfd = lookup(pageno.pid);
+            if(tempfd == null)
+                return false;
+            if(!pinResident(tempfd, pageno.pid))
+                continue;
+            if (pageno.pid > 8) {
+                bhr1RequestCount.increment();
+                bhr1HitCount.increment();
+            }
+            stats.hits.increment();
+            page.setPage(bufpool[tempfd.index]);
+            return true;
+        }
+    }
+
+    /**
+     * Pins a page if it is in the pool, or else claims a victim for it, maps
+     * the page to it and empties it, to be read in by the caller. The
+     * victim's old page is written and unmapped at once, since a later page
+     * of the same run may be that very page.
+     *
+     * @return the claimed frame, still latched, or null if pinned
+     */
+    protected FrameDesc pinOrClaim(PageId pageno, Page page)
+    {
+        for (;;)
+        {
+            if(pinIfResident(pageno, page))
+                return null;
+            FrameDesc tempfd = claimVictim(pageno);
+            if(pagemap.putIfAbsent(pageno.pid, tempfd.index) != PageTable.NOT_FOUND)
+            {
+                releaseVictim(tempfd);
+                continue;
+            }
+            try
+            {
+                evictVictim(tempfd, false);
+            }
+            catch(RuntimeException e)
+            {
+                abandonLoad(tempfd, pageno.pid);
+                throw e;
+            }
+            //the replacer is told of the page now, so that it does not pick
+            //the frame again for a later page of the run
+            tempfd.pageno.pid = pageno.pid;
+            markClean(tempfd);
+            replacer.pinPage(tempfd);
+            if (pageno.pid > 8) {
+                bhr1RequestCount.increment();
+                bhr2RequestCount.increment();
+            }
+            stats.misses.increment();
+            return tempfd;
+        }
+    }
+
+    /**
+     * Loads the emptied frames claimed[start] to claimed[end - 1] with one
+     * read and pins them. If that fails the frames are left empty and claimed
+     * is cleared there.
+     *
+     * @param firstpid page number of index 0 in claimed
+     */
+    protected void loadRun(int firstpid, FrameDesc[] claimed, boolean[] pinned, Page[] pages, int start, int end)
+    {
+        try
+        {
+            Page[] frames = new Page[end - start];
+            for(int j = start; j < end; j++)
+                frames[j - start] = bufpool[claimed[j].index];
+            readPages(new PageId(firstpid + start), frames, end - start);
+        }
+        catch(RuntimeException e)
+        {
+            for(int j = start; j < end; j++)
+            {
+                abandonLoad(claimed[j], firstpid + j);
+                claimed[j] = null;
+            }
+            throw e;
+        }
+        for(int j = start; j < end; j++)
+        {
+            pages[j].setPage(bufpool[claimed[j].index]);
+            claimed[j].pincnt = 1;
+            claimed[j].latch.unlock();
+            pinned[j] = true;
+            claimed[j] = null;
+        }
+    }
+
+    /**
+     * Asks the replacer for victims until one can be latched and claimed.
+     *
+     * @param pageno the page the victim is for
+     * @return the claimed frame, with its latch held
+     * @throws IllegalStateException if all pages are pinned (i.e. pool exceeded)
+     */
+    protected FrameDesc claimVictim(PageId pageno)
+    {
+        // a victim is only a hint; it may have been pinned by the time we get
+        // to it, in which case we ask again, but not forever. We wait for a
+        // latched victim rather than skip it, since the replacer may have
+        // already dropped it from its lists.
+        for(int tries = 0; tries <= frametab.length; tries++)
+        {
+            boolean timed = stats.timing;
+            long start = timed ? System.nanoTime() : 0;
+            int i = replacer.pickVictim(pageno);
+            if(timed)
+                stats.pickVictimLatency.record(System.nanoTime() - start);
+            //if buffer pool is full throws an Exception("Buffer pool exceeded")
+            if(i < 0)
+                break;
+            FrameDesc tempfd = frametab[i];
+            tempfd.latch.lock();
+            if(tempfd.tryClaim())
+                return tempfd;
+            rejectVictim(tempfd);
+            tempfd.latch.unlock();
+        }
+        throw new IllegalStateException("Buffer pool exceeded");
+    }
+
+    /**
+     * Hands a victim that turned out to be pinned back to the replacer, which
+     * may already have forgotten it. Its pinner cannot be relied on to tell
+     * the replacer, since a pin taken on a stale lookup is dropped without
+     * notifying it. Called with the latch held, so the page cannot change.
+     */
+    protected void rejectVictim(FrameDesc fdesc)
+    {
+        //not a reference, so no ghost hit or count
+        replacer.unpick(fdesc);
+    }
+
+    /**
+     * Returns a claimed victim, still holding its old page, to the replacer
+     * and releases its latch.
+     */
+    protected void releaseVictim(FrameDesc fdesc)
+    {
+        fdesc.pincnt = 0;
+        replacer.unpick(fdesc);
+        fdesc.latch.unlock();
+    }
+
+    /**
+     * Replaces the contents of a claimed victim with the given page, writing
+     * the old page first if dirty, and leaves it pinned once.
+     */
+    protected void loadPage(FrameDesc fdesc, PageId pageno, Page page, boolean skipRead)
+    {
+        loadPage(fdesc, pageno, page, skipRead, false);
+    }
+
+    /**
+     * Replaces the contents of a claimed victim with the given page, writing
+     * the old page first if dirty, and leaves it pinned once, or unpinned and
+     * marked as read ahead.
+     */
+    protected void loadPage(FrameDesc fdesc, PageId pageno, Page page, boolean skipRead, boolean prefetch)
+    {
+        int i = fdesc.index;
+        try
+        {
+            evictVictim(fdesc, prefetch);
+            //reading the page from disk to the page given and pinning it.
+            if(skipRead)
+                bufpool[i].copyPage(page);
+            else
+                readPage(pageno, bufpool[i]);
+        }
+        catch(RuntimeException e)
+        {
+            abandonLoad(fdesc, pageno.pid);
+            throw e;
+        }
+        page.setPage(bufpool[i]);
+        finishLoad(fdesc, pageno.pid, prefetch);
+    }
+
+    /**
+     * Empties a claimed victim, writing its old page first if dirty.
+     */
+    protected void evictVictim(FrameDesc fdesc, boolean prefetch)
+    {
+        int i = fdesc.index;
+        dropPrefetched(fdesc);
+        //if the victim is dirty writing it to disk; only then unmap it,
+        //so a miss on the old page cannot read it back too early
+        if(fdesc.pageno.pid != INVALID_PAGEID)
+        {
+            if(fdesc.dirty)
+            {
+                writePage(fdesc.pageno, bufpool[i]);
+                if(!prefetch)
+                    stats.dirtyVictimWrites.increment();
+            }
+            stats.evictions.increment();
+            pagemap.remove(fdesc.pageno.pid, i);
+            fdesc.pageno.pid = INVALID_PAGEID;
+        }
+    }
+
+    /**
+     * Leaves a claimed victim whose new page could not be loaded empty
+     * rather than half loaded, and releases its latch.
+     */
+    protected void abandonLoad(FrameDesc fdesc, int pid)
+    {
+        pagemap.remove(pid, fdesc.index);
+        fdesc.pageno.pid = INVALID_PAGEID;
+        markClean(fdesc);
+        replacer.freePage(fdesc);
+        fdesc.pincnt = 0;
+        fdesc.latch.unlock();
+    }
+
+    /**
+     * Gives a claimed victim that now holds the given page to the replacer,
+     * pinned once or, if prefetched, unpinned, and releases its latch.
+     */
+    protected void finishLoad(FrameDesc fdesc, int pid, boolean prefetch)
+    {
+        //updating frame descriptor and notifying to replacer
+        fdesc.pageno.pid = pid;
+        markClean(fdesc);
+        // tempfd.state = Clock.PINNED;
+        if(prefetch)
+        {
+            //marked first, so the replacer can tell it was not asked for
+            fdesc.prefetched.set(true);
+            readAheadPending.incrementAndGet();
+            replacer.pinPage(fdesc);
+            fdesc.pincnt = 0;
+            replacer.unpinPage(fdesc);
+        }
+        else
+        {
+            replacer.pinPage(fdesc);
+            fdesc.pincnt = 1;
+        }
+        fdesc.latch.unlock();
+    }
+
+    /**
+     * Writes a frame's page to disk if it is still dirty.
+     */
+    protected void flushFrame(FrameDesc fdesc)
+    {
+        fdesc.latch.lock();
+        try
+        {
+            //updating dirty status first, so changes made during the write
+            //mark the page dirty again
+            if(fdesc.dirty && fdesc.pageno.pid != INVALID_PAGEID)
+            {
+                markClean(fdesc);
+                writePage(fdesc.pageno, bufpool[fdesc.index]);
+            }
+        }
+        finally
+        {
+            fdesc.latch.unlock();
+        }
+    }
+
+    /**
+     * Counts a miss towards a sequential run, and reads ahead once the run
+     * is two pages long.
+     */
+    protected void noteMiss(int pid)
+    {
+        if(readAheadWindow <= 0)
+            return;
+        int run = (pid == lastMiss + 1) ? missRun + 1 : 1;
+        missRun = run;
+        lastMiss = pid;
+        if(run >= 2)
+            readAheadFrom(pid);
+    }
+
+    /**
+     * Reads ahead the pages after the given one that are within the window
+     * and not asked for yet.
+     */
+    protected void readAheadFrom(int pid)
+    {
+        int window = readAheadWindow;
+        if(window <= 0)
+            return;
+        int next = readAheadNext;
+        int from = (next > pid && next <= pid + window) ? next : pid + 1;
+        int to = pid + window;
+        if(from > to)
+            return;
+        readAheadNext = to + 1;
+        prefetch(new PageId(from), to - from + 1);
+    }
+
+    /**
+     * Reads a page into an unpinned frame, unless it is already in the pool.
+     *
+     * @return false if the page cannot be read, or no frame is free
+     */
+    protected boolean prefetchPage(int pid)
+    {
+        if(lookup(pid) != null)
+            return true;
+        PageId pageno = new PageId(pid);
+        FrameDesc tempfd;
+        try
+        {
+            tempfd = claimVictim(pageno);
+        }
+        catch(IllegalStateException e)
+        {
+            return false;
+        }
+        if(tempfd.prefetched.get())
+        {
+            //the replacer gives new pages no more room than this, so reading
+            //further would only drop pages read ahead before they are used
+            releaseVictim(tempfd);
+            return false;
+        }
+        if(pagemap.putIfAbsent(pid, tempfd.index) != PageTable.NOT_FOUND)
+        {
+            releaseVictim(tempfd);
+            return true;
+        }
+        try
+        {
+            loadPage(tempfd, pageno, new Page(), PIN_DISKIO, true);
+        }
+        catch(RuntimeException e)
+        {
+            // most likely past the end of the database
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gives a page read ahead, and not pinned since, the contents of the
+     * given page and pins it, as PIN_MEMCPY does for a page not in the pool.
+     * Read-ahead does not know where the allocated pages end, so newPage may
+     * allocate a page it has already read.
+     *
+     * @return false if the frame is not an unpinned page read ahead
+     */
+    protected boolean takeOverPrefetched(FrameDesc fdesc, PageId pageno, Page page)
+    {
+        if(!fdesc.prefetched.get())
+            return false;
+        fdesc.latch.lock();
+        if(fdesc.pageno.pid != pageno.pid || !fdesc.prefetched.get() || !fdesc.tryClaim())
+        {
+            fdesc.latch.unlock();
+            return false;
+        }
+        dropPrefetched(fdesc);
+        bufpool[fdesc.index].copyPage(page);
+        page.setPage(bufpool[fdesc.index]);
+        markClean(fdesc);
+        //the replacer sees the page arrive now, as in pinResident
+        replacer.freePage(fdesc);
+        replacer.pinPage(fdesc);
+        fdesc.pincnt = 1;
+        fdesc.latch.unlock();
+        return true;
+    }
+
+    /**
+     * Clears a frame's read-ahead mark.
+     *
+     * @return true if it was set
+     */
+    protected boolean dropPrefetched(FrameDesc fdesc)
+    {
+        if(!fdesc.prefetched.getAndSet(false))
+            return false;
+        readAheadPending.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Gets the read-ahead thread pool, starting it if needed. It has a single
+     * daemon thread and a short queue.
+     */
+    protected synchronized ThreadPoolExecutor readAheadExecutor()
+    {
+        if(readAhead == null)
+        {
+            readAhead = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(64), new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "bufmgr-read-ahead");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        }
+        return readAhead;
+    }
+
+    /**
+     * Waits until every read-ahead task asked for so far has run.
+     */
+    protected void awaitReadAhead()
+    {
+        if(readAhead == null)
+            return;
+        //the single read-ahead thread runs tasks in order, so an empty task
+        //runs after all the others
+        for (;;)
+        {
+            try
+            {
+                readAhead.submit(new Runnable() {
+                    public void run() { }
+                }).get();
+                return;
+            }
+            catch(RejectedExecutionException e)
+            {
+                Thread.yield();
+            }
+            catch(ExecutionException e)
+            {
+                return;
+            }
+            catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for read-ahead");
+            }
+        }
+    }
+
+    /**
+     * Writes a frame's page to disk for the page writer, if it is dirty and
+     * unpinned; skips a frame that is latched rather than wait for it.
+     *
+     * @return true if the page was written
+     */
+    protected boolean cleanFrame(FrameDesc fdesc)
+    {
+        if(!fdesc.latch.tryLock())
+            return false;
+        try
+        {
+            if(!fdesc.dirty || fdesc.pincnt != 0 || fdesc.pageno.pid == INVALID_PAGEID)
+                return false;
+            markClean(fdesc);
+            writePage(fdesc.pageno, bufpool[fdesc.index]);
+            return true;
+        }
+        finally
+        {
+            fdesc.latch.unlock();
+        }
+    }
+
+    /**
+     * Marks a frame dirty; the flag is set before the frame joins the dirty
+     * set, so a flush that finds the frame in the set also sees the flag.
+     */
+    protected void markDirty(FrameDesc fdesc)
+    {
+        fdesc.dirty = true;
+        dirtyFrames.set(fdesc.index);
+    }
+
+    /**
+     * Marks a frame clean; it leaves the dirty set before the flag is
+     * cleared, so a concurrent markDirty always leaves it in the set.
+     */
+    protected void markClean(FrameDesc fdesc)
+    {
+        dirtyFrames.clear(fdesc.index);
+        fdesc.dirty = false;
+    }
+
+    /**
+     * Takes a frame that is not dirty out of the dirty set, where a race
+     * between markDirty and markClean may have left it.
+     */
+    protected void dropIfClean(FrameDesc fdesc)
+    {
+        dirtyFrames.clear(fdesc.index);
+        if(fdesc.dirty)
+            dirtyFrames.set(fdesc.index);
+    }
+
+    /**
+     * Writes the run of consecutive pages that starts at keys[k] in one call
+     * to the disk manager, up to MAX_RUN pages. The first frame's latch is
+     * waited for; the run ends at the first later frame whose latch is taken,
+     * since waiting for several latches at once could deadlock with another
+     * flush. A frame that changed pages since it was sorted also ends it.
+     *
+     * @param keys page numbers over frame numbers, sorted
+     * @return the index of the first key not written
+     */
+    protected int flushRun(long[] keys, int k, int n)
+    {
+        FrameDesc[] run = new FrameDesc[Math.min(MAX_RUN, n - k)];
+        int first = (int) (keys[k] >>> 32);
+        int len = 0;
+        while(len < run.length)
+        {
+            FrameDesc fdesc = frametab[(int) keys[k + len]];
+            if(len == 0)
+                fdesc.latch.lock();
+            else if(!fdesc.latch.tryLock())
+                break;
+            if(!fdesc.dirty || fdesc.pageno.pid != first + len)
+            {
+                fdesc.latch.unlock();
+                break;
+            }
+            run[len++] = fdesc;
+        }
+        if(len == 0)
+            return k + 1;
+        try
+        {
+            Page[] pages = new Page[len];
+            for(int i = 0; i < len; i++)
+            {
+                //updating dirty status first, so changes made during the
+                //write mark the page dirty again
+                markClean(run[i]);
+                pages[i] = bufpool[run[i].index];
+            }
+            writePages(new PageId(first), pages, len);
+        }
+        finally
+        {
+            for(int i = 0; i < len; i++)
+                run[i].latch.unlock();
+        }
+        return k + len;
+    }
+
+    /**
+     * Reads a page from disk; the disk manager itself is single threaded.
+     * The read is timed once the lock is held, so that waiting for other
+     * threads' disk calls does not count as disk latency.
+     */
+    protected void readPage(PageId pageno, Page page)
+    {
+        synchronized (Minibase.DiskManager)
+        {
+            boolean timed = stats.timing;
+            long start = timed ? System.nanoTime() : 0;
+            Minibase.DiskManager.read_page(pageno, page);
+            if(timed)
+                stats.diskReadLatency.record(System.nanoTime() - start);
+        }
+        stats.pageReads.increment();
+    }
+
+    /**
+     * Writes a page to disk; the disk manager itself is single threaded.
+     */
+    protected void writePage(PageId pageno, Page page)
+    {
+        synchronized (Minibase.DiskManager)
+        {
+            boolean timed = stats.timing;
+            long start = timed ? System.nanoTime() : 0;
+            Minibase.DiskManager.write_page(pageno, page);
+            if(timed)
+                stats.diskWriteLatency.record(System.nanoTime() - start);
+        }
+        stats.pageWrites.increment();
+    }
+
+    /**
+     * Reads pages from disk at consecutive page numbers, with as few calls as
+     * the disk manager allows.
+     */
+    protected void readPages(PageId firstno, Page[] pages, int count)
+    {
+        synchronized (Minibase.DiskManager)
+        {
+            boolean timed = stats.timing;
+            long start = timed ? System.nanoTime() : 0;
+            RunReader.read_pages(Minibase.DiskManager, firstno, pages, count);
+            if(timed)
+                stats.diskReadLatency.record(System.nanoTime() - start);
+        }
+        stats.pageReads.add(count);
+    }
+
+    /**
+     * Writes pages to disk at consecutive page numbers, with as few calls as
+     * the disk manager allows.
+     */
+    protected void writePages(PageId firstno, Page[] pages, int count)
+    {
+        int saved;
+        synchronized (Minibase.DiskManager)
+        {
+            boolean timed = stats.timing;
+            long start = timed ? System.nanoTime() : 0;
+            saved = RunWriter.write_pages(Minibase.DiskManager, firstno, pages, count);
+            if(timed)
+                stats.diskWriteLatency.record(System.nanoTime() - start);
+        }
+        stats.pageWrites.add(count);
+        if(saved > 0)
+            stats.writesSaved.add(saved);
+    }
 
-} // public class BufferManager implements GlobalConst
\ No newline at end of file
+} // public class BufferManager implements GlobalConst
@@ -0,0 +1,145 @@
+package bufmgr;
+
+import global.GlobalConst;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Named buffer pools, each with its own size and replacement policy, and the
+ * files bound to them; a file not bound to any pool uses the default pool.
+ * <p>
+ * All pools share Minibase.DiskManager. A page must only ever be pinned
+ * through one pool, or the pools would hold copies of it that disagree, so
+ * every page of a file has to go through the file's pool. An access method
+ * looks its pool up once, when the file is opened, and keeps it; pinning a
+ * page then costs nothing more than with a single pool.
+ * <p>
+ * Each pool's counters are registered with JMX as
+ * bufmgr:type=BufferPool,name=the pool's name while it exists.
+ */
+public class BufferPools implements GlobalConst {
+
+    /** Name of the pool used by files not bound to any other. */
+    public static final String DEFAULT_POOL = "default";
+
+    /** The pools by name. */
+    protected static final Map<String, BufferManager> pools =
+        new ConcurrentHashMap<String, BufferManager>();
+
+    /** Name under which temporary files, which have none, are bound. */
+    public static final String TEMP_FILES = "";
+
+    /** Pool names by the names of the files bound to them. */
+    protected static final Map<String, String> bindings =
+        new ConcurrentHashMap<String, String>();
+
+    // --------------------------------------------------------------------------
+
+    /**
+     * Creates a pool with the given name, size and replacement policy.
+     *
+     * @return the new pool
+     * @throws IllegalArgumentException if a pool has that name, or no policy
+     * has the given name
+     * @throws IllegalStateException if the pool's counters cannot be
+     * registered with JMX under that name
+     */
+    public static synchronized BufferManager create(String name, int numbufs, String policy) {
+        if (pools.containsKey(name)) {
+            throw new IllegalArgumentException("Buffer pool already exists: " + name);
+        }
+        BufferManager pool = new BufferManager(numbufs, policy);
+        pool.getStats().register(name);
+        pools.put(name, pool);
+        return pool;
+    }
+
+    /**
+     * Gets the pool with the given name.
+     *
+     * @throws IllegalArgumentException if no pool has that name
+     */
+    public static BufferManager get(String name) {
+        BufferManager pool = pools.get(name);
+        if (pool == null) {
+            throw new IllegalArgumentException("No such buffer pool: " + name);
+        }
+        return pool;
+    }
+
+    /**
+     * Gets the names of the pools.
+     */
+    public static List<String> names() {
+        return new ArrayList<String>(pools.keySet());
+    }
+
+    /**
+     * Stops a pool's page writer and read-ahead, flushes it and removes it,
+     * along with the bindings of files to it.
+     *
+     * @throws IllegalArgumentException if no pool has that name
+     */
+    public static synchronized void drop(String name) {
+        BufferManager pool = get(name);
+        pool.shutdown();
+        pool.flushAllPages();
+        pool.getStats().unregister();
+        pools.remove(name);
+        for (Iterator<String> it = bindings.values().iterator(); it.hasNext(); ) {
+            if (it.next().equals(name)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Binds a file to a pool; the file's pages must not be in any other pool
+     * at the time. A null file name binds all temporary files.
+     *
+     * @throws IllegalArgumentException if no pool has that name
+     */
+    public static synchronized void bind(String fileName, String poolName) {
+        get(poolName);
+        bindings.put(key(fileName), poolName);
+    }
+
+    /**
+     * Binds a file back to the default pool.
+     */
+    public static void unbind(String fileName) {
+        bindings.remove(key(fileName));
+    }
+
+    /**
+     * Gets the pool a file is bound to, or the default pool; a null file
+     * name stands for a temporary file.
+     *
+     * @throws IllegalArgumentException if the file is not bound and there is
+     * no default pool
+     */
+    public static BufferManager forFile(String fileName) {
+        String poolName = bindings.get(key(fileName));
+        return get(poolName != null ? poolName : DEFAULT_POOL);
+    }
+
+    /**
+     * Gets the key a file is bound under.
+     */
+    protected static String key(String fileName) {
+        return fileName != null ? fileName : TEMP_FILES;
+    }
+
+    /**
+     * Flushes every pool.
+     */
+    public static void flushAll() {
+        for (BufferManager pool : pools.values()) {
+            pool.flushAllPages();
+        }
+    }
+
+} // public class BufferPools implements GlobalConst
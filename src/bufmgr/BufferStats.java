@@ -0,0 +1,319 @@
+package bufmgr;
+
+import global.Minibase;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters of a buffer pool, cheap to update from many threads at once, and
+ * readable at any time without stopping the pool, directly or through JMX.
+ * <p>
+ * Each counter is a LongAdder, so threads pinning at once update separate
+ * cells instead of one contended word. A read sums the cells, and so sees
+ * each counter as it was at some moment during the read; counters read one
+ * after another may be a few pins apart. Unlike the BHR counts of
+ * printBhrAndRefCount, every page is counted, header pages included.
+ * <p>
+ * Page reads and writes are the pool's own; disk reads and writes are the
+ * disk manager's, shared by every pool.
+ * <p>
+ * Latencies of pins, of picking victims and of disk reads and writes are
+ * kept in LatencyHistograms while timing is on.
+ */
+public class BufferStats implements BufferStatsMXBean {
+
+    /** Domain and type of the pools' JMX names. */
+    public static final String JMX_TYPE = "bufmgr:type=BufferPool";
+
+    /** Pins of pages found in the pool. */
+    final LongAdder hits = new LongAdder();
+
+    /** Pins that read their page from disk. */
+    final LongAdder misses = new LongAdder();
+
+    /** Pages dropped to make room for others. */
+    final LongAdder evictions = new LongAdder();
+
+    /** Misses that had to write a dirty victim first. */
+    final LongAdder dirtyVictimWrites = new LongAdder();
+
+    /** Pages read and written by this pool. */
+    final LongAdder pageReads = new LongAdder();
+    final LongAdder pageWrites = new LongAdder();
+
+    /** Disk writes saved by writing consecutive pages together. */
+    final LongAdder writesSaved = new LongAdder();
+
+    /** Whether latencies are recorded; off by default, as reading the clock
+     * adds to every pin. */
+    volatile boolean timing;
+
+    /** Latencies of pins that hit and that read their page, of picking a
+     * victim, and of each read and write call to the disk manager. */
+    final LatencyHistogram pinHitLatency = new LatencyHistogram();
+    final LatencyHistogram pinMissLatency = new LatencyHistogram();
+    final LatencyHistogram pickVictimLatency = new LatencyHistogram();
+    final LatencyHistogram diskReadLatency = new LatencyHistogram();
+    final LatencyHistogram diskWriteLatency = new LatencyHistogram();
+
+    /** The buffer manager counted. */
+    protected final BufferManager mgr;
+
+    /** Name this is registered under with JMX, or null. */
+    protected ObjectName jmxName;
+
+    // --------------------------------------------------------------------------
+
+    /**
+     * Constructs the counters of a buffer manager, all zero.
+     */
+    BufferStats(BufferManager mgr) {
+        this.mgr = mgr;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets hits over hits and misses, or 0 before any.
+     */
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getDirtyVictimWrites() {
+        return dirtyVictimWrites.sum();
+    }
+
+    public long getPageReads() {
+        return pageReads.sum();
+    }
+
+    public long getPageWrites() {
+        return pageWrites.sum();
+    }
+
+    public long getWritesSaved() {
+        return writesSaved.sum();
+    }
+
+    public long getDiskReads() {
+        return Minibase.DiskManager == null ? 0 : Minibase.DiskManager.getReadCount();
+    }
+
+    public long getDiskWrites() {
+        return Minibase.DiskManager == null ? 0 : Minibase.DiskManager.getWriteCount();
+    }
+
+    /**
+     * Gets the number of frames pinned now.
+     */
+    public int getPinnedFrames() {
+        return mgr.getNumPinned();
+    }
+
+    public int getNumBuffers() {
+        return mgr.getNumBuffers();
+    }
+
+    public String getPolicy() {
+        return mgr.getPolicy();
+    }
+
+    /**
+     * Gets the counters kept by the current replacement policy, such as ghost
+     * hits, by name; they start over when the policy changes.
+     */
+    public Map<String, Long> getPolicyCounters() {
+        Map<String, Long> counters = new LinkedHashMap<String, Long>();
+        mgr.replacer.addCounters(counters);
+        return counters;
+    }
+
+    public boolean isTiming() {
+        return timing;
+    }
+
+    /**
+     * Turns recording of latencies on or off; the histograms keep what they
+     * have.
+     */
+    public void setTiming(boolean timing) {
+        this.timing = timing;
+    }
+
+    /**
+     * Gets the median, 99th and 99.9th percentiles and maximum of each
+     * latency, in nanoseconds, under names such as pinHit.p99.
+     */
+    public Map<String, Long> getLatencies() {
+        Map<String, Long> latencies = new LinkedHashMap<String, Long>();
+        addLatencies(latencies, "pinHit", pinHitLatency);
+        addLatencies(latencies, "pinMiss", pinMissLatency);
+        addLatencies(latencies, "pickVictim", pickVictimLatency);
+        addLatencies(latencies, "diskRead", diskReadLatency);
+        addLatencies(latencies, "diskWrite", diskWriteLatency);
+        return latencies;
+    }
+
+    public LatencyHistogram getPinHitLatency() {
+        return pinHitLatency;
+    }
+
+    public LatencyHistogram getPinMissLatency() {
+        return pinMissLatency;
+    }
+
+    public LatencyHistogram getPickVictimLatency() {
+        return pickVictimLatency;
+    }
+
+    public LatencyHistogram getDiskReadLatency() {
+        return diskReadLatency;
+    }
+
+    public LatencyHistogram getDiskWriteLatency() {
+        return diskWriteLatency;
+    }
+
+    /**
+     * Sets the pool's counters and latencies back to zero; the disk
+     * manager's counters are left.
+     */
+    public void reset() {
+        snapshotAndReset();
+        pinHitLatency.reset();
+        pinMissLatency.reset();
+        pickVictimLatency.reset();
+        diskReadLatency.reset();
+        diskWriteLatency.reset();
+    }
+
+    /**
+     * Adds the percentiles of one latency.
+     */
+    protected static void addLatencies(Map<String, Long> latencies, String name,
+            LatencyHistogram histogram) {
+        latencies.put(name + ".count", histogram.getCount());
+        latencies.put(name + ".p50", histogram.getPercentile(0.5));
+        latencies.put(name + ".p99", histogram.getPercentile(0.99));
+        latencies.put(name + ".p999", histogram.getPercentile(0.999));
+        latencies.put(name + ".max", histogram.getMax());
+    }
+
+    /**
+     * Gets the pool's counters.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(hits.sum(), misses.sum(), evictions.sum(),
+            dirtyVictimWrites.sum(), pageReads.sum(), pageWrites.sum(),
+            writesSaved.sum());
+    }
+
+    /**
+     * Gets the pool's counters and sets them back to zero, so that no count
+     * falls between the two.
+     */
+    public Snapshot snapshotAndReset() {
+        return new Snapshot(hits.sumThenReset(), misses.sumThenReset(),
+            evictions.sumThenReset(), dirtyVictimWrites.sumThenReset(),
+            pageReads.sumThenReset(), pageWrites.sumThenReset(),
+            writesSaved.sumThenReset());
+    }
+
+    /**
+     * Registers these counters with the platform MBean server, under
+     * bufmgr:type=BufferPool,name=the given name, replacing any registration
+     * of them under another name.
+     *
+     * @throws IllegalStateException if the name is taken or not valid
+     */
+    public synchronized void register(String name) {
+        unregister();
+        try {
+            ObjectName on = new ObjectName(JMX_TYPE + ",name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, on);
+            jmxName = on;
+        } catch (JMException exc) {
+            throw new IllegalStateException("Cannot register buffer pool " + name, exc);
+        }
+    }
+
+    /**
+     * Removes these counters from the platform MBean server, if registered.
+     */
+    public synchronized void unregister() {
+        if (jmxName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(jmxName);
+        } catch (JMException exc) {
+            // already gone
+        }
+        jmxName = null;
+    }
+
+    // --------------------------------------------------------------------------
+
+    /**
+     * The pool's counters at one time.
+     */
+    public static class Snapshot {
+
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final long dirtyVictimWrites;
+        public final long pageReads;
+        public final long pageWrites;
+        public final long writesSaved;
+
+        Snapshot(long hits, long misses, long evictions, long dirtyVictimWrites,
+                long pageReads, long pageWrites, long writesSaved) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.dirtyVictimWrites = dirtyVictimWrites;
+            this.pageReads = pageReads;
+            this.pageWrites = pageWrites;
+            this.writesSaved = writesSaved;
+        }
+
+        /**
+         * Gets hits over hits and misses, or 0 before any.
+         */
+        public double hitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        public String toString() {
+            return "hits " + hits + ", misses " + misses + ", evictions " + evictions
+                + ", dirty victim writes " + dirtyVictimWrites + ", page reads "
+                + pageReads + ", page writes " + pageWrites + ", writes saved "
+                + writesSaved;
+        }
+
+    } // public static class Snapshot
+
+} // public class BufferStats implements BufferStatsMXBean
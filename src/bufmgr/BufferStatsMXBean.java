@@ -0,0 +1,47 @@
+package bufmgr;
+
+import java.util.Map;
+
+/**
+ * Management interface of a buffer pool's statistics, for JMX; see
+ * BufferStats.
+ */
+public interface BufferStatsMXBean {
+
+    long getHits();
+
+    long getMisses();
+
+    double getHitRatio();
+
+    long getEvictions();
+
+    long getDirtyVictimWrites();
+
+    long getPageReads();
+
+    long getPageWrites();
+
+    long getWritesSaved();
+
+    long getDiskReads();
+
+    long getDiskWrites();
+
+    int getPinnedFrames();
+
+    int getNumBuffers();
+
+    String getPolicy();
+
+    Map<String, Long> getPolicyCounters();
+
+    boolean isTiming();
+
+    void setTiming(boolean timing);
+
+    Map<String, Long> getLatencies();
+
+    void reset();
+
+} // public interface BufferStatsMXBean
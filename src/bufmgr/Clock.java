@@ -28,7 +28,7 @@ class Clock extends Replacer {
      * Class constructor.
      */
    
-    public Clock(BufMgr mgrArg) {
+    public Clock(BufferManager mgrArg) {
       
         super(mgrArg);
         //Get the buffer size
@@ -80,7 +80,7 @@ class Clock extends Replacer {
      *    return -1 if failed
      */
    
-    public int pickVictim() {
+    public synchronized int pickVictim() {
 
         int i=0;
         while (i <= 2 * numberOfBuffers){
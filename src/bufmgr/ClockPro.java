@@ -0,0 +1,512 @@
+
+package bufmgr;
+
+/**
+ * CLOCK-Pro replacement policy (Jiang, Chen and Zhang).
+ * <p>
+ * An approximation of LIRS with clock hands. Resident pages are hot or cold,
+ * and a cold page is in its test period for a while after it is read in; a
+ * cold page evicted during its test period stays on the clock as a
+ * non-resident test page. A cold page referenced again within its test period
+ * has a short reuse distance, so it becomes hot; a miss on a test page does
+ * the same and grows the target number of cold pages, while a test period
+ * that runs out shrinks it. Three hands go around one circular list: the cold
+ * hand finds victims and promotes referenced cold pages, the hot hand demotes
+ * unreferenced hot pages, and both it and the test hand end test periods as
+ * they pass. A loop slightly larger than the pool, such as the inner relation
+ * of a nested-loop join, then keeps most of its pages hot instead of missing
+ * on every one.
+ * <p>
+ * Nodes below numbufs are the frames, whose hot/cold state lives in
+ * FrameDesc.state as in Clock; the metadata for test pages is a bounded area
+ * of numbufs more nodes. The cold hand passes over pinned pages, and over
+ * hot and test pages, so an eviction costs about the size of the clock over
+ * the number of cold pages; the cold target never drops below 1% of the pool.
+ */
+class ClockPro extends Replacer {
+
+    //
+    // Frame State Constants
+    //
+    protected static final int AVAILABLE = 10;
+    protected static final int HOT = 13;
+    protected static final int COLD = 14;
+
+    /** Ends the chain of links, and marks an empty clock. */
+    protected static final int NONE = -1;
+
+    /** Number of frames, and of test page nodes. */
+    protected final int numbufs;
+
+    /** Target number of cold pages (m_c); adapted by test periods. */
+    protected int coldTarget;
+
+    /** Least cold target, so the cold hand never has to go far. */
+    protected final int minCold;
+
+    /** Number of hot, resident cold and test pages on the clock. */
+    protected int countHot;
+    protected int countCold;
+    protected int countTest;
+
+    /** The three clock hands. */
+    protected int handHot;
+    protected int handCold;
+    protected int handTest;
+
+    /** Circular links of frame nodes, then test page nodes. */
+    protected int[] prev;
+    protected int[] next;
+
+    /** Reference bits of the frames. */
+    protected boolean[] ref;
+
+    /** Whether each resident cold page is in its test period. */
+    protected boolean[] inTest;
+
+    /** Page held by each frame, or INVALID_PAGEID. */
+    protected int[] residentPid;
+
+    /** Page remembered by each test page node. */
+    protected int[] testPid;
+
+    /** Maps test pages to their nodes. */
+    protected PageTable tests;
+
+    /** Empty frames. */
+    protected FrameList availableFrames;
+
+    /** Unused test page nodes, offset by numbufs. */
+    protected FrameList freeTests;
+
+    /**
+     * Class constructor.
+     */
+    public ClockPro(BufferManager mgrArg) {
+        super(mgrArg);
+        numbufs = mgrArg.getNumBuffers();
+        // like LIRS, keep at least about 1% of the pool for cold pages
+        minCold = Math.max(1, numbufs / 100);
+        coldTarget = minCold;
+        prev = new int[2 * numbufs];
+        next = new int[2 * numbufs];
+        ref = new boolean[numbufs];
+        inTest = new boolean[numbufs];
+        residentPid = new int[numbufs];
+        testPid = new int[numbufs];
+        tests = new PageTable(numbufs, 1);
+        availableFrames = new FrameList(numbufs);
+        freeTests = new FrameList(numbufs);
+        for (int i = 0; i < numbufs; i++) {
+            frametab[i].state = AVAILABLE;
+            residentPid[i] = INVALID_PAGEID;
+            availableFrames.addLast(i);
+            freeTests.addLast(i);
+        }
+        for (int i = 0; i < 2 * numbufs; i++) {
+            prev[i] = NONE;
+            next[i] = NONE;
+        }
+        handHot = NONE;
+        handCold = NONE;
+        handTest = NONE;
+    }
+
+    /**
+     * Notifies the replacer of a new page.
+     */
+    public synchronized void newPage(FrameDesc fdesc) {
+        // no need to update frame state
+    }
+
+    /**
+     * Notifies the replacer of a free page.
+     */
+    public synchronized void freePage(FrameDesc fdesc) {
+        int f = fdesc.index;
+        detach(f);
+        residentPid[f] = INVALID_PAGEID;
+        availableFrames.addLast(f);
+    }
+
+    /**
+     * Notifies the replacer of a pined page.
+     */
+    public synchronized void pinPage(FrameDesc fdesc) {
+        int f = fdesc.index;
+        int pid = fdesc.pageno.pid;
+        if (residentPid[f] == pid) {
+            // a hit only sets the reference bit
+            ref[f] = true;
+            return;
+        }
+
+        // a page fault: the new page goes in front of the hot hand
+        detach(f);
+        availableFrames.remove(f);
+        residentPid[f] = pid;
+        int t = tests.get(pid);
+        if (t != PageTable.NOT_FOUND) {
+            // reused within its test period, so it is hot; more cold pages
+            // would have kept it resident
+            if (coldTarget < numbufs) {
+                coldTarget++;
+            }
+            removeTest(t);
+            setHot(f);
+        } else if (countHot < numbufs - coldTarget) {
+            // until the hot pages take their share, every page is hot
+            setHot(f);
+        } else {
+            frametab[f].state = COLD;
+            inTest[f] = true;
+            countCold++;
+        }
+        link(f);
+        balanceHot();
+    }
+
+    /**
+     * Notifies the replacer of an unpinned page.
+     */
+    public synchronized void unpinPage(FrameDesc fdesc) {
+        // the reference bit was set when the page was pinned
+    }
+
+    /**
+     * Takes back a victim the buffer manager could not use: it is a cold
+     * page again, in the place of the test page left for it if that is still
+     * there, without counting as a reuse, or else just behind the cold hand,
+     * where it was.
+     */
+    protected synchronized void unpick(FrameDesc fdesc) {
+        int f = fdesc.index;
+        int pid = fdesc.pageno.pid;
+        if (pid == INVALID_PAGEID) {
+            freePage(fdesc);
+            return;
+        }
+        if (residentPid[f] == pid) {
+            // pinned again since it was picked, which put it back
+            return;
+        }
+        residentPid[f] = pid;
+        frametab[f].state = COLD;
+        ref[f] = false;
+        countCold++;
+        int t = tests.get(pid);
+        if (t != PageTable.NOT_FOUND) {
+            tests.remove(pid);
+            freeTests.addLast(t - numbufs);
+            countTest--;
+            replace(t, f);
+            inTest[f] = true;
+        } else {
+            inTest[f] = false;
+            linkBefore(f, handCold);
+        }
+    }
+
+    /**
+     * Finding a free frame in the buffer pool
+     * or choosing a page to replace using your policy
+     *
+     * @return  return the frame number
+     *      return -1 if failed
+     */
+    public synchronized int pickVictim() {
+        //check if any frame is empty
+        int f = availableFrames.removeFirst();
+        if (f != FrameList.NONE) {
+            return f;
+        }
+
+        // a referenced cold page only gets one more turn, so the cold hand
+        // keeps going around only if every cold page is pinned; then it has
+        // the hot hand demote another page, which it may also find pinned
+        int circle = countHot + countCold + countTest;
+        int idle = 0;
+        for (int steps = 0; steps < 4 * circle + 1 && handCold != NONE; steps++) {
+            if (idle > circle) {
+                demoteHot();
+                idle = 0;
+            }
+            int node = handCold;
+            handCold = next[handCold];
+            if (node >= numbufs || frametab[node].state != COLD || frametab[node].pincnt != 0) {
+                idle++;
+                continue;
+            }
+            idle = 0;
+            if (ref[node]) {
+                // referenced again: hot if within its test period, otherwise
+                // it starts a new one
+                ref[node] = false;
+                if (inTest[node]) {
+                    inTest[node] = false;
+                    countCold--;
+                    setHot(node);
+                } else {
+                    inTest[node] = true;
+                }
+                moveToHead(node);
+                balanceHot();
+            } else {
+                // evict it, keeping its page as a test page if still in test
+                if (inTest[node]) {
+                    makeTest(node);
+                } else {
+                    detach(node);
+                }
+                residentPid[node] = INVALID_PAGEID;
+                return node;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Runs the hot hand until hot pages fit beside the cold target.
+     */
+    protected void balanceHot() {
+        while (countHot > numbufs - coldTarget && handHot != NONE) {
+            runHandHot();
+        }
+    }
+
+    /**
+     * Runs the hot hand until it demotes an unpinned page, or has been
+     * around twice.
+     */
+    protected void demoteHot() {
+        int limit = 2 * (countHot + countCold + countTest) + 1;
+        for (int i = 0; i < limit && handHot != NONE; i++) {
+            int node = runHandHot();
+            if (node != NONE && frametab[node].pincnt == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Advances the hot hand past one node: an unreferenced hot page becomes
+     * cold, and a test period there ends.
+     *
+     * @return the page made cold, or NONE
+     */
+    protected int runHandHot() {
+        if (handHot == handTest) {
+            // the test hand goes first, then the hot hand still moves on, or
+            // on a clock of one node they would stay together for ever
+            runHandTest();
+            if (handHot == NONE) {
+                return NONE;
+            }
+        }
+        int node = handHot;
+        if (node >= numbufs) {
+            endTest(node);
+            return NONE;
+        }
+        int demoted = NONE;
+        if (frametab[node].state == HOT) {
+            if (ref[node]) {
+                ref[node] = false;
+            } else {
+                frametab[node].state = COLD;
+                inTest[node] = false;
+                countHot--;
+                countCold++;
+                demoted = node;
+            }
+        } else if (inTest[node]) {
+            endTest(node);
+        }
+        handHot = next[handHot];
+        return demoted;
+    }
+
+    /**
+     * Advances the test hand past one node, ending a test period there.
+     */
+    protected void runHandTest() {
+        int node = handTest;
+        if (node >= numbufs) {
+            endTest(node);
+        } else {
+            if (frametab[node].state == COLD && inTest[node]) {
+                endTest(node);
+            }
+            handTest = next[handTest];
+        }
+    }
+
+    /**
+     * Ends a test period that ran out without a reuse: fewer cold pages
+     * would have done. A test page leaves the clock altogether.
+     */
+    protected void endTest(int node) {
+        if (coldTarget > minCold) {
+            coldTarget--;
+        }
+        if (node >= numbufs) {
+            removeTest(node);
+        } else {
+            inTest[node] = false;
+        }
+    }
+
+    /**
+     * Replaces a cold frame on the clock with a test page for its page.
+     */
+    protected void makeTest(int f) {
+        while (freeTests.isEmpty()) {
+            runHandTest();
+        }
+        int t = numbufs + freeTests.removeFirst();
+        testPid[t - numbufs] = residentPid[f];
+        tests.putIfAbsent(residentPid[f], t);
+        replace(f, t);
+        countCold--;
+        countTest++;
+        frametab[f].state = AVAILABLE;
+        inTest[f] = false;
+        ref[f] = false;
+    }
+
+    /**
+     * Takes a test page off the clock and frees its node.
+     */
+    protected void removeTest(int t) {
+        unlink(t);
+        tests.remove(testPid[t - numbufs]);
+        freeTests.addLast(t - numbufs);
+        countTest--;
+    }
+
+    /**
+     * Makes a frame hot.
+     */
+    protected void setHot(int f) {
+        frametab[f].state = HOT;
+        inTest[f] = false;
+        ref[f] = false;
+        countHot++;
+    }
+
+    /**
+     * Takes a frame off the clock, if it is on it.
+     */
+    protected void detach(int f) {
+        if (next[f] == NONE) {
+            return;
+        }
+        unlink(f);
+        if (frametab[f].state == HOT) {
+            countHot--;
+        } else if (frametab[f].state == COLD) {
+            countCold--;
+        }
+        frametab[f].state = AVAILABLE;
+        inTest[f] = false;
+        ref[f] = false;
+    }
+
+    /**
+     * Moves a node to the head of the list.
+     */
+    protected void moveToHead(int node) {
+        if (next[node] != node && node != handHot) {
+            unlink(node);
+            link(node);
+        }
+    }
+
+    /**
+     * Inserts a node at the head of the list, just behind the hot hand.
+     */
+    protected void link(int node) {
+        if (handHot == NONE) {
+            prev[node] = node;
+            next[node] = node;
+            handHot = node;
+            handCold = node;
+            handTest = node;
+            return;
+        }
+        int p = prev[handHot];
+        next[p] = node;
+        prev[node] = p;
+        next[node] = handHot;
+        prev[handHot] = node;
+    }
+
+    /**
+     * Inserts a node just before another, or at the head of the list if that
+     * is NONE.
+     */
+    protected void linkBefore(int node, int at) {
+        if (at == NONE) {
+            link(node);
+            return;
+        }
+        int p = prev[at];
+        next[p] = node;
+        prev[node] = p;
+        next[node] = at;
+        prev[at] = node;
+    }
+
+    /**
+     * Removes a node; hands on it move on to the next node.
+     */
+    protected void unlink(int node) {
+        int n = next[node];
+        if (n == node) {
+            handHot = NONE;
+            handCold = NONE;
+            handTest = NONE;
+        } else {
+            next[prev[node]] = n;
+            prev[n] = prev[node];
+            if (handHot == node) {
+                handHot = n;
+            }
+            if (handCold == node) {
+                handCold = n;
+            }
+            if (handTest == node) {
+                handTest = n;
+            }
+        }
+        prev[node] = NONE;
+        next[node] = NONE;
+    }
+
+    /**
+     * Puts a node in another's place on the clock, hands included.
+     */
+    protected void replace(int old, int node) {
+        if (next[old] == old) {
+            prev[node] = node;
+            next[node] = node;
+        } else {
+            prev[node] = prev[old];
+            next[node] = next[old];
+            next[prev[old]] = node;
+            prev[next[old]] = node;
+        }
+        if (handHot == old) {
+            handHot = node;
+        }
+        if (handCold == old) {
+            handCold = node;
+        }
+        if (handTest == old) {
+            handTest = node;
+        }
+        prev[old] = NONE;
+        next[old] = NONE;
+    }
+
+} // class ClockPro extends Replacer
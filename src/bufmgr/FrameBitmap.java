@@ -0,0 +1,96 @@
+package bufmgr;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A set of frame numbers as a bitmap whose bits are set and cleared
+ * atomically, so threads can update it without a lock. Reading it while it
+ * changes sees each bit either before or after a change.
+ */
+class FrameBitmap {
+
+    /** The bits, 64 frames to a word. */
+    private final AtomicLongArray words;
+
+    /** Number of frames. */
+    private final int numframes;
+
+    // --------------------------------------------------------------------------
+
+    /**
+     * Constructs an empty bitmap for the given number of frames.
+     */
+    public FrameBitmap(int numframes) {
+        this.numframes = numframes;
+        words = new AtomicLongArray((numframes + 63) >>> 6);
+    }
+
+    /**
+     * Adds the frame to the set.
+     */
+    public void set(int frameno) {
+        long bit = 1L << frameno;
+        int i = frameno >>> 6;
+        for (;;) {
+            long word = words.get(i);
+            if ((word & bit) != 0 || words.compareAndSet(i, word, word | bit)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Takes the frame out of the set.
+     */
+    public void clear(int frameno) {
+        long bit = 1L << frameno;
+        int i = frameno >>> 6;
+        for (;;) {
+            long word = words.get(i);
+            if ((word & bit) == 0 || words.compareAndSet(i, word, word & ~bit)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tells whether the frame is in the set.
+     */
+    public boolean get(int frameno) {
+        return (words.get(frameno >>> 6) & (1L << frameno)) != 0;
+    }
+
+    /**
+     * Gets the first frame in the set at or after the given one.
+     *
+     * @return the frame number, or -1 if there is none
+     */
+    public int nextSetBit(int from) {
+        if (from >= numframes) {
+            return -1;
+        }
+        int i = from >>> 6;
+        long word = words.get(i) & (-1L << from);
+        for (;;) {
+            if (word != 0) {
+                return (i << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++i >= words.length()) {
+                return -1;
+            }
+            word = words.get(i);
+        }
+    }
+
+    /**
+     * Gets the number of frames in the set.
+     */
+    public int cardinality() {
+        int count = 0;
+        for (int i = 0; i < words.length(); i++) {
+            count += Long.bitCount(words.get(i));
+        }
+        return count;
+    }
+
+} // class FrameBitmap
@@ -1,26 +1,42 @@
 package bufmgr;
 
 import global.PageId;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * A frame descriptor; contains info about each page in the buffer pool.
  */
 class FrameDesc {
 
+    /** Pin count of a frame that is being loaded, evicted or freed. */
+    static final int LATCHED = -1;
+
+    /** Atomic access to the pin count, so hits never need the latch. */
+    static final AtomicIntegerFieldUpdater<FrameDesc> PINCNT =
+        AtomicIntegerFieldUpdater.newUpdater(FrameDesc.class, "pincnt");
+
     /** Index in the buffer pool. */
     public int index;
-    
+
     /** Identifies the frame's page. */
     public PageId pageno;
 
-    /** The frame's pin count. */
-    public int pincnt;
+    /** The frame's pin count; LATCHED while the frame changes pages. */
+    public volatile int pincnt;
 
     /** The frame's dirty status. */
-    public boolean dirty;
+    public volatile boolean dirty;
 
     /** Generic state used by replacers. */
-    public int state;
+    public volatile int state;
+
+    /** Held while the frame's page is being replaced, written or freed. */
+    final ReentrantLock latch;
+
+    /** Set while the page was read ahead and has not been pinned since. */
+    final AtomicBoolean prefetched;
 
     // --------------------------------------------------------------------------
 
@@ -33,6 +49,47 @@ class FrameDesc {
         pincnt = 0;
         dirty = false;
         state = 0;
+        latch = new ReentrantLock();
+        prefetched = new AtomicBoolean();
+    }
+
+    /**
+     * Adds a pin to the frame if it is not latched.
+     *
+     * @return false if the frame is being loaded, evicted or freed
+     */
+    boolean tryPin() {
+        for (;;) {
+            int cnt = pincnt;
+            if (cnt < 0)
+                return false;
+            if (PINCNT.compareAndSet(this, cnt, cnt + 1))
+                return true;
+        }
+    }
+
+    /**
+     * Removes a pin from the frame.
+     *
+     * @return the remaining pin count, or -1 if the frame was not pinned
+     */
+    int unpin() {
+        for (;;) {
+            int cnt = pincnt;
+            if (cnt <= 0)
+                return -1;
+            if (PINCNT.compareAndSet(this, cnt, cnt - 1))
+                return cnt - 1;
+        }
+    }
+
+    /**
+     * Claims an unpinned frame for exclusive use by the buffer manager.
+     *
+     * @return false if the frame is pinned or already claimed
+     */
+    boolean tryClaim() {
+        return PINCNT.compareAndSet(this, 0, LATCHED);
     }
 
 } // class FrameDesc
@@ -0,0 +1,180 @@
+package bufmgr;
+
+import java.util.Arrays;
+
+/**
+ * A doubly-linked list of frame numbers whose links live in primitive arrays
+ * indexed by FrameDesc.index, so every operation is O(1) and nothing is boxed
+ * or allocated. A frame is either on the list once or not at all.
+ */
+class FrameList {
+
+    /** Returned when the list is empty, and ends the chain of links. */
+    static final int NONE = -1;
+
+    /** Link value of a frame that is not on the list. */
+    private static final int UNLINKED = -2;
+
+    /** Previous and next frame numbers, towards the head and the tail. */
+    private final int[] prev;
+    private final int[] next;
+
+    /** Oldest and newest frames on the list. */
+    private int head;
+    private int tail;
+
+    /** Number of frames on the list. */
+    private int size;
+
+    // --------------------------------------------------------------------------
+
+    /**
+     * Constructs an empty list for the given number of frames.
+     */
+    public FrameList(int numframes) {
+        prev = new int[numframes];
+        next = new int[numframes];
+        Arrays.fill(prev, UNLINKED);
+        Arrays.fill(next, UNLINKED);
+        head = NONE;
+        tail = NONE;
+        size = 0;
+    }
+
+    /**
+     * Tells whether the frame is on the list.
+     */
+    public boolean contains(int frameno) {
+        return next[frameno] != UNLINKED;
+    }
+
+    /**
+     * Appends the frame at the tail, moving it there if already on the list.
+     */
+    public void addLast(int frameno) {
+        remove(frameno);
+        prev[frameno] = tail;
+        next[frameno] = NONE;
+        if (tail == NONE) {
+            head = frameno;
+        } else {
+            next[tail] = frameno;
+        }
+        tail = frameno;
+        size++;
+    }
+
+    /**
+     * Inserts the frame at the head, moving it there if already on the list.
+     */
+    public void addFirst(int frameno) {
+        remove(frameno);
+        prev[frameno] = NONE;
+        next[frameno] = head;
+        if (head == NONE) {
+            tail = frameno;
+        } else {
+            prev[head] = frameno;
+        }
+        head = frameno;
+        size++;
+    }
+
+    /**
+     * Takes the frame off the list.
+     *
+     * @return false if it was not on the list
+     */
+    public boolean remove(int frameno) {
+        if (next[frameno] == UNLINKED) {
+            return false;
+        }
+        int p = prev[frameno];
+        int n = next[frameno];
+        if (p == NONE) {
+            head = n;
+        } else {
+            next[p] = n;
+        }
+        if (n == NONE) {
+            tail = p;
+        } else {
+            prev[n] = p;
+        }
+        prev[frameno] = UNLINKED;
+        next[frameno] = UNLINKED;
+        size--;
+        return true;
+    }
+
+    /**
+     * Puts another frame, not on the list, in the place of one that is.
+     */
+    public void replace(int frameno, int other) {
+        int p = prev[frameno];
+        int n = next[frameno];
+        prev[other] = p;
+        next[other] = n;
+        if (p == NONE) {
+            head = other;
+        } else {
+            next[p] = other;
+        }
+        if (n == NONE) {
+            tail = other;
+        } else {
+            prev[n] = other;
+        }
+        prev[frameno] = UNLINKED;
+        next[frameno] = UNLINKED;
+    }
+
+    /**
+     * Takes the frame at the head off the list.
+     *
+     * @return the frame number, or NONE if the list is empty
+     */
+    public int removeFirst() {
+        int frameno = head;
+        if (frameno != NONE) {
+            remove(frameno);
+        }
+        return frameno;
+    }
+
+    /**
+     * Gets the frame at the head, or NONE if the list is empty.
+     */
+    public int first() {
+        return head;
+    }
+
+    /**
+     * Gets the frame at the tail, or NONE if the list is empty.
+     */
+    public int last() {
+        return tail;
+    }
+
+    /**
+     * Gets the frame after the given one, towards the tail, or NONE.
+     */
+    public int next(int frameno) {
+        return next[frameno];
+    }
+
+    /**
+     * Gets the number of frames on the list.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Tells whether the list is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+} // class FrameList
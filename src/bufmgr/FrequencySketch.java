@@ -0,0 +1,133 @@
+package bufmgr;
+
+/**
+ * An approximate count of how often each page was pinned lately, for TinyLfu.
+ * <p>
+ * A count-min sketch of 4-bit counters, sixteen to a long, with four counters
+ * per page; a page's estimate is the least of its four. Only the least
+ * counters are raised (conservative update), and after a sample of ten pins
+ * per frame every counter is halved, so old popularity fades. In front of it,
+ * a doorkeeper bloom filter absorbs the first pin of each page, so the many
+ * pages pinned only once never reach the counters. Altogether it uses about
+ * nine bytes per frame, whatever the number of pages.
+ */
+class FrequencySketch {
+
+    /** Largest value of a counter. */
+    static final int MAX_COUNT = 15;
+
+    /** Multipliers picking each page's counters, one per row. */
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+        0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+
+    /** The counters, sixteen to a long. */
+    private final long[] table;
+
+    /** Doorkeeper bits. */
+    private final long[] doorkeeper;
+
+    /** Number of increments before the counters are halved. */
+    private final int sampleSize;
+
+    /** Increments since the counters were last halved. */
+    private int additions;
+
+    // --------------------------------------------------------------------------
+
+    /**
+     * Constructs a sketch for a pool of the given number of frames.
+     */
+    public FrequencySketch(int numframes) {
+        int size = Integer.highestOneBit(Math.max(numframes, 8) - 1) << 1;
+        table = new long[size];
+        doorkeeper = new long[size / 8];
+        sampleSize = 10 * Math.max(numframes, 1);
+        additions = 0;
+    }
+
+    /**
+     * Gets the page's estimated number of recent pins, at most MAX_COUNT + 1.
+     */
+    public int frequency(int pid) {
+        int freq = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            freq = Math.min(freq, counter(index(pid, i)));
+        }
+        return inDoorkeeper(pid) ? freq + 1 : freq;
+    }
+
+    /**
+     * Records a pin of the page.
+     */
+    public void increment(int pid) {
+        if (!inDoorkeeper(pid)) {
+            // first pin since the last reset
+            addToDoorkeeper(pid);
+        } else {
+            int min = MAX_COUNT;
+            for (int i = 0; i < SEEDS.length; i++) {
+                min = Math.min(min, counter(index(pid, i)));
+            }
+            if (min == MAX_COUNT) {
+                return;
+            }
+            for (int i = 0; i < SEEDS.length; i++) {
+                int idx = index(pid, i);
+                if (counter(idx) == min) {
+                    table[idx >>> 4] += 1L << ((idx & 15) << 2);
+                }
+            }
+        }
+        if (++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Halves every counter and clears the doorkeeper.
+     */
+    protected void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+        }
+        for (int i = 0; i < doorkeeper.length; i++) {
+            doorkeeper[i] = 0L;
+        }
+        additions = additions >>> 1;
+    }
+
+    /**
+     * Gets the value of a counter.
+     */
+    private int counter(int idx) {
+        return (int) (table[idx >>> 4] >>> ((idx & 15) << 2)) & MAX_COUNT;
+    }
+
+    /**
+     * Gets the index of the page's counter in the given row.
+     */
+    private int index(int pid, int row) {
+        long h = (pid + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return (int) h & ((table.length << 4) - 1);
+    }
+
+    private boolean inDoorkeeper(int pid) {
+        int bits = doorkeeper.length << 6;
+        int a = index(pid, 0) & (bits - 1);
+        int b = index(pid, 1) & (bits - 1);
+        return (doorkeeper[a >>> 6] & (1L << a)) != 0
+            && (doorkeeper[b >>> 6] & (1L << b)) != 0;
+    }
+
+    private void addToDoorkeeper(int pid) {
+        int bits = doorkeeper.length << 6;
+        int a = index(pid, 0) & (bits - 1);
+        int b = index(pid, 1) & (bits - 1);
+        doorkeeper[a >>> 6] |= 1L << a;
+        doorkeeper[b >>> 6] |= 1L << b;
+    }
+
+} // class FrequencySketch
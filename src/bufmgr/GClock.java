@@ -0,0 +1,121 @@
+
+package bufmgr;
+
+/**
+ * Generalized clock (GCLOCK) replacement policy.
+ * <p>
+ * Like Clock, but instead of one reference bit each frame has a small usage
+ * count, kept in FrameDesc.state, that every pin raises up to a maximum and
+ * every pass of the hand lowers by one. A page pinned thousands of times
+ * survives several sweeps; a page pinned once survives one. Pins only store
+ * to the frame's own state, without a lock, so concurrent hits stay cheap; a
+ * lost update just costs the page one usage.
+ */
+class GClock extends Replacer {
+
+    /** Default maximum usage count. */
+    public static final int DEFAULT_MAX_USAGE = 5;
+
+    /** Usage count never goes above this. */
+    protected final int maxUsage;
+
+    /** Clock head. */
+    protected int head;
+    //Buffer size
+    int numberOfBuffers;
+
+    /**
+     * Constructs a GCLOCK replacer with the default maximum usage count.
+     */
+    public GClock(BufferManager mgrArg) {
+        this(mgrArg, DEFAULT_MAX_USAGE);
+    }
+
+    /**
+     * Class constructor.
+     *
+     * @param maxUsage maximum usage count of a frame
+     */
+    public GClock(BufferManager mgrArg, int maxUsage) {
+
+        super(mgrArg);
+        this.maxUsage = Math.max(1, maxUsage);
+        //Get the buffer size
+        numberOfBuffers = mgrArg.getNumBuffers();
+
+        // Initialize the usage counts
+        for (int i = 0; i < frametab.length; i++) {
+            frametab[i].state = 0;
+        }
+
+        // Initialize the clock head
+        head = -1;
+    }
+
+    /**
+     * Notifies the replacer of a new page.
+     */
+    public void newPage(FrameDesc fdesc) {
+        // no need to update frame state
+    }
+
+    /**
+     * Notifies the replacer of a free page.
+     */
+    public void freePage(FrameDesc fdesc) {
+        fdesc.state = 0;
+    }
+
+    /**
+     * Notifies the replacer of a pined page.
+     */
+    public void pinPage(FrameDesc fdesc) {
+        int usage = fdesc.state;
+        if (usage < maxUsage) {
+            fdesc.state = usage + 1;
+        }
+    }
+
+    /**
+     * Notifies the replacer of an unpinned page.
+     */
+    public void unpinPage(FrameDesc fdesc) {
+        // the usage count was raised when the page was pinned
+    }
+
+    /**
+     * Takes back a victim the buffer manager could not use. Its usage count
+     * is already zero, and stays so rather than being raised as by a pin.
+     */
+    protected void unpick(FrameDesc fdesc) {
+        // the hand only picks frames whose count has run down
+    }
+
+    /**
+     * Finding a free frame in the buffer pool
+     * or choosing a page to replace using your policy
+     *
+     * @return  return the frame number
+     *    return -1 if failed
+     */
+    public synchronized int pickVictim() {
+
+        // every unpinned frame reaches zero within maxUsage + 1 turns
+        int sweep = (maxUsage + 1) * numberOfBuffers;
+        for (int i = 0; i <= sweep; i++) {
+            head = (head + 1) % numberOfBuffers;
+            FrameDesc fdesc = frametab[head];
+            if (fdesc.pincnt != 0) {
+                continue;
+            }
+            int usage = fdesc.state;
+            if (usage == 0) {
+                return head;
+            }
+            fdesc.state = usage - 1;
+        }
+        //Buffer pool full
+        return -1;
+    }
+
+} // class GClock extends Replacer
@@ -0,0 +1,135 @@
+package bufmgr;
+
+/**
+ * A bounded list of pages that are no longer in the buffer pool, oldest
+ * first, for replacers that remember something about evicted pages. Each page
+ * is given a slot number below the capacity, which the replacer can use to
+ * index its own per-page metadata arrays. When the list is full, adding a
+ * page forgets the oldest one and reuses its slot.
+ */
+class GhostList {
+
+    /** Returned when a page or slot is not found. */
+    static final int NONE = -1;
+
+    /** Maps page numbers to slots. */
+    private final PageTable slots;
+
+    /** Page number held in each slot. */
+    private final int[] pids;
+
+    /** Slots in use, oldest first. */
+    private final FrameList order;
+
+    /** Slots not in use. */
+    private final FrameList free;
+
+    // --------------------------------------------------------------------------
+
+    /**
+     * Constructs an empty list holding at most the given number of pages.
+     */
+    public GhostList(int capacity) {
+        capacity = Math.max(capacity, 1);
+        slots = new PageTable(capacity, 1);
+        pids = new int[capacity];
+        order = new FrameList(capacity);
+        free = new FrameList(capacity);
+        for (int i = 0; i < capacity; i++) {
+            pids[i] = NONE;
+            free.addLast(i);
+        }
+    }
+
+    /**
+     * Adds the page as the newest entry, or makes it the newest if present.
+     *
+     * @return the page's slot
+     */
+    public int add(int pid) {
+        int slot = slots.get(pid);
+        if (slot == PageTable.NOT_FOUND) {
+            if (free.isEmpty()) {
+                removeOldest();
+            }
+            slot = free.removeFirst();
+            pids[slot] = pid;
+            slots.putIfAbsent(pid, slot);
+        }
+        order.addLast(slot);
+        return slot;
+    }
+
+    /**
+     * Gets the page's slot, or NONE if the page is not on the list.
+     */
+    public int slotOf(int pid) {
+        return slots.get(pid);
+    }
+
+    /**
+     * Tells whether the page is on the list.
+     */
+    public boolean contains(int pid) {
+        return slots.get(pid) != PageTable.NOT_FOUND;
+    }
+
+    /**
+     * Forgets the page. Its slot's metadata stays intact until the slot is
+     * handed out again.
+     *
+     * @return the page's former slot, or NONE if it was not on the list
+     */
+    public int remove(int pid) {
+        int slot = slots.remove(pid);
+        if (slot != PageTable.NOT_FOUND) {
+            order.remove(slot);
+            pids[slot] = NONE;
+            free.addLast(slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Gets the oldest page, or NONE if the list is empty.
+     */
+    public int oldest() {
+        int slot = order.first();
+        return slot == FrameList.NONE ? NONE : pids[slot];
+    }
+
+    /**
+     * Forgets the oldest page.
+     *
+     * @return the page number, or NONE if the list is empty
+     */
+    public int removeOldest() {
+        int pid = oldest();
+        if (pid != NONE) {
+            remove(pid);
+        }
+        return pid;
+    }
+
+    /**
+     * Gets the number of pages on the list.
+     */
+    public int size() {
+        return order.size();
+    }
+
+    /**
+     * Gets the maximum number of pages on the list.
+     */
+    public int capacity() {
+        return pids.length;
+    }
+
+    /**
+     * Tells whether adding a new page would forget the oldest one.
+     */
+    public boolean isFull() {
+        return free.isEmpty();
+    }
+
+} // class GhostList
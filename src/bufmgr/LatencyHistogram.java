@@ -0,0 +1,179 @@
+package bufmgr;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts latencies, in nanoseconds, in buckets of about 6% width, so that
+ * percentiles up to the maximum can be read back at any time.
+ * <p>
+ * Values under 16 have a bucket each; above that, every power of two is split
+ * into 16 buckets, up to 2^40 ns (about 18 minutes), and longer values go in
+ * the last bucket. A percentile is reported as the upper end of its bucket, so
+ * it is never understated by more than the width of a bucket. Recording
+ * allocates nothing and takes one atomic add; threads add to one of a few
+ * stripes of buckets, picked by thread, so that they rarely contend. Reading
+ * sums the stripes, and histograms can be added together.
+ */
+public class LatencyHistogram {
+
+    /** Buckets per power of two, as a power of two. */
+    protected static final int SUB_BITS = 4;
+    protected static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /** Highest power of two with buckets of its own. */
+    protected static final int MAX_EXPONENT = 40;
+
+    /** Number of buckets. */
+    protected static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS;
+
+    /** Number of stripes, a power of two. */
+    protected static final int STRIPES = Math.min(8,
+        Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors())));
+
+    /** Counts of each stripe, one stripe after another. */
+    protected final AtomicLongArray counts = new AtomicLongArray(STRIPES * BUCKETS);
+
+    /** Largest value recorded. */
+    protected final AtomicLong max = new AtomicLong();
+
+    // --------------------------------------------------------------------------
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos the latency, in nanoseconds; negative counts as 0
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        counts.incrementAndGet(stripe * BUCKETS + bucketOf(nanos));
+        // the maximum rarely changes, so this seldom writes
+        long m;
+        while (nanos > (m = max.get()) && !max.compareAndSet(m, nanos)) {
+        }
+    }
+
+    /**
+     * Adds another histogram's counts to this one's.
+     */
+    public void add(LatencyHistogram other) {
+        long[] theirs = other.bucketCounts();
+        for (int b = 0; b < BUCKETS; b++) {
+            if (theirs[b] != 0) {
+                counts.addAndGet(b, theirs[b]);
+            }
+        }
+        long m;
+        long om = other.getMax();
+        while (om > (m = max.get()) && !max.compareAndSet(m, om)) {
+        }
+    }
+
+    /**
+     * Sets every count back to zero.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        max.set(0);
+    }
+
+    /**
+     * Gets the number of latencies recorded.
+     */
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Gets the largest latency recorded, or 0 if none.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets the latency that the given share of the recorded ones are at or
+     * below, rounded up to the end of its bucket but not past the maximum.
+     *
+     * @param q the share, from 0 to 1, such as 0.99
+     * @return the latency in nanoseconds, or 0 if none are recorded
+     */
+    public long getPercentile(double q) {
+        long[] sums = bucketCounts();
+        long total = 0;
+        for (long c : sums) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += sums[b];
+            if (seen >= rank) {
+                // the last bucket has no upper end
+                return b == BUCKETS - 1 ? getMax() : Math.min(highestOf(b), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Formats the count, median, 99th and 99.9th percentiles and maximum.
+     */
+    public String toString() {
+        return "count " + getCount() + ", p50 " + getPercentile(0.5) + " ns, p99 "
+            + getPercentile(0.99) + " ns, p999 " + getPercentile(0.999)
+            + " ns, max " + getMax() + " ns";
+    }
+
+    /**
+     * Sums the stripes' counts of each bucket.
+     */
+    protected long[] bucketCounts() {
+        long[] sums = new long[BUCKETS];
+        for (int i = 0; i < counts.length(); i++) {
+            sums[i % BUCKETS] += counts.get(i);
+        }
+        return sums;
+    }
+
+    /**
+     * Gets the bucket of a latency.
+     */
+    protected static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exp > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (nanos >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exp - SUB_BITS) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Gets the highest latency in a bucket.
+     */
+    protected static long highestOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exp = SUB_BITS + (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        long sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (exp - SUB_BITS);
+        return (1L << exp) + (sub + 1) * width - 1;
+    }
+
+} // public class LatencyHistogram
@@ -0,0 +1,289 @@
+
+package bufmgr;
+
+import java.util.Map;
+
+/**
+ * LIRS (Low Inter-reference Recency Set) replacement policy (Jiang and Zhang).
+ * <p>
+ * Pages with a short reuse distance are LIR and hold most of the pool; the
+ * rest of the pool holds HIR pages, the only candidates for replacement. The
+ * stack S orders recently referenced pages, resident or not, by recency, and
+ * is pruned so that its bottom is always the least recent LIR page; a HIR
+ * page referenced again while still in S has been reused sooner than that
+ * page, so the two swap status. The queue Q holds the resident HIR pages, and
+ * the victim is the one at its front. A loop slightly larger than the pool,
+ * such as the inner relation of a nested-loop join, then keeps most of its
+ * pages resident as LIR pages instead of missing on every one.
+ * <p>
+ * S links frames and the non-resident HIR pages it remembers, which are
+ * bounded to numbufs, oldest dropped first, so memory stays proportional to
+ * the pool. Q holds only unpinned frames, in order of unpinning; if it is
+ * empty the least recent LIR pages are demoted to find a victim. Every
+ * operation is O(1) amortized.
+ */
+class Lirs extends Replacer {
+
+    //
+    // Frame State Constants
+    //
+    protected static final int AVAILABLE = 10;
+    protected static final int PINNED = 12;
+
+    /** Number of frames; non-resident pages use nodes from here up. */
+    protected final int numbufs;
+
+    /** Maximum number of LIR pages. */
+    protected final int lirLimit;
+
+    /** Number of LIR pages. */
+    protected int lirCount;
+
+    /** Page held by each frame, or INVALID_PAGEID. */
+    protected int[] residentPid;
+
+    /** Whether each resident page is LIR. */
+    protected boolean[] lir;
+
+    /** Empty frames. */
+    protected FrameList availableFrames;
+
+    /** Stack S of frames and non-resident page nodes, bottom first. */
+    protected FrameList stack;
+
+    /** Unpinned resident HIR frames, front first. */
+    protected FrameList queue;
+
+    /** Non-resident HIR pages in S; node is numbufs + slot. */
+    protected GhostList nonResident;
+
+    /** Misses on a non-resident HIR page still in S, which become LIR. */
+    protected long nonResidentHits;
+
+    /** Page of each non-resident slot. */
+    protected int[] nonResidentPid;
+
+    /**
+     * Class constructor.
+     */
+    public Lirs(BufferManager mgrArg) {
+        super(mgrArg);
+        numbufs = mgrArg.getNumBuffers();
+        // about 1% of the pool for resident HIR pages, as in the paper
+        lirLimit = Math.max(1, numbufs - Math.max(1, numbufs / 100));
+        residentPid = new int[numbufs];
+        lir = new boolean[numbufs];
+        availableFrames = new FrameList(numbufs);
+        stack = new FrameList(2 * numbufs);
+        queue = new FrameList(numbufs);
+        nonResident = new GhostList(numbufs);
+        nonResidentPid = new int[nonResident.capacity()];
+        for (int i = 0; i < numbufs; i++) {
+            frametab[i].state = AVAILABLE;
+            residentPid[i] = INVALID_PAGEID;
+            availableFrames.addLast(i);
+        }
+    }
+
+    /**
+     * Notifies the replacer of a new page.
+     */
+    public synchronized void newPage(FrameDesc fdesc) {
+        // no need to update frame state
+    }
+
+    /**
+     * Notifies the replacer of a free page.
+     */
+    public synchronized void freePage(FrameDesc fdesc) {
+        int f = fdesc.index;
+        fdesc.state = AVAILABLE;
+        if (residentPid[f] != INVALID_PAGEID && lir[f]) {
+            lirCount--;
+        }
+        lir[f] = false;
+        queue.remove(f);
+        stack.remove(f);
+        prune();
+        residentPid[f] = INVALID_PAGEID;
+        availableFrames.addLast(f);
+    }
+
+    /**
+     * Notifies the replacer of a pined page.
+     */
+    public synchronized void pinPage(FrameDesc fdesc) {
+        int f = fdesc.index;
+        int pid = fdesc.pageno.pid;
+        fdesc.state = PINNED;
+        availableFrames.remove(f);
+        queue.remove(f);
+
+        if (residentPid[f] == pid) {
+            if (!lir[f] && stack.contains(f)) {
+                // a HIR page reused within S is more recent than the bottom LIR
+                setLir(f);
+                stack.addLast(f);
+                demoteBottom();
+            } else {
+                stack.addLast(f);
+            }
+            prune();
+            return;
+        }
+
+        residentPid[f] = pid;
+        int slot = nonResident.slotOf(pid);
+        if (slot != GhostList.NONE) {
+            // reused while its node was still in S
+            stack.remove(numbufs + slot);
+            nonResidentHits++;
+            nonResident.remove(pid);
+            setLir(f);
+            stack.addLast(f);
+            demoteBottom();
+        } else if (lirCount < lirLimit) {
+            // until the LIR set is full, every page is LIR
+            setLir(f);
+            stack.addLast(f);
+        } else {
+            lir[f] = false;
+            stack.addLast(f);
+        }
+        prune();
+    }
+
+    /**
+     * Notifies the replacer of an unpinned page.
+     */
+    public synchronized void unpinPage(FrameDesc fdesc) {
+        if (fdesc.pincnt == 0) {
+            fdesc.state = AVAILABLE;
+            if (!lir[fdesc.index]) {
+                //most recently used goes to the end
+                queue.addLast(fdesc.index);
+            }
+        }
+    }
+
+    /**
+     * Takes back a victim the buffer manager could not use: it is a resident
+     * HIR page again, in the place in S of the node left for it if that is
+     * still there, without becoming LIR, and at the front of Q.
+     */
+    protected synchronized void unpick(FrameDesc fdesc) {
+        int f = fdesc.index;
+        int pid = fdesc.pageno.pid;
+        if (pid == INVALID_PAGEID) {
+            freePage(fdesc);
+            return;
+        }
+        if (residentPid[f] == pid) {
+            // pinned again since it was picked, which put it back
+            return;
+        }
+        residentPid[f] = pid;
+        lir[f] = false;
+        int slot = nonResident.remove(pid);
+        if (slot != GhostList.NONE && stack.contains(numbufs + slot)) {
+            stack.replace(numbufs + slot, f);
+        }
+        if (fdesc.pincnt == 0) {
+            fdesc.state = AVAILABLE;
+            queue.addFirst(f);
+        } else {
+            fdesc.state = PINNED;
+        }
+    }
+
+    /**
+     * Finding a free frame in the buffer pool
+     * or choosing a page to replace using your policy
+     *
+     * @return  return the frame number
+     *      return -1 if failed
+     */
+    public synchronized int pickVictim() {
+        //check if any frame is empty
+        int f = availableFrames.removeFirst();
+        if (f != FrameList.NONE) {
+            return f;
+        }
+
+        // all resident HIR pages are pinned: demote LIR pages until one of
+        // them is not
+        for (int n = lirCount; queue.isEmpty() && n > 0; n--) {
+            demoteBottom();
+            prune();
+        }
+        f = queue.removeFirst();
+        if (f == FrameList.NONE) {
+            return -1;
+        }
+
+        // a page evicted while in S is remembered in its place there
+        if (stack.contains(f)) {
+            if (nonResident.isFull()) {
+                int oldest = nonResident.remove(nonResident.oldest());
+                stack.remove(numbufs + oldest);
+            }
+            int slot = nonResident.add(residentPid[f]);
+            nonResidentPid[slot] = residentPid[f];
+            stack.replace(f, numbufs + slot);
+            prune();
+        }
+        residentPid[f] = INVALID_PAGEID;
+        return f;
+    }
+
+    /**
+     * Makes a resident page LIR.
+     */
+    protected void setLir(int f) {
+        lir[f] = true;
+        lirCount++;
+    }
+
+    /**
+     * Turns the LIR page at the bottom of S into a resident HIR page.
+     */
+    protected void demoteBottom() {
+        int b = stack.first();
+        if (b == FrameList.NONE || b >= numbufs || !lir[b]) {
+            return;
+        }
+        stack.remove(b);
+        lir[b] = false;
+        lirCount--;
+        if (frametab[b].pincnt == 0) {
+            queue.addLast(b);
+        }
+    }
+
+    /**
+     * Removes HIR pages from the bottom of S, so that it ends with a LIR page.
+     * Non-resident pages leaving S are forgotten.
+     */
+    protected void prune() {
+        for (int b = stack.first(); b != FrameList.NONE; b = stack.first()) {
+            if (b < numbufs) {
+                if (lir[b]) {
+                    break;
+                }
+                stack.remove(b);
+            } else {
+                stack.remove(b);
+                nonResident.remove(nonResidentPid[b - numbufs]);
+            }
+        }
+    }
+
+    /**
+     * Adds the ghost hits and the size of the LIR set.
+     */
+    protected synchronized void addCounters(Map<String, Long> counters) {
+        counters.put("nonResidentHits", nonResidentHits);
+        counters.put("lirPages", (long) lirCount);
+    }
+
+} // class Lirs extends Replacer
@@ -5,10 +5,13 @@ import global.GlobalConst;
 import global.Minibase;
 import global.Page;
 import global.PageId;
-import java.util.ArrayList;
 
   /**
    * Lru replacement policy.
+   * <p>
+   * Only unpinned frames are kept on the eviction list, ordered by the time
+   * they were last unpinned, so pinning, unpinning, freeing and picking a
+   * victim are all O(1).
    */
 class Lru extends  Replacer {
 
@@ -19,99 +22,67 @@ class Lru extends  Replacer {
     protected static final int REFERENCED = 11;
     protected static final int PINNED = 12;
 
-    //Following are the fields required for LRU and MRU policies:
-    /**
-     * private field
-     * An array to hold number of frames in the buffer pool
-     */
-
-    private int frames[];
-    //array to keep track of available frame
-    ArrayList<Integer> availableFrames;
-    //array to keep track of least recently used pages
-    ArrayList<Integer> leastRecentlyUsed;
-    /**
-     * private field
-     * number of frames used
-     */   
-    private int nframes;
+    //list to keep track of available frame
+    protected FrameList availableFrames;
+    //list of unpinned frames, least recently used first
+    protected FrameList leastRecentlyUsed;
     //Buffer size
     int numberOfBuffers;
-    int index;
-
-    /** Clock head; required for the default clock algorithm. */
-    protected int head;
-
-    /**
-     * This pushes the given frame to the end of the list.
-     * @param frameNo   the frame number
-     */
-    private void update(FrameDesc fdesc)
-    {
-        //add page which is not in pool at the end or if in pool remove from array and add it at end since it's most recently used
-        int i = leastRecentlyUsed.indexOf(fdesc.index);
-        if (i == -1) {
-            leastRecentlyUsed.add(fdesc.index);
-        }
-        else {
-            leastRecentlyUsed.remove(i);
-            leastRecentlyUsed.add(fdesc.index);
-        }
-    }
 
     /**
      * Class constructor
      */
-    public Lru(BufMgr mgrArg)
+    public Lru(BufferManager mgrArg)
     {
         super(mgrArg);
         //Get the buffer size
         numberOfBuffers = mgrArg.getNumBuffers();
-        availableFrames = new ArrayList<Integer>(numberOfBuffers);
-        leastRecentlyUsed = new ArrayList<Integer>();
+        availableFrames = new FrameList(numberOfBuffers);
+        leastRecentlyUsed = new FrameList(numberOfBuffers);
         // initialize the frame states
         for (int i = 0; i < frametab.length; i++) {
             frametab[i].state = AVAILABLE;
-            availableFrames.add(i);
+            availableFrames.addLast(i);
         }
-        // initialize parameters for LRU and MRU
-        nframes = 0;
-        frames = new int[frametab.length];
     }
     /**
      * Notifies the replacer of a new page.
      */
-    public void newPage(FrameDesc fdesc) {
+    public synchronized void newPage(FrameDesc fdesc) {
         // no need to update frame state
     }
 
     /**
      * Notifies the replacer of a free page.
      */
-    public void freePage(FrameDesc fdesc) {
+    public synchronized void freePage(FrameDesc fdesc) {
         fdesc.state = AVAILABLE;
         //add frame since page is deallocated
-        availableFrames.add(fdesc.index);
-        leastRecentlyUsed.remove(leastRecentlyUsed.indexOf(fdesc.index));
+        leastRecentlyUsed.remove(fdesc.index);
+        availableFrames.addLast(fdesc.index);
     }
 
     /**
      * Notifies the replacer of a pined page.
      */
-    public void pinPage(FrameDesc fdesc) {
+    public synchronized void pinPage(FrameDesc fdesc) {
         fdesc.state = PINNED;
-        update(fdesc);
+        //pinned frames cannot be replaced, so keep them off both lists
+        leastRecentlyUsed.remove(fdesc.index);
+        availableFrames.remove(fdesc.index);
     }
 
     /**
      * Notifies the replacer of an unpinned page.
      */
-    public void unpinPage(FrameDesc fdesc) {
+    public synchronized void unpinPage(FrameDesc fdesc) {
         if (fdesc.pincnt == 0) {
             fdesc.state = AVAILABLE;
+            //most recently used goes to the end
+            leastRecentlyUsed.addLast(fdesc.index);
         }
     }
-  
+
     /**
      * Finding a free frame in the buffer pool
      * or choosing a page to replace using your policy
@@ -120,25 +91,15 @@ class Lru extends  Replacer {
      *      return -1 if failed
      */
 
-   public int pickVictim()
+   public synchronized int pickVictim()
    {
-        nframes = availableFrames.size();
         //check if any frame is empty
-        if (nframes > 0) {
-            index = availableFrames.remove(0);
+        int index = availableFrames.removeFirst();
+        if (index != FrameList.NONE) {
             return index;
         }
-        //select least recently used available frame for replacement 
-        else {
-            for (int i = 0; i < leastRecentlyUsed.size(); i++) {
-                FrameDesc tempfd = frametab[leastRecentlyUsed.get(i)];
-                if (tempfd.state == AVAILABLE) {
-                    leastRecentlyUsed.remove(i);
-                    return tempfd.index;
-                }
-            }
-        }
-        //Buffer size full
-        return -1;
+        //select least recently used unpinned frame for replacement
+        //(returns -1 when every frame is pinned)
+        return leastRecentlyUsed.removeFirst();
    }
 }
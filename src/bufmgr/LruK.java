@@ -0,0 +1,327 @@
+
+package bufmgr;
+
+import java.util.Arrays;
+
+/**
+ * LRU-K replacement policy (O'Neil, O'Neil and Weikum).
+ * <p>
+ * Each page keeps the times of its last K uncorrelated references, and the
+ * victim is the unpinned page whose K-th most recent reference is oldest
+ * (the largest backward K-distance); pages referenced fewer than K times go
+ * first, least recently used first. A page pinned again within the
+ * correlated reference period of its last reference does not count as a new
+ * reference, so an operator pinning the same page over and over does not make
+ * it look hot, and a page is not evicted during that period unless nothing
+ * else is available. The history of evicted pages is kept for a bounded
+ * number of pages, so a page read back in soon after eviction is not treated
+ * as new. Time is counted in pins.
+ * <p>
+ * Unpinned pages outside their correlated period sit in an indexed binary
+ * heap, so every operation is O(log n).
+ */
+class LruK extends Replacer {
+
+    //
+    // Frame State Constants
+    //
+    protected static final int AVAILABLE = 10;
+    protected static final int PINNED = 12;
+
+    /** Number of references tracked per page by default (LRU-2). */
+    public static final int DEFAULT_K = 2;
+
+    /** Default correlated reference period, in pins. */
+    public static final int DEFAULT_CORRELATED_PERIOD = 16;
+
+    /** Number of references tracked per page. */
+    protected final int k;
+
+    /** Pins within this many pins of a page's last one are correlated. */
+    protected final int correlatedPeriod;
+
+    /** Logical time; incremented on every pin. */
+    protected long now;
+
+    /** Page each frame's history belongs to, or INVALID_PAGEID. */
+    protected int[] residentPid;
+
+    /** Last k uncorrelated reference times per frame, most recent first. */
+    protected long[] hist;
+
+    /** Time of the last reference, correlated or not, per frame. */
+    protected long[] last;
+
+    /** Evicted pages whose history is retained, and that history by slot. */
+    protected GhostList retained;
+    protected long[] retainedHist;
+    protected long[] retainedLast;
+
+    /** Empty frames. */
+    protected FrameList availableFrames;
+
+    /** Unpinned frames still within their correlated period, oldest first. */
+    protected FrameList correlated;
+
+    /** Unpinned frames eligible for replacement, as a min-heap by priority. */
+    protected int[] heap;
+    protected int heapSize;
+
+    /** Position of each frame in the heap, or -1. */
+    protected int[] heapPos;
+
+    /**
+     * Constructs an LRU-2 replacer with the default correlated period.
+     */
+    public LruK(BufferManager mgrArg) {
+        this(mgrArg, DEFAULT_K, DEFAULT_CORRELATED_PERIOD);
+    }
+
+    /**
+     * Constructs an LRU-K replacer.
+     *
+     * @param k number of references to track per page
+     * @param correlatedPeriod pins within this many pins count as one reference
+     */
+    public LruK(BufferManager mgrArg, int k, int correlatedPeriod) {
+        super(mgrArg);
+        if (k < 1) {
+            throw new IllegalArgumentException("K must be at least 1");
+        }
+        this.k = k;
+        this.correlatedPeriod = correlatedPeriod;
+        int numbufs = frametab.length;
+        residentPid = new int[numbufs];
+        hist = new long[numbufs * k];
+        last = new long[numbufs];
+        retained = new GhostList(numbufs);
+        retainedHist = new long[retained.capacity() * k];
+        retainedLast = new long[retained.capacity()];
+        availableFrames = new FrameList(numbufs);
+        correlated = new FrameList(numbufs);
+        heap = new int[numbufs];
+        heapPos = new int[numbufs];
+        heapSize = 0;
+        now = 0;
+        for (int i = 0; i < numbufs; i++) {
+            frametab[i].state = AVAILABLE;
+            residentPid[i] = INVALID_PAGEID;
+            heapPos[i] = -1;
+            availableFrames.addLast(i);
+        }
+    }
+
+    /**
+     * Notifies the replacer of a new page.
+     */
+    public synchronized void newPage(FrameDesc fdesc) {
+        // no need to update frame state
+    }
+
+    /**
+     * Notifies the replacer of a free page.
+     */
+    public synchronized void freePage(FrameDesc fdesc) {
+        int f = fdesc.index;
+        fdesc.state = AVAILABLE;
+        unlink(f);
+        // the page is gone for good, so its history goes with it
+        residentPid[f] = INVALID_PAGEID;
+        availableFrames.addLast(f);
+    }
+
+    /**
+     * Notifies the replacer of a pined page.
+     */
+    public synchronized void pinPage(FrameDesc fdesc) {
+        int f = fdesc.index;
+        int pid = fdesc.pageno.pid;
+        fdesc.state = PINNED;
+        unlink(f);
+        now++;
+
+        if (residentPid[f] != pid) {
+            // the page is new to this frame: restore its history if retained
+            residentPid[f] = pid;
+            int slot = retained.remove(pid);
+            if (slot == GhostList.NONE) {
+                Arrays.fill(hist, f * k, f * k + k, 0L);
+                hist[f * k] = now;
+                last[f] = now;
+                return;
+            }
+            System.arraycopy(retainedHist, slot * k, hist, f * k, k);
+            last[f] = retainedLast[slot];
+        }
+
+        if (now - last[f] > correlatedPeriod) {
+            // a new, uncorrelated reference: close the last correlated period
+            // by shifting the history by its length
+            long correlPeriodOfRefdPage = last[f] - hist[f * k];
+            for (int i = k - 1; i > 0; i--) {
+                long prior = hist[f * k + i - 1];
+                hist[f * k + i] = (prior == 0) ? 0 : prior + correlPeriodOfRefdPage;
+            }
+            hist[f * k] = now;
+        }
+        last[f] = now;
+    }
+
+    /**
+     * Notifies the replacer of an unpinned page.
+     */
+    public synchronized void unpinPage(FrameDesc fdesc) {
+        if (fdesc.pincnt == 0) {
+            fdesc.state = AVAILABLE;
+            unlink(fdesc.index);
+            correlated.addLast(fdesc.index);
+        }
+    }
+
+    /**
+     * Takes back a victim the buffer manager could not use: its history,
+     * still in the frame, is kept without a new reference, and the copy
+     * retained on eviction is dropped.
+     */
+    protected synchronized void unpick(FrameDesc fdesc) {
+        int f = fdesc.index;
+        int pid = fdesc.pageno.pid;
+        if (pid == INVALID_PAGEID) {
+            freePage(fdesc);
+            return;
+        }
+        if (residentPid[f] == pid) {
+            // pinned again since it was picked, which put it back
+            return;
+        }
+        retained.remove(pid);
+        residentPid[f] = pid;
+        if (fdesc.pincnt != 0) {
+            fdesc.state = PINNED;
+        } else {
+            fdesc.state = AVAILABLE;
+            if (now - last[f] > correlatedPeriod) {
+                heapAdd(f);
+            } else {
+                correlated.addFirst(f);
+            }
+        }
+    }
+
+    /**
+     * Finding a free frame in the buffer pool
+     * or choosing a page to replace using your policy
+     *
+     * @return  return the frame number
+     *      return -1 if failed
+     */
+    public synchronized int pickVictim() {
+        //check if any frame is empty
+        int f = availableFrames.removeFirst();
+        if (f != FrameList.NONE) {
+            return f;
+        }
+
+        // frames whose correlated period has passed become eligible
+        for (int c = correlated.first(); c != FrameList.NONE; c = correlated.first()) {
+            if (now - last[c] <= correlatedPeriod) {
+                break;
+            }
+            correlated.remove(c);
+            heapAdd(c);
+        }
+
+        // largest backward K-distance first; fall back to the oldest
+        // correlated frame when nothing else is unpinned
+        f = (heapSize > 0) ? heapRemove(heap[0]) : correlated.removeFirst();
+        if (f == FrameList.NONE) {
+            return -1;
+        }
+
+        // retain the evicted page's history
+        if (residentPid[f] != INVALID_PAGEID) {
+            int slot = retained.add(residentPid[f]);
+            System.arraycopy(hist, f * k, retainedHist, slot * k, k);
+            retainedLast[slot] = last[f];
+            residentPid[f] = INVALID_PAGEID;
+        }
+        return f;
+    }
+
+    /**
+     * Takes the frame off whichever list or heap it is on.
+     */
+    protected void unlink(int f) {
+        availableFrames.remove(f);
+        correlated.remove(f);
+        if (heapPos[f] >= 0) {
+            heapRemove(f);
+        }
+    }
+
+    /**
+     * Tells whether frame a should be replaced before frame b.
+     */
+    protected boolean before(int a, int b) {
+        long ka = hist[a * k + k - 1];
+        long kb = hist[b * k + k - 1];
+        return (ka != kb) ? ka < kb : last[a] < last[b];
+    }
+
+    protected void heapAdd(int f) {
+        heap[heapSize] = f;
+        heapPos[f] = heapSize;
+        heapSize++;
+        siftUp(heapPos[f]);
+    }
+
+    protected int heapRemove(int f) {
+        int i = heapPos[f];
+        int moved = heap[--heapSize];
+        heapPos[f] = -1;
+        if (moved != f) {
+            heap[i] = moved;
+            heapPos[moved] = i;
+            siftDown(i);
+            siftUp(heapPos[moved]);
+        }
+        return f;
+    }
+
+    private void siftUp(int i) {
+        int f = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(f, heap[parent])) {
+                break;
+            }
+            heap[i] = heap[parent];
+            heapPos[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = f;
+        heapPos[f] = i;
+    }
+
+    private void siftDown(int i) {
+        int f = heap[i];
+        for (;;) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], f)) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapPos[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = f;
+        heapPos[f] = i;
+    }
+
+} // class LruK extends Replacer
@@ -0,0 +1,340 @@
+package bufmgr;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estimates the hit ratio the buffer pool would have at other sizes, from a
+ * sample of the pages pinned (SHARDS).
+ * <p>
+ * A page is sampled if a hash of its number falls below the sampling rate, so
+ * either every reference to a page is seen or none is. For each reference to
+ * a sampled page the sampler finds its reuse distance, the number of other
+ * sampled pages referenced since the last reference to it, and scales it up
+ * by the rate. The distances give the hit ratio of an LRU pool of any size:
+ * a reference hits in a pool of n frames if its distance is under n. Other
+ * policies do about as well as LRU or better, so the curve shows where more
+ * frames would help and where they would not.
+ * <p>
+ * Distances are counted with a Fenwick tree over the times of the sampled
+ * references, holding a one at each page's last reference; when it fills up
+ * the times are renumbered. The last references are kept in a table of ints
+ * with open addressing, so a sampled pin neither boxes nor allocates. With a
+ * rate of 0.01, a pin that is not sampled costs a hash, a compare and an add
+ * to a LongAdder, and a sampled one a few dozen steps.
+ */
+class MissRatioSampler {
+
+    /** Hashes at or above this many are never sampled. */
+    protected static final int HASH_RANGE = 1 << 24;
+
+    /** Initial number of times in the Fenwick tree. */
+    protected static final int INITIAL_TIMES = 1 << 12;
+
+    /** Share of pages sampled, as given. */
+    protected final double rate;
+
+    /** Hashes below this are sampled. */
+    protected final int threshold;
+
+    /** Nanoseconds between reports to System.out, or 0 for none. */
+    protected final long reportPeriod;
+
+    /** The buffer manager reported on. */
+    protected final BufferManager mgr;
+
+    /** Time of the last reference to each sampled page. */
+    protected final LastRefs lastRef = new LastRefs();
+
+    /** Fenwick tree with a one at each page's last reference. */
+    protected int[] tree;
+
+    /** Time of the next sampled reference. */
+    protected int now;
+
+    /** Number of references by sampled reuse distance. */
+    protected long[] distances = new long[64];
+
+    /** Number of pins seen, sampled or not. */
+    protected final LongAdder pins = new LongAdder();
+
+    /** Number of sampled references, and of those to pages not seen before. */
+    protected long references;
+    protected long coldMisses;
+
+    /** When the next report is due. */
+    protected long nextReport;
+
+    // --------------------------------------------------------------------------
+
+    /**
+     * Constructs a sampler.
+     *
+     * @param rate share of pages sampled, above 0 and at most 1
+     * @param reportSeconds seconds between reports to System.out, or 0 for none
+     * @throws IllegalArgumentException if the rate is out of range
+     */
+    MissRatioSampler(BufferManager mgr, double rate, int reportSeconds) {
+        if (!(rate > 0 && rate <= 1)) {
+            throw new IllegalArgumentException("Sampling rate must be in (0, 1]: " + rate);
+        }
+        this.mgr = mgr;
+        this.rate = rate;
+        threshold = (int) Math.ceil(rate * HASH_RANGE);
+        reportPeriod = reportSeconds * 1000000000L;
+        nextReport = System.nanoTime() + reportPeriod;
+        tree = new int[INITIAL_TIMES + 1];
+    }
+
+    /**
+     * Notes a pin of the given page, if it is sampled.
+     */
+    void pin(int pid) {
+        pins.increment();
+        // murmur3's finalizer, offset so that page 0 is not always sampled
+        int h = pid + 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        if ((h & (HASH_RANGE - 1)) < threshold) {
+            reference(pid);
+        }
+    }
+
+    /**
+     * Notes a reference to a sampled page.
+     */
+    protected synchronized void reference(int pid) {
+        if (now == tree.length - 1) {
+            renumber();
+        }
+        int last = lastRef.put(pid, now);
+        if (last == LastRefs.NOT_FOUND) {
+            coldMisses++;
+        } else {
+            int distance = sum(now) - sum(last + 1);
+            if (distance >= distances.length) {
+                distances = Arrays.copyOf(distances,
+                    Math.max(2 * distances.length, distance + 1));
+            }
+            distances[distance]++;
+            add(last + 1, -1);
+        }
+        add(now + 1, 1);
+        now++;
+        references++;
+
+        if (reportPeriod > 0 && System.nanoTime() - nextReport >= 0) {
+            nextReport = System.nanoTime() + reportPeriod;
+            System.out.print(report(mgr.getNumBuffers()));
+        }
+    }
+
+    /**
+     * Estimates the hit ratio of a pool of the given number of frames.
+     */
+    synchronized double hitRatio(int frames) {
+        // a few hot pages in or out of the sample skew it; the references
+        // above or below the number expected are taken to be at distance 0
+        // (SHARDS-adj), which corrects most of that
+        long expected = Math.round(pins.sum() * rate);
+        if (references == 0 || expected == 0) {
+            return 0;
+        }
+        long limit = Math.min(distances.length, (long) Math.floor(frames * rate));
+        if (limit <= 0) {
+            return 0;
+        }
+        // a distance d hits if the d + 1 pages it stands for fit in the pool
+        long hits = expected - references;
+        for (int d = 0; d < limit; d++) {
+            hits += distances[d];
+        }
+        return Math.max(0, Math.min(1, (double) hits / expected));
+    }
+
+    /**
+     * Gets the most frames worth estimating: enough to hold every page seen.
+     */
+    synchronized int getMaxFrames() {
+        return (int) Math.min(Integer.MAX_VALUE, Math.ceil(lastRef.size() / rate));
+    }
+
+    /**
+     * Formats the estimated hit ratios for pools from 16 frames, doubling,
+     * up to enough to hold every page seen, and at the current size.
+     */
+    synchronized String report(int numbufs) {
+        StringBuilder out = new StringBuilder();
+        out.append("Miss ratio curve (").append(references)
+            .append(" sampled references, rate ").append(rate).append("):\n");
+        int max = Math.max(getMaxFrames(), numbufs);
+        boolean shown = false;
+        for (long frames = 16; ; frames *= 2) {
+            if (!shown && numbufs <= frames) {
+                appendLine(out, numbufs, " (current)");
+                shown = true;
+                if (numbufs == frames) {
+                    continue;
+                }
+            }
+            if (frames >= max) {
+                break;
+            }
+            appendLine(out, (int) frames, "");
+        }
+        if (max > numbufs) {
+            appendLine(out, max, "");
+        }
+        return out.toString();
+    }
+
+    /**
+     * Appends one size to a report.
+     */
+    protected void appendLine(StringBuilder out, int frames, String note) {
+        double hit = hitRatio(frames);
+        out.append(String.format("%12d frames: hit %9.5f  miss %9.5f%s\n",
+            frames, hit, 1 - hit, note));
+    }
+
+    /**
+     * Renumbers the last references from 0, in order, and makes the tree
+     * twice the number of sampled pages if that is larger.
+     */
+    protected void renumber() {
+        int live = lastRef.size();
+        long[] order = lastRef.byValue();
+        Arrays.sort(order);
+        tree = new int[Math.max(tree.length - 1, 2 * live) + 1];
+        for (int i = 0; i < live; i++) {
+            lastRef.put((int) order[i], i);
+            add(i + 1, 1);
+        }
+        now = live;
+    }
+
+    /**
+     * Adds to the count at a position in the tree (from 1).
+     */
+    protected void add(int pos, int delta) {
+        for (; pos < tree.length; pos += pos & -pos) {
+            tree[pos] += delta;
+        }
+    }
+
+    /**
+     * Sums the counts at positions up to and including the given one.
+     */
+    protected int sum(int pos) {
+        int total = 0;
+        for (; pos > 0; pos -= pos & -pos) {
+            total += tree[pos];
+        }
+        return total;
+    }
+
+    /**
+     * Maps page numbers to times, with linear probing in one int array;
+     * pages are never removed.
+     */
+    protected static final class LastRefs {
+
+        /** Returned by put for a page not in the table. */
+        static final int NOT_FOUND = -1;
+
+        /** Marks an unused slot; page numbers are never negative. */
+        private static final int EMPTY = -1;
+
+        /** Page number at even slots, time at the odd slot after it. */
+        private int[] table = newTable(64);
+
+        /** Number of pages in the table. */
+        private int size;
+
+        /**
+         * Maps a page to a time.
+         *
+         * @return the page's last time, or NOT_FOUND
+         */
+        int put(int pid, int time) {
+            int mask = (table.length >> 1) - 1;
+            int i = hash(pid) & mask;
+            for (;; i = (i + 1) & mask) {
+                int key = table[i << 1];
+                if (key == pid) {
+                    int last = table[(i << 1) + 1];
+                    table[(i << 1) + 1] = time;
+                    return last;
+                }
+                if (key == EMPTY) {
+                    break;
+                }
+            }
+            table[i << 1] = pid;
+            table[(i << 1) + 1] = time;
+            // keep the load factor at or below one half
+            if (++size * 2 > mask + 1) {
+                grow();
+            }
+            return NOT_FOUND;
+        }
+
+        /**
+         * Gets the number of pages in the table.
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Gets each entry as its time in the high half and its page number in
+         * the low half, so that sorting them orders them by time.
+         */
+        long[] byValue() {
+            long[] entries = new long[size];
+            int n = 0;
+            for (int i = 0; i < table.length; i += 2) {
+                if (table[i] != EMPTY) {
+                    entries[n++] = ((long) table[i + 1] << 32) | table[i];
+                }
+            }
+            return entries;
+        }
+
+        /**
+         * Doubles the table, putting each entry in again.
+         */
+        private void grow() {
+            int[] old = table;
+            table = newTable(old.length);
+            int mask = (table.length >> 1) - 1;
+            for (int j = 0; j < old.length; j += 2) {
+                if (old[j] == EMPTY) {
+                    continue;
+                }
+                int i = hash(old[j]) & mask;
+                while (table[i << 1] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                table[i << 1] = old[j];
+                table[(i << 1) + 1] = old[j + 1];
+            }
+        }
+
+        private static int[] newTable(int slots) {
+            int[] tab = new int[slots * 2];
+            Arrays.fill(tab, EMPTY);
+            return tab;
+        }
+
+        private static int hash(int pid) {
+            int h = pid * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+    } // protected static final class LastRefs
+
+} // class MissRatioSampler
@@ -0,0 +1,273 @@
+package bufmgr;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Maps page numbers to frame numbers; used for efficient lookups.
+ * <p>
+ * Entries live in flat int arrays with open addressing (linear probing and
+ * backward-shift deletion), so a lookup neither boxes the page number nor
+ * allocates. The table is split into segments, each guarded by its own
+ * StampedLock: lookups are optimistic reads that only fall back to the read
+ * lock if a writer got in the way, and writers to different segments never
+ * wait for each other.
+ */
+class PageTable {
+
+    /** Returned by lookups that find nothing; page numbers are never negative. */
+    static final int NOT_FOUND = -1;
+
+    /** Marks an unused slot. */
+    private static final int EMPTY = -1;
+
+    /** The segments, indexed by the high bits of the hashed page number. */
+    private final Segment[] segments;
+
+    /** Shift that turns a hash into a segment number. */
+    private final int segmentShift;
+
+    // --------------------------------------------------------------------------
+
+    /**
+     * Constructs a table for the given number of entries, with enough
+     * segments for the available processors.
+     */
+    public PageTable(int capacity) {
+        this(capacity, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a table for the given number of entries, split into at most
+     * the given number of segments.
+     */
+    public PageTable(int capacity, int concurrency) {
+        int nsegs = 1;
+        int shift = 32;
+        while (nsegs < concurrency && nsegs * 16 < capacity) {
+            nsegs <<= 1;
+            shift--;
+        }
+        segments = new Segment[nsegs];
+        segmentShift = shift;
+        int perSegment = (capacity + nsegs - 1) / nsegs;
+        for (int i = 0; i < nsegs; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * Gets the frame number mapped to the given page.
+     *
+     * @return the frame number, or NOT_FOUND
+     */
+    public int get(int pid) {
+        int h = hash(pid);
+        Segment seg = segmentFor(h);
+        long stamp = seg.tryOptimisticRead();
+        int frameno = seg.find(pid, h);
+        if (!seg.validate(stamp)) {
+            stamp = seg.readLock();
+            try {
+                frameno = seg.find(pid, h);
+            } finally {
+                seg.unlockRead(stamp);
+            }
+        }
+        return frameno;
+    }
+
+    /**
+     * Maps the page to the frame unless the page is already mapped.
+     *
+     * @return the frame already mapped to the page, or NOT_FOUND if added
+     */
+    public int putIfAbsent(int pid, int frameno) {
+        int h = hash(pid);
+        Segment seg = segmentFor(h);
+        long stamp = seg.writeLock();
+        try {
+            return seg.putIfAbsent(pid, frameno, h);
+        } finally {
+            seg.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the page's mapping, whatever frame it is mapped to.
+     *
+     * @return the frame the page was mapped to, or NOT_FOUND
+     */
+    public int remove(int pid) {
+        return remove(pid, NOT_FOUND);
+    }
+
+    /**
+     * Removes the page's mapping only if it is mapped to the given frame
+     * (or to any frame, if frameno is NOT_FOUND).
+     *
+     * @return the frame the page was mapped to, or NOT_FOUND if not removed
+     */
+    public int remove(int pid, int frameno) {
+        int h = hash(pid);
+        Segment seg = segmentFor(h);
+        long stamp = seg.writeLock();
+        try {
+            return seg.remove(pid, frameno, h);
+        } finally {
+            seg.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Gets the number of mapped pages.
+     */
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < segments.length; i++) {
+            size += segments[i].size;
+        }
+        return size;
+    }
+
+    /**
+     * Spreads the page number bits; consecutive page numbers are the common
+     * case and must not cluster.
+     */
+    private static int hash(int pid) {
+        int h = pid * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private Segment segmentFor(int h) {
+        return segmentShift == 32 ? segments[0] : segments[h >>> segmentShift];
+    }
+
+    // --------------------------------------------------------------------------
+
+    /**
+     * One lock's worth of the table. Keys and frame numbers are interleaved
+     * in a single array, so an optimistic reader always sees a consistent
+     * pair of arrays and a lookup touches one cache line.
+     */
+    @SuppressWarnings("serial")
+    private static final class Segment extends StampedLock {
+
+        /** Page number at even slots, frame number at the odd slot after it. */
+        int[] table;
+
+        /** Number of mapped pages. */
+        int size;
+
+        Segment(int capacity) {
+            // keep the load factor at or below one half
+            int slots = 8;
+            while (slots < capacity * 2) {
+                slots <<= 1;
+            }
+            table = newTable(slots);
+        }
+
+        int find(int pid, int h) {
+            int[] tab = table;
+            int mask = (tab.length >> 1) - 1;
+            for (int i = h & mask, n = 0; n <= mask; i = (i + 1) & mask, n++) {
+                int key = tab[i << 1];
+                if (key == pid) {
+                    return tab[(i << 1) + 1];
+                }
+                if (key == EMPTY) {
+                    break;
+                }
+            }
+            return NOT_FOUND;
+        }
+
+        int putIfAbsent(int pid, int frameno, int h) {
+            int[] tab = table;
+            int mask = (tab.length >> 1) - 1;
+            int i = h & mask;
+            for (;;) {
+                int key = tab[i << 1];
+                if (key == pid) {
+                    return tab[(i << 1) + 1];
+                }
+                if (key == EMPTY) {
+                    break;
+                }
+                i = (i + 1) & mask;
+            }
+            tab[(i << 1) + 1] = frameno;
+            tab[i << 1] = pid;
+            if (++size * 2 > mask + 1) {
+                grow();
+            }
+            return NOT_FOUND;
+        }
+
+        int remove(int pid, int frameno, int h) {
+            int[] tab = table;
+            int mask = (tab.length >> 1) - 1;
+            int i = h & mask;
+            for (;;) {
+                int key = tab[i << 1];
+                if (key == EMPTY) {
+                    return NOT_FOUND;
+                }
+                if (key == pid) {
+                    break;
+                }
+                i = (i + 1) & mask;
+            }
+            int found = tab[(i << 1) + 1];
+            if (frameno != NOT_FOUND && found != frameno) {
+                return NOT_FOUND;
+            }
+
+            // shift back later entries of the run that would become unreachable
+            for (int j = (i + 1) & mask; tab[j << 1] != EMPTY; j = (j + 1) & mask) {
+                int home = hash(tab[j << 1]) & mask;
+                boolean reachable = (i <= j) ? (i < home && home <= j) : (i < home || home <= j);
+                if (!reachable) {
+                    tab[(i << 1) + 1] = tab[(j << 1) + 1];
+                    tab[i << 1] = tab[j << 1];
+                    i = j;
+                }
+            }
+            tab[i << 1] = EMPTY;
+            tab[(i << 1) + 1] = EMPTY;
+            size--;
+            return found;
+        }
+
+        /**
+         * Doubles the table; readers holding the old array simply fail to
+         * validate and retry under the read lock.
+         */
+        void grow() {
+            int[] old = table;
+            int[] tab = newTable(old.length);
+            int mask = (tab.length >> 1) - 1;
+            for (int j = 0; j < old.length; j += 2) {
+                int key = old[j];
+                if (key != EMPTY) {
+                    int i = hash(key) & mask;
+                    while (tab[i << 1] != EMPTY) {
+                        i = (i + 1) & mask;
+                    }
+                    tab[i << 1] = key;
+                    tab[(i << 1) + 1] = old[j + 1];
+                }
+            }
+            table = tab;
+        }
+
+        private static int[] newTable(int slots) {
+            int[] tab = new int[slots * 2];
+            Arrays.fill(tab, EMPTY);
+            return tab;
+        }
+
+    } // private static final class Segment extends StampedLock
+
+} // class PageTable
@@ -0,0 +1,113 @@
+package bufmgr;
+
+/**
+ * A background thread that writes dirty, unpinned pages ahead of the
+ * replacer, so a miss rarely has to write its victim before reading.
+ * <p>
+ * Ten times a second it counts the dirty frames, and if they are more than
+ * the given share of the pool it moves its own hand through the buffer
+ * manager's dirty set, writing dirty frames that are neither pinned nor
+ * latched, up to the given number of pages per second. Replacers do not say
+ * which frames they will pick next, so the hand simply goes round; a page
+ * dirtied again soon after costs one more write.
+ */
+class PageWriter extends Thread {
+
+    /** Rounds per second. */
+    protected static final int ROUNDS = 10;
+
+    /** The buffer manager whose pages are written. */
+    protected final BufferManager mgr;
+
+    /** Most pages written per second, and the share of dirty frames above
+     * which they are written, as given. */
+    protected final int rate;
+    protected final double dirtyRatio;
+
+    /** Most pages written per round. */
+    protected final int pagesPerRound;
+
+    /** Dirty frames above which pages are written. */
+    protected final int dirtyThreshold;
+
+    /** Next frame to look at. */
+    protected int hand;
+
+    /** Cleared to stop the thread. */
+    protected volatile boolean running = true;
+
+    /**
+     * Constructs a page writer; start() runs it.
+     *
+     * @param rate most pages written per second
+     * @param dirtyRatio share of dirty frames above which pages are written
+     */
+    PageWriter(BufferManager mgr, int rate, double dirtyRatio) {
+        super("bufmgr-page-writer");
+        setDaemon(true);
+        this.mgr = mgr;
+        this.rate = rate;
+        this.dirtyRatio = dirtyRatio;
+        pagesPerRound = Math.max(1, rate / ROUNDS);
+        dirtyThreshold = (int) (dirtyRatio * mgr.frametab.length);
+    }
+
+    /**
+     * Stops the thread after its current round.
+     */
+    void shutdown() {
+        running = false;
+        interrupt();
+    }
+
+    public void run() {
+        while (running) {
+            try {
+                Thread.sleep(1000 / ROUNDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (countDirty() > dirtyThreshold) {
+                writeRound();
+            }
+        }
+    }
+
+    /**
+     * Counts the dirty frames.
+     */
+    protected int countDirty() {
+        return mgr.dirtyFrames.cardinality();
+    }
+
+    /**
+     * Writes up to pagesPerRound dirty, unpinned frames, in at most one turn
+     * of the hand; the hand skips straight to the next dirty frame.
+     */
+    protected void writeRound() {
+        FrameDesc[] frametab = mgr.frametab;
+        FrameBitmap dirtyFrames = mgr.dirtyFrames;
+        int start = hand;
+        boolean wrapped = false;
+        int written = 0;
+        while (written < pagesPerRound && running) {
+            int i = dirtyFrames.nextSetBit(hand);
+            if (i < 0 && !wrapped) {
+                wrapped = true;
+                i = dirtyFrames.nextSetBit(0);
+            }
+            if (i < 0 || (wrapped && i >= start)) {
+                break;
+            }
+            hand = (i + 1) % frametab.length;
+            if (hand == 0) {
+                wrapped = true;
+            }
+            FrameDesc fdesc = frametab[i];
+            if (fdesc.dirty && fdesc.pincnt == 0 && mgr.cleanFrame(fdesc)) {
+                written++;
+            }
+        }
+    }
+
+} // class PageWriter extends Thread
@@ -0,0 +1,94 @@
+package bufmgr;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A read-write lock for the buffer pool that is cheap to hold shared. Every
+ * pin and unpin holds it shared; only setPolicy and resize hold it
+ * exclusively, and seldom.
+ * <p>
+ * A shared holder only adds one to a counter of its own stripe, picked by
+ * thread as in LatencyHistogram, and reads a flag; the stripes are a cache
+ * line apart, so threads on different stripes never write the same line. An
+ * exclusive holder takes a mutex, raises the flag, and waits for every stripe
+ * to drain. Shared holders that see the flag raised take their count back and
+ * wait on the mutex. As the flag and the stripes are volatile, either the
+ * shared holder sees the flag or the exclusive holder sees its count.
+ * <p>
+ * The lock is not reentrant. A thread holding it shared must not lock it
+ * again, since it would wait for an exclusive holder that waits for it.
+ */
+class PoolLock {
+
+    /** Number of stripes, a power of two. */
+    protected static final int STRIPES = Math.min(64,
+        2 * Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors())));
+
+    /** Ints from one stripe's counter to the next, so each has a cache line. */
+    protected static final int SPACING = 16;
+
+    /** Shared holders of each stripe, SPACING apart. */
+    protected final AtomicIntegerArray holders = new AtomicIntegerArray(STRIPES * SPACING);
+
+    /** Held by the exclusive holder, and by one waiting to be. */
+    protected final ReentrantLock writer = new ReentrantLock();
+
+    /** Whether an exclusive holder has the lock or is waiting for it. */
+    protected volatile boolean exclusive;
+
+    // --------------------------------------------------------------------------
+
+    /**
+     * Locks shared, waiting while the lock is held exclusively.
+     */
+    public void lockShared() {
+        int slot = slot();
+        for (;;) {
+            holders.incrementAndGet(slot);
+            if (!exclusive) {
+                return;
+            }
+            holders.decrementAndGet(slot);
+            writer.lock();
+            writer.unlock();
+        }
+    }
+
+    /**
+     * Unlocks after lockShared.
+     */
+    public void unlockShared() {
+        holders.decrementAndGet(slot());
+    }
+
+    /**
+     * Locks exclusively, waiting for shared holders to finish; new ones wait
+     * until unlockExclusive.
+     */
+    public void lockExclusive() {
+        writer.lock();
+        exclusive = true;
+        for (int i = 0; i < STRIPES; i++) {
+            while (holders.get(i * SPACING) != 0) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Unlocks after lockExclusive.
+     */
+    public void unlockExclusive() {
+        exclusive = false;
+        writer.unlock();
+    }
+
+    /**
+     * Gets the counter of the current thread's stripe.
+     */
+    protected static int slot() {
+        return ((int) Thread.currentThread().getId() & (STRIPES - 1)) * SPACING;
+    }
+
+} // class PoolLock
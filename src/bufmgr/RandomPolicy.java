@@ -7,6 +7,8 @@ import global.Page;
 import global.PageId;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
 
 /**
  * Random replacement policy.
@@ -27,8 +29,9 @@ class RandomPolicy extends  Replacer {
      */
 
     private int  frames[];
-    //array to keep track of available frame
-    ArrayList<Integer> availableFrames;
+    //list to keep track of available frame, so adopt can drop one in
+    //constant time
+    FrameList availableFrames;
    
     /**
      * private field
@@ -53,16 +56,16 @@ class RandomPolicy extends  Replacer {
     /**
      * Class constructor
      */
-    public RandomPolicy(BufMgr mgrArg)
+    public RandomPolicy(BufferManager mgrArg)
     {
         super(mgrArg);
         //Get the buffer size
         bufferSize = mgrArg.getNumBuffers();
-        availableFrames = new ArrayList<Integer>(bufferSize);
+        availableFrames = new FrameList(bufferSize);
         // initialize the frame states
         for (int i = 0; i < frametab.length; i++) {
             frametab[i].state = AVAILABLE;
-            availableFrames.add(i);
+            availableFrames.addLast(i);
         }
         // initialize parameters for LRU and MRU
         nframes = 0;
@@ -71,30 +74,39 @@ class RandomPolicy extends  Replacer {
     /**
      * Notifies the replacer of a new page.
      */
-    public void newPage(FrameDesc fdesc) {
+    public synchronized void newPage(FrameDesc fdesc) {
         // no need to update frame state
     }
 
     /**
      * Notifies the replacer of a free page.
      */
-    public void freePage(FrameDesc fdesc) {
+    public synchronized void freePage(FrameDesc fdesc) {
         fdesc.state = AVAILABLE;
         //add frame since page is deallocated
-        availableFrames.add(fdesc.index);
+        availableFrames.addLast(fdesc.index);
     }
 
     /**
      * Notifies the replacer of a pined page.
      */
-    public void pinPage(FrameDesc fdesc) {
+    public synchronized void pinPage(FrameDesc fdesc) {
         fdesc.state = PINNED;
     }
 
+    /**
+     * Takes over a frame that already holds a page; unlike a victim it is
+     * still on the list of empty frames.
+     */
+    protected synchronized void adopt(FrameDesc fdesc) {
+        availableFrames.remove(fdesc.index);
+        super.adopt(fdesc);
+    }
+
     /**
      * Notifies the replacer of an unpinned page.
      */
-    public void unpinPage(FrameDesc fdesc) {
+    public synchronized void unpinPage(FrameDesc fdesc) {
         if (fdesc.pincnt == 0) {
             fdesc.state = AVAILABLE;
         }
@@ -108,11 +120,11 @@ class RandomPolicy extends  Replacer {
      *      return -1 if failed
      */
 
-   public int pickVictim()
+   public synchronized int pickVictim()
    {
         //check if any frame is empty
-        if (availableFrames.size() > 0) {
-            index = availableFrames.remove(0);
+        if (!availableFrames.isEmpty()) {
+            index = availableFrames.removeFirst();
             return index;
         }
         //select random available frame for replacement 
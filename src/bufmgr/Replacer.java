@@ -1,10 +1,15 @@
 package bufmgr;
 
 import global.GlobalConst;
+import global.PageId;
 import java.util.*;
 
 /**
  * Base class for buffer pool replacement policies.
+ * <p>
+ * Callbacks arrive from many threads at once. The frame state a replacer keeps
+ * is only a hint: the buffer manager confirms every victim by claiming its pin
+ * count, and asks again if the frame was pinned in the meantime.
  */
 abstract class Replacer implements GlobalConst {
 
@@ -16,7 +21,7 @@ abstract class Replacer implements GlobalConst {
   /**
    * Constructs the replacer, given the buffer manager.
    */
-  protected Replacer(BufMgr bufmgr) {
+  protected Replacer(BufferManager bufmgr) {
     this.frametab = bufmgr.frametab;
   }
 
@@ -47,4 +52,55 @@ abstract class Replacer implements GlobalConst {
    */
   public abstract int pickVictim();
 
+  /**
+   * Selects the best frame to use for pinning the given page. Replacers that
+   * weigh the incoming page against the victim, like TinyLfu, override this.
+   * 
+   * @return victim frame number, or -1 if none available
+   */
+  public int pickVictim(PageId incoming) {
+    return pickVictim();
+  }
+
+  /**
+   * Takes back a frame that pickVictim returned but the buffer manager could
+   * not use, because it was pinned in the meantime or its new page was
+   * loaded elsewhere. The frame still holds the page it had, or none, and may
+   * be pinned. This is not a reference: replacers that keep ghosts or counts
+   * put the frame back as it was before it was picked, without a ghost hit or
+   * a count. By default an empty frame is freed, and one holding a page is
+   * pinned, then unpinned unless still pinned, which suits replacers that
+   * keep no history.
+   */
+  protected void unpick(FrameDesc fdesc) {
+    if (fdesc.pageno.pid == INVALID_PAGEID) {
+      freePage(fdesc);
+      return;
+    }
+    pinPage(fdesc);
+    if (fdesc.pincnt == 0) {
+      unpinPage(fdesc);
+    }
+  }
+
+  /**
+   * Takes over a frame that already holds a page, when the buffer manager
+   * switches to this replacer on a live pool; called once for each such
+   * frame before any other callback. By default the frame is treated as just
+   * loaded and pinned, then unpinned unless still pinned.
+   */
+  protected void adopt(FrameDesc fdesc) {
+    pinPage(fdesc);
+    if (fdesc.pincnt == 0) {
+      unpinPage(fdesc);
+    }
+  }
+
+  /**
+   * Adds the counters this replacer keeps, such as ghost hits, by name; by
+   * default there are none.
+   */
+  protected void addCounters(Map<String, Long> counters) {
+  }
+
 } // abstract class Replacer implements GlobalConst
@@ -0,0 +1,175 @@
+package bufmgr;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Replacement policies by name, so a buffer manager can be given its policy
+ * at run time. Names are not case sensitive.
+ * <p>
+ * The policies in this package are registered under their class names, with
+ * Random for RandomPolicy and 2Q for TwoQ. A policy that is not registered
+ * can still be named by its class name, with or without the package, provided
+ * it has a public constructor taking just the buffer manager. Replacer and
+ * FrameDesc are package-private, so such a policy must be in package bufmgr.
+ * <p>
+ * A policy that filters another, such as TinyLfu, is also registered as a
+ * wrapper, and then takes the policy it filters after a colon: TinyLfu:Lru is
+ * TinyLFU admission in front of Lru. Alone, TinyLfu filters Clock.
+ */
+class ReplacerRegistry {
+
+    /**
+     * Makes a replacer for a buffer manager.
+     */
+    interface Factory {
+        Replacer create(BufferManager mgr);
+    }
+
+    /**
+     * Makes a replacer that filters another for a buffer manager.
+     */
+    interface WrapperFactory {
+        Replacer create(BufferManager mgr, Replacer inner);
+    }
+
+    /** Factories by lower-case name. */
+    private static final Map<String, Factory> factories =
+        new ConcurrentHashMap<String, Factory>();
+
+    /** Wrapper factories by lower-case name. */
+    private static final Map<String, WrapperFactory> wrappers =
+        new ConcurrentHashMap<String, WrapperFactory>();
+
+    /** Registered names, as given. */
+    private static final List<String> names = new ArrayList<String>();
+
+    static {
+        register("Clock", new Factory() {
+            public Replacer create(BufferManager mgr) { return new Clock(mgr); }
+        });
+        register("Lru", new Factory() {
+            public Replacer create(BufferManager mgr) { return new Lru(mgr); }
+        });
+        register("Random", new Factory() {
+            public Replacer create(BufferManager mgr) { return new RandomPolicy(mgr); }
+        });
+        register("LruK", new Factory() {
+            public Replacer create(BufferManager mgr) { return new LruK(mgr); }
+        });
+        register("2Q", new Factory() {
+            public Replacer create(BufferManager mgr) { return new TwoQ(mgr); }
+        });
+        register("GClock", new Factory() {
+            public Replacer create(BufferManager mgr) { return new GClock(mgr); }
+        });
+        register("Arc", new Factory() {
+            public Replacer create(BufferManager mgr) { return new Arc(mgr); }
+        });
+        register("ClockPro", new Factory() {
+            public Replacer create(BufferManager mgr) { return new ClockPro(mgr); }
+        });
+        register("Lirs", new Factory() {
+            public Replacer create(BufferManager mgr) { return new Lirs(mgr); }
+        });
+        register("TinyLfu", new Factory() {
+            public Replacer create(BufferManager mgr) { return new TinyLfu(mgr); }
+        });
+        registerWrapper("TinyLfu", new WrapperFactory() {
+            public Replacer create(BufferManager mgr, Replacer inner) {
+                return new TinyLfu(mgr, inner, TinyLfu.DEFAULT_WINDOW_FRACTION);
+            }
+        });
+    }
+
+    // --------------------------------------------------------------------------
+
+    /**
+     * Registers a policy under the given name, replacing any policy already
+     * registered under it.
+     */
+    static synchronized void register(String name, Factory factory) {
+        if (factories.put(name.toLowerCase(Locale.ROOT), factory) == null) {
+            names.add(name);
+        }
+    }
+
+    /**
+     * Registers a policy that filters another under the given name, for
+     * names of the form name:inner, replacing any wrapper already registered
+     * under it. The name alone is only a policy if registered with register.
+     */
+    static void registerWrapper(String name, WrapperFactory factory) {
+        wrappers.put(name.toLowerCase(Locale.ROOT), factory);
+    }
+
+    /**
+     * Gets the registered policy names, in the order registered.
+     */
+    static synchronized List<String> names() {
+        return Collections.unmodifiableList(new ArrayList<String>(names));
+    }
+
+    /**
+     * Makes the named policy's replacer for the given buffer manager.
+     *
+     * @throws IllegalArgumentException if no policy has that name
+     */
+    static Replacer create(String name, BufferManager mgr) {
+        int colon = name.indexOf(':');
+        if (colon >= 0) {
+            String outer = name.substring(0, colon);
+            WrapperFactory wrapper = wrappers.get(outer.toLowerCase(Locale.ROOT));
+            if (wrapper == null) {
+                throw new IllegalArgumentException("Replacement policy " + outer
+                    + " does not filter another: " + name);
+            }
+            return wrapper.create(mgr, create(name.substring(colon + 1), mgr));
+        }
+        Factory factory = factories.get(name.toLowerCase(Locale.ROOT));
+        if (factory != null) {
+            return factory.create(mgr);
+        }
+        Class<?> cls = findClass(name);
+        if (cls == null || !Replacer.class.isAssignableFrom(cls)) {
+            throw new IllegalArgumentException("Unknown replacement policy: " + name);
+        }
+        try {
+            Constructor<?> ctor = cls.getConstructor(BufferManager.class);
+            return (Replacer) ctor.newInstance(mgr);
+        } catch (NoSuchMethodException exc) {
+            throw new IllegalArgumentException("Replacement policy " + name
+                + " has no public constructor taking a BufferManager");
+        } catch (InvocationTargetException exc) {
+            if (exc.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exc.getCause();
+            }
+            throw new IllegalStateException(exc.getCause());
+        } catch (ReflectiveOperationException exc) {
+            throw new IllegalArgumentException("Cannot make replacement policy " + name, exc);
+        }
+    }
+
+    /**
+     * Finds a class by its name in this package, or by its full name.
+     *
+     * @return the class, or null if there is none
+     */
+    private static Class<?> findClass(String name) {
+        for (String full : new String[] { "bufmgr." + name, name }) {
+            try {
+                return Class.forName(full);
+            } catch (ClassNotFoundException exc) {
+                // try the next
+            }
+        }
+        return null;
+    }
+
+} // class ReplacerRegistry
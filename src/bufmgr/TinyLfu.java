@@ -0,0 +1,224 @@
+
+package bufmgr;
+
+import global.PageId;
+import java.util.Map;
+
+/**
+ * TinyLFU admission in front of another replacement policy (Einziger,
+ * Friedman and Manes).
+ * <p>
+ * A FrequencySketch counts recent pins of every page, resident or not. On a
+ * miss the wrapped replacer proposes a victim as usual, and the incoming page
+ * displaces it if it has been pinned at least as often lately, not counting
+ * the pin that missed; otherwise it is read into a small LRU window of frames
+ * set aside for such pages, so a scan or a burst of one-hit wonders churns
+ * the window and not the hot pages. When the window's least recently used
+ * page is about to go, it still takes the victim's place if it has become
+ * the more frequent of the two.
+ * <p>
+ * The wrapped replacer sees window frames as pinned; a window frame that
+ * takes a victim's place is unpinned to it, and a victim it proposed but did
+ * not lose is handed back through unpick, so it keeps its history.
+ */
+class TinyLfu extends Replacer {
+
+    /** Default size of the window, as a fraction of the pool. */
+    public static final double DEFAULT_WINDOW_FRACTION = 0.01;
+
+    /** The wrapped replacer, managing all frames outside the window. */
+    protected final Replacer main;
+
+    /** Recent pin counts of pages. */
+    protected final FrequencySketch sketch;
+
+    /** Maximum number of window frames. */
+    protected final int windowLimit;
+
+    /** Number of window frames, pinned or not. */
+    protected int windowCount;
+
+    /** Misses whose page was not admitted past the window. */
+    protected long rejected;
+
+    /** Whether each frame is in the window. */
+    protected boolean[] inWindow;
+
+    /** Unpinned window frames, least recently used first. */
+    protected FrameList window;
+
+    /** Whether each window frame was picked by the wrapped replacer and has
+     * not been given a new page yet. */
+    protected boolean[] fromMain;
+
+    /**
+     * Constructs a TinyLFU filter in front of Clock; the policy TinyLfu:Lru
+     * and the like filter others.
+     */
+    public TinyLfu(BufferManager mgrArg) {
+        this(mgrArg, new Clock(mgrArg), DEFAULT_WINDOW_FRACTION);
+    }
+
+    /**
+     * Class constructor.
+     *
+     * @param main the replacer to filter, over the same buffer manager
+     * @param windowFraction size of the window, as a fraction of the pool
+     */
+    public TinyLfu(BufferManager mgrArg, Replacer main, double windowFraction) {
+        super(mgrArg);
+        this.main = main;
+        int numbufs = mgrArg.getNumBuffers();
+        sketch = new FrequencySketch(numbufs);
+        windowLimit = Math.max(1, (int) (windowFraction * numbufs));
+        inWindow = new boolean[numbufs];
+        window = new FrameList(numbufs);
+        fromMain = new boolean[numbufs];
+    }
+
+    /**
+     * Notifies the replacer of a new page.
+     */
+    public synchronized void newPage(FrameDesc fdesc) {
+        main.newPage(fdesc);
+    }
+
+    /**
+     * Notifies the replacer of a free page.
+     */
+    public synchronized void freePage(FrameDesc fdesc) {
+        // an empty frame goes back to the wrapped replacer
+        setWindow(fdesc.index, false);
+        fromMain[fdesc.index] = false;
+        window.remove(fdesc.index);
+        main.freePage(fdesc);
+    }
+
+    /**
+     * Notifies the replacer of a pined page.
+     */
+    public synchronized void pinPage(FrameDesc fdesc) {
+        // a page read ahead is counted when it is pinned for real
+        if (!fdesc.prefetched.get()) {
+            sketch.increment(fdesc.pageno.pid);
+        }
+        if (inWindow[fdesc.index]) {
+            window.remove(fdesc.index);
+        }
+        fromMain[fdesc.index] = false;
+        // for a window frame this keeps the wrapped replacer off it
+        main.pinPage(fdesc);
+    }
+
+    /**
+     * Notifies the replacer of an unpinned page.
+     */
+    public synchronized void unpinPage(FrameDesc fdesc) {
+        if (!inWindow[fdesc.index]) {
+            main.unpinPage(fdesc);
+        } else if (fdesc.pincnt == 0) {
+            //most recently used goes to the end
+            window.addLast(fdesc.index);
+        }
+    }
+
+    /**
+     * Takes back a victim the buffer manager could not use, without counting
+     * a pin: a window frame goes back to the front of the window, and
+     * anything else, including a victim just moved to the window, to the
+     * wrapped replacer.
+     */
+    protected synchronized void unpick(FrameDesc fdesc) {
+        int f = fdesc.index;
+        if (inWindow[f] && !fromMain[f]) {
+            if (fdesc.pincnt == 0) {
+                window.addFirst(f);
+            }
+            return;
+        }
+        setWindow(f, false);
+        fromMain[f] = false;
+        main.unpick(fdesc);
+    }
+
+    /**
+     * Picks a victim without knowing the incoming page, which is admitted.
+     */
+    public int pickVictim() {
+        return pickVictim(null);
+    }
+
+    /**
+     * Finding a free frame in the buffer pool
+     * or choosing a page to replace using your policy
+     *
+     * @return  return the frame number
+     *      return -1 if failed
+     */
+    public synchronized int pickVictim(PageId incoming) {
+        int v = main.pickVictim();
+        if (v < 0) {
+            // nothing left outside the window
+            return window.removeFirst();
+        }
+        // the incoming page's current pin is not counted yet
+        int victimPid = frametab[v].pageno.pid;
+        if (incoming == null || victimPid == INVALID_PAGEID
+                || sketch.frequency(incoming.pid) >= sketch.frequency(victimPid)) {
+            return v;
+        }
+
+        // not admitted: the page goes to the window, which takes the victim's
+        // frame while it is still growing
+        rejected++;
+        if (windowCount < windowLimit) {
+            setWindow(v, true);
+            fromMain[v] = true;
+            return v;
+        }
+        int w = window.removeFirst();
+        if (w == FrameList.NONE) {
+            return v;
+        }
+        if (sketch.frequency(frametab[w].pageno.pid) > sketch.frequency(victimPid)) {
+            // the window's page has earned a place; the victim's frame joins
+            // the window instead
+            setWindow(w, false);
+            setWindow(v, true);
+            fromMain[v] = true;
+            restore(w);
+            return v;
+        }
+        main.unpick(frametab[v]);
+        return w;
+    }
+
+    /**
+     * Moves a frame into or out of the window.
+     */
+    protected void setWindow(int f, boolean in) {
+        if (inWindow[f] != in) {
+            inWindow[f] = in;
+            windowCount += in ? 1 : -1;
+        }
+    }
+
+    /**
+     * Hands a window frame over to the wrapped replacer, which saw its page
+     * pinned and now sees it unpinned, unless it still is.
+     */
+    protected void restore(int f) {
+        if (frametab[f].pincnt == 0) {
+            main.unpinPage(frametab[f]);
+        }
+    }
+
+    /**
+     * Adds the pages not admitted, and the wrapped replacer's counters.
+     */
+    protected synchronized void addCounters(Map<String, Long> counters) {
+        counters.put("rejected", rejected);
+        main.addCounters(counters);
+    }
+
+} // class TinyLfu extends Replacer
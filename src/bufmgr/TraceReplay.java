@@ -0,0 +1,330 @@
+package bufmgr;
+
+import diskmgr.DiskMgr;
+import global.GlobalConst;
+import global.Minibase;
+import global.Page;
+import global.PageId;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Replays a page reference trace, recorded by BufferManager.startTrace,
+ * against every registered replacement policy and Belady's OPT, at a range of
+ * pool sizes, and prints the hit ratios as CSV:
+ * <pre>
+ * java bufmgr.TraceReplay trace-file [frames,frames,...|-] [policy,policy,...]
+ * </pre>
+ * The trace is read once and replayed from memory. Without a list of sizes,
+ * or with -, pools of 16 frames and up, doubling, are tried, up to the number
+ * of distinct pages in the trace. A list of policies replaces the registered
+ * ones, and may name any policy BufferManager takes, such as TinyLfu:Lru.
+ * <p>
+ * Each policy runs in a real BufferManager, with read-ahead off, over a disk
+ * manager that keeps nothing. A pin that finds every frame pinned counts as a
+ * miss and is skipped, along with its unpin. OPT evicts the page used again
+ * furthest in the future and ignores pins, so it bounds what any policy can
+ * reach. The dirty_writes column counts victims that had to be written.
+ * <p>
+ * The replay sets Minibase.DiskManager, so it is not for use in a running
+ * system.
+ */
+public class TraceReplay implements GlobalConst {
+
+    /** Operations in the trace, and their pages. */
+    protected int[] ops;
+    protected int[] pids;
+    protected int count;
+
+    // --------------------------------------------------------------------------
+
+    /**
+     * Application entry point.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 3) {
+            System.err.println("usage: java bufmgr.TraceReplay trace-file"
+                + " [frames,frames,...|-] [policy,policy,...]");
+            System.exit(2);
+        }
+        TraceReplay replay = new TraceReplay();
+        replay.load(args[0]);
+        int[] sizes;
+        if (args.length > 1 && !args[1].equals("-")) {
+            String[] parts = args[1].split(",");
+            sizes = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                sizes[i] = Integer.parseInt(parts[i].trim());
+            }
+        } else {
+            sizes = replay.defaultSizes();
+        }
+
+        List<String> policies = new ArrayList<String>(ReplacerRegistry.names());
+        if (args.length > 2) {
+            policies.clear();
+            for (String policy : args[2].split(",")) {
+                policies.add(policy.trim());
+            }
+        }
+        System.out.println("policy,frames,references,hits,hit_ratio,dirty_writes");
+        int refs = replay.references();
+        for (int frames : sizes) {
+            long hits = replay.opt(frames);
+            System.out.println("OPT," + frames + "," + refs + "," + hits + ","
+                + ratio(hits, refs) + ",");
+            for (String policy : policies) {
+                long[] result = replay.replay(policy, frames);
+                System.out.println(policy + "," + frames + "," + refs + ","
+                    + result[0] + "," + ratio(result[0], refs) + "," + result[1]);
+            }
+        }
+    }
+
+    /**
+     * Reads a trace file into memory.
+     *
+     * @throws IOException if the file cannot be read or is not a trace
+     */
+    public void load(String fname) throws IOException {
+        ops = new int[1024];
+        pids = new int[1024];
+        count = 0;
+        InputStream in = new BufferedInputStream(new FileInputStream(fname), 1 << 16);
+        try {
+            int magic = 0;
+            for (int i = 0; i < 4; i++) {
+                magic = (magic << 8) | readByte(in);
+            }
+            if (magic != TraceWriter.MAGIC || readByte(in) != TraceWriter.VERSION) {
+                throw new IOException("Not a page trace: " + fname);
+            }
+            for (int op; (op = in.read()) >= 0; count++) {
+                if (count == ops.length) {
+                    ops = Arrays.copyOf(ops, 2 * count);
+                    pids = Arrays.copyOf(pids, 2 * count);
+                }
+                ops[count] = op;
+                pids[count] = (int) readVarint(in);
+                // the times are kept in the file for other tools
+                readVarint(in);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Gets the number of pins in the trace.
+     */
+    public int references() {
+        int refs = 0;
+        for (int i = 0; i < count; i++) {
+            if (ops[i] == TraceWriter.PIN) {
+                refs++;
+            }
+        }
+        return refs;
+    }
+
+    /**
+     * Gets pool sizes from 16 frames, doubling, up to the number of distinct
+     * pages pinned in the trace.
+     */
+    public int[] defaultSizes() {
+        Set<Integer> seen = new HashSet<Integer>();
+        for (int i = 0; i < count; i++) {
+            if (ops[i] == TraceWriter.PIN) {
+                seen.add(pids[i]);
+            }
+        }
+        int distinct = seen.size();
+        List<Integer> sizes = new ArrayList<Integer>();
+        for (int frames = 16; frames < distinct; frames *= 2) {
+            sizes.add(frames);
+        }
+        sizes.add(Math.max(1, distinct));
+        int[] result = new int[sizes.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = sizes.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Replays the trace against a pool of the given size and policy.
+     *
+     * @return the number of hits, and of victims written because dirty
+     */
+    public long[] replay(String policy, int frames) {
+        Minibase.DiskManager = new NullDiskMgr();
+        BufferManager mgr = new BufferManager(frames, policy);
+        mgr.setReadAhead(0, 0);
+        Page page = new Page();
+        PageId pageno = new PageId();
+        // pins that could not be made, by page, whose unpins are skipped
+        Map<Integer, Integer> skipped = new HashMap<Integer, Integer>();
+        long hits = 0;
+        for (int i = 0; i < count; i++) {
+            pageno.pid = pids[i];
+            switch (ops[i]) {
+            case TraceWriter.PIN:
+                FrameDesc fdesc = mgr.lookup(pageno.pid);
+                if (fdesc != null && fdesc.pageno.pid == pageno.pid) {
+                    hits++;
+                }
+                try {
+                    mgr.pinPage(pageno, page, PIN_DISKIO);
+                } catch (IllegalStateException exc) {
+                    Integer n = skipped.get(pageno.pid);
+                    skipped.put(pageno.pid, n == null ? 1 : n + 1);
+                }
+                break;
+            case TraceWriter.UNPIN:
+            case TraceWriter.UNPIN_DIRTY:
+                Integer n = skipped.get(pageno.pid);
+                if (n != null) {
+                    if (n == 1) {
+                        skipped.remove(pageno.pid);
+                    } else {
+                        skipped.put(pageno.pid, n - 1);
+                    }
+                    break;
+                }
+                try {
+                    mgr.unpinPage(pageno, ops[i] == TraceWriter.UNPIN_DIRTY);
+                } catch (IllegalArgumentException exc) {
+                    // its pin was made before the trace started
+                }
+                break;
+            case TraceWriter.FREE:
+                try {
+                    mgr.freePage(pageno);
+                } catch (IllegalArgumentException exc) {
+                    // still pinned here, by pins skipped above
+                }
+                break;
+            default:
+                break;
+            }
+        }
+        return new long[] { hits, mgr.getDirtyVictimWrites() };
+    }
+
+    /**
+     * Replays the pins in the trace against Belady's OPT with the given
+     * number of frames.
+     *
+     * @return the number of hits
+     */
+    public long opt(int frames) {
+        // where each pin's page is pinned next, or count if never
+        int[] nextUse = new int[count];
+        Map<Integer, Integer> later = new HashMap<Integer, Integer>();
+        for (int i = count - 1; i >= 0; i--) {
+            if (ops[i] == TraceWriter.PIN) {
+                Integer next = later.put(pids[i], i);
+                nextUse[i] = next == null ? count : next;
+            }
+        }
+
+        // resident pages by their next use; entries whose page has been used
+        // again since are stale and skipped
+        Map<Integer, Integer> resident = new HashMap<Integer, Integer>();
+        PriorityQueue<Long> furthest = new PriorityQueue<Long>(Math.max(1, frames),
+            Collections.<Long>reverseOrder());
+        long hits = 0;
+        for (int i = 0; i < count; i++) {
+            if (ops[i] != TraceWriter.PIN) {
+                continue;
+            }
+            int pid = pids[i];
+            if (resident.containsKey(pid)) {
+                hits++;
+            } else if (resident.size() == frames) {
+                for (;;) {
+                    long entry = furthest.poll();
+                    int victim = (int) entry;
+                    Integer use = resident.get(victim);
+                    if (use != null && use == (int) (entry >>> 32)) {
+                        resident.remove(victim);
+                        break;
+                    }
+                }
+            }
+            resident.put(pid, nextUse[i]);
+            furthest.add(((long) nextUse[i] << 32) | (pid & 0xFFFFFFFFL));
+        }
+        return hits;
+    }
+
+    /**
+     * Formats a hit ratio.
+     */
+    protected static String ratio(long hits, int refs) {
+        return refs == 0 ? "0" : String.format("%.6f", (double) hits / refs);
+    }
+
+    /**
+     * Reads one byte.
+     */
+    protected static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Trace ends in a record");
+        }
+        return b;
+    }
+
+    /**
+     * Reads an unsigned variable-length integer.
+     */
+    protected static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * A disk manager that keeps nothing: every page reads as zeros.
+     */
+    protected static class NullDiskMgr extends DiskMgr {
+
+        public PageId allocate_page(int run_size) {
+            return new PageId(0);
+        }
+
+        public void deallocate_page(PageId pageno) {
+        }
+
+        public void deallocate_page(PageId pageno, int run_size) {
+        }
+
+        public void read_page(PageId pageno, Page mempage) {
+            Arrays.fill(mempage.getData(), (byte) 0);
+        }
+
+        public void write_page(PageId pageno, Page mempage) {
+        }
+
+    } // protected static class NullDiskMgr extends DiskMgr
+
+} // public class TraceReplay implements GlobalConst
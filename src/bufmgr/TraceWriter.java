@@ -0,0 +1,105 @@
+package bufmgr;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Records the buffer manager's page references to a file, for TraceReplay.
+ * <p>
+ * The file starts with MAGIC and VERSION. Each record is one byte for the
+ * operation, then the page number and the microseconds since the previous
+ * record, both as unsigned variable-length integers (seven bits a byte, low
+ * bits first, high bit set on all but the last byte), so most records take
+ * three to five bytes. Records from several threads are written in the order
+ * they get the writer's lock.
+ */
+class TraceWriter {
+
+    /** First bytes of a trace file ("BMTR"). */
+    static final int MAGIC = 0x424D5452;
+
+    /** Version of the format. */
+    static final int VERSION = 1;
+
+    /** Operations. */
+    static final int PIN = 1;
+    static final int UNPIN = 2;
+    static final int UNPIN_DIRTY = 3;
+    static final int FREE = 4;
+
+    /** The trace file. */
+    protected final OutputStream out;
+
+    /** Time of the last record, in nanoseconds. */
+    protected long lastTime;
+
+    /** First error writing the file, after which nothing more is written. */
+    protected IOException error;
+
+    // --------------------------------------------------------------------------
+
+    /**
+     * Creates the trace file, replacing any file of that name.
+     */
+    TraceWriter(String fname) throws IOException {
+        out = new BufferedOutputStream(new FileOutputStream(fname), 1 << 16);
+        out.write(MAGIC >>> 24);
+        out.write(MAGIC >>> 16);
+        out.write(MAGIC >>> 8);
+        out.write(MAGIC);
+        out.write(VERSION);
+        lastTime = System.nanoTime();
+    }
+
+    /**
+     * Records an operation on a page.
+     */
+    synchronized void record(int op, int pid) {
+        if (error != null) {
+            return;
+        }
+        long now = System.nanoTime();
+        long micros = (now - lastTime) / 1000;
+        // only whole microseconds are taken off, so no time is lost
+        lastTime += micros * 1000;
+        try {
+            out.write(op);
+            writeVarint(pid & 0xFFFFFFFFL);
+            writeVarint(micros);
+        } catch (IOException exc) {
+            error = exc;
+        }
+    }
+
+    /**
+     * Writes the rest of the trace and closes the file.
+     *
+     * @throws IOException if any of the trace could not be written
+     */
+    synchronized void close() throws IOException {
+        try {
+            out.close();
+        } catch (IOException exc) {
+            if (error == null) {
+                error = exc;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Writes an unsigned variable-length integer.
+     */
+    protected void writeVarint(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+} // class TraceWriter
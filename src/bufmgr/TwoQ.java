@@ -0,0 +1,236 @@
+
+package bufmgr;
+
+import java.util.Map;
+
+/**
+ * 2Q replacement policy (Johnson and Shasha), full version.
+ * <p>
+ * A page read in for the first time goes to A1in, a FIFO probation queue; it
+ * is not moved by further hits there, so a sequential pass only ever churns
+ * A1in. When a page leaves A1in its page number is remembered in the ghost
+ * queue A1out, and a page read in again while in A1out is considered hot and
+ * goes to Am, which is managed as LRU. Victims come from A1in while it holds
+ * more than its share of the pool, otherwise from Am.
+ * <p>
+ * A1in keeps its pinned frames in place to preserve FIFO order; a pinned frame
+ * that reaches its head is in use, so it is promoted to Am instead of being
+ * skipped. Am keeps only unpinned frames. Every operation is O(1) amortized.
+ */
+class TwoQ extends Replacer {
+
+    //
+    // Frame State Constants
+    //
+    protected static final int AVAILABLE = 10;
+    protected static final int PINNED = 12;
+
+    /** Which queue a resident frame belongs to. */
+    protected static final int NONE = 0;
+    protected static final int A1IN = 1;
+    protected static final int AM = 2;
+
+    /** Default size of A1in, as a fraction of the pool. */
+    public static final double DEFAULT_IN_FRACTION = 0.25;
+
+    /** Default size of A1out, as a fraction of the pool. */
+    public static final double DEFAULT_OUT_FRACTION = 0.5;
+
+    /** Maximum number of frames A1in may hold before it gives up victims. */
+    protected final int kin;
+
+    /** Page held by each frame, or INVALID_PAGEID. */
+    protected int[] residentPid;
+
+    /** Queue each frame belongs to, pinned or not. */
+    protected int[] queue;
+
+    /** Empty frames. */
+    protected FrameList availableFrames;
+
+    /** A1in frames, pinned or not, in order of arrival. */
+    protected FrameList a1in;
+
+    /** Unpinned Am frames, least recently used first. */
+    protected FrameList am;
+
+    /** Pages recently evicted from A1in. */
+    protected GhostList a1out;
+
+    /** Misses on an A1out ghost, which go straight to Am. */
+    protected long a1outHits;
+
+    /**
+     * Constructs a 2Q replacer with the default queue sizes.
+     */
+    public TwoQ(BufferManager mgrArg) {
+        this(mgrArg, DEFAULT_IN_FRACTION, DEFAULT_OUT_FRACTION);
+    }
+
+    /**
+     * Constructs a 2Q replacer.
+     *
+     * @param inFraction size of A1in, as a fraction of the pool
+     * @param outFraction size of A1out, as a fraction of the pool
+     */
+    public TwoQ(BufferManager mgrArg, double inFraction, double outFraction) {
+        super(mgrArg);
+        int numbufs = mgrArg.getNumBuffers();
+        kin = Math.max(1, (int) (inFraction * numbufs));
+        residentPid = new int[numbufs];
+        queue = new int[numbufs];
+        availableFrames = new FrameList(numbufs);
+        a1in = new FrameList(numbufs);
+        am = new FrameList(numbufs);
+        a1out = new GhostList((int) (outFraction * numbufs));
+        for (int i = 0; i < numbufs; i++) {
+            frametab[i].state = AVAILABLE;
+            residentPid[i] = INVALID_PAGEID;
+            queue[i] = NONE;
+            availableFrames.addLast(i);
+        }
+    }
+
+    /**
+     * Notifies the replacer of a new page.
+     */
+    public synchronized void newPage(FrameDesc fdesc) {
+        // no need to update frame state
+    }
+
+    /**
+     * Notifies the replacer of a free page.
+     */
+    public synchronized void freePage(FrameDesc fdesc) {
+        int f = fdesc.index;
+        fdesc.state = AVAILABLE;
+        a1in.remove(f);
+        am.remove(f);
+        queue[f] = NONE;
+        residentPid[f] = INVALID_PAGEID;
+        availableFrames.addLast(f);
+    }
+
+    /**
+     * Notifies the replacer of a pined page.
+     */
+    public synchronized void pinPage(FrameDesc fdesc) {
+        int f = fdesc.index;
+        int pid = fdesc.pageno.pid;
+        fdesc.state = PINNED;
+        availableFrames.remove(f);
+
+        if (residentPid[f] == pid) {
+            // a hit in A1in leaves it alone; a hit in Am takes it off the
+            // LRU list until it is unpinned
+            if (queue[f] == AM) {
+                am.remove(f);
+            }
+            return;
+        }
+
+        residentPid[f] = pid;
+        a1in.remove(f);
+        am.remove(f);
+        if (a1out.remove(pid) != GhostList.NONE) {
+            // referenced again after leaving probation: it is hot
+            queue[f] = AM;
+            a1outHits++;
+        } else {
+            queue[f] = A1IN;
+            a1in.addLast(f);
+        }
+    }
+
+    /**
+     * Notifies the replacer of an unpinned page.
+     */
+    public synchronized void unpinPage(FrameDesc fdesc) {
+        if (fdesc.pincnt == 0) {
+            fdesc.state = AVAILABLE;
+            if (queue[fdesc.index] == AM) {
+                //most recently used goes to the end
+                am.addLast(fdesc.index);
+            }
+        }
+    }
+
+    /**
+     * Takes back a victim the buffer manager could not use: a page just sent
+     * from A1in to A1out returns to the head of A1in, without an A1out hit,
+     * and an Am page to the head of Am.
+     */
+    protected synchronized void unpick(FrameDesc fdesc) {
+        int f = fdesc.index;
+        int pid = fdesc.pageno.pid;
+        if (pid == INVALID_PAGEID) {
+            freePage(fdesc);
+            return;
+        }
+        if (residentPid[f] == pid) {
+            // pinned again since it was picked, which put it back
+            return;
+        }
+        residentPid[f] = pid;
+        fdesc.state = (fdesc.pincnt == 0) ? AVAILABLE : PINNED;
+        if (a1out.remove(pid) != GhostList.NONE) {
+            queue[f] = A1IN;
+            a1in.addFirst(f);
+        } else {
+            queue[f] = AM;
+            if (fdesc.pincnt == 0) {
+                am.addFirst(f);
+            }
+        }
+    }
+
+    /**
+     * Finding a free frame in the buffer pool
+     * or choosing a page to replace using your policy
+     *
+     * @return  return the frame number
+     *      return -1 if failed
+     */
+    public synchronized int pickVictim() {
+        //check if any frame is empty
+        int f = availableFrames.removeFirst();
+        if (f != FrameList.NONE) {
+            return f;
+        }
+
+        // A1in gives up its oldest page while over its share, or when Am has
+        // nothing unpinned to offer
+        while (a1in.size() > kin || am.isEmpty()) {
+            f = a1in.removeFirst();
+            if (f == FrameList.NONE) {
+                break;
+            }
+            if (frametab[f].pincnt == 0) {
+                a1out.add(residentPid[f]);
+                return evict(f);
+            }
+            // still in use after a full trip through probation
+            queue[f] = AM;
+        }
+
+        f = am.removeFirst();
+        return (f == FrameList.NONE) ? -1 : evict(f);
+    }
+
+    /**
+     * Forgets the frame's page and returns the frame.
+     */
+    protected int evict(int f) {
+        queue[f] = NONE;
+        residentPid[f] = INVALID_PAGEID;
+        return f;
+    }
+
+    /**
+     * Adds the ghost hits.
+     */
+    protected synchronized void addCounters(Map<String, Long> counters) {
+        counters.put("a1outHits", a1outHits);
+    }
+
+} // class TwoQ extends Replacer
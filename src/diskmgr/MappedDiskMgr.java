@@ -0,0 +1,170 @@
+package diskmgr;
+
+import bufmgr.BufferManager;
+import global.GlobalConst;
+import global.Minibase;
+import global.Page;
+import global.PageId;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * A disk manager that reads and writes pages through memory mappings of the
+ * database file instead of a seek and a read or write call per page.
+ * <p>
+ * The file is mapped in chunks of CHUNK_PAGES pages, each the first time one
+ * of its pages is used, and a chunk is mapped again when the database has
+ * grown past it; a read is then a copy out of the page cache and a write a
+ * copy into it. Written pages reach the disk when the operating system gets
+ * to them, or when force() is called, as the buffer manager does from
+ * flushAllPages and closeDB does after flushing. Like DiskMgr it is not
+ * thread-safe; the buffer manager serializes its calls.
+ * <p>
+ * Minibase.init always makes a DiskMgr, and the space map and file entries
+ * stay in pages of the shipped Minibase.BufferManager. To use a MappedDiskMgr
+ * with a BufferManager, let Minibase create or open the database, then move
+ * it over:
+ * <pre>
+ * new Minibase(dbname, num_pgs, bufs, policy, reuse);
+ * Minibase.DiskManager.closeDB();
+ * MappedDiskMgr disk = new MappedDiskMgr();
+ * Minibase.DiskManager = disk;
+ * disk.openDB(dbname);
+ * disk.setBufferManager(pool);
+ * </pre>
+ * Minibase.DiskManager is set before openDB, since openDB reads the first
+ * page through Minibase.BufferManager, which reads through it.
+ */
+public class MappedDiskMgr extends DiskMgr implements GlobalConst {
+
+    /** Pages per mapped chunk (8 MB). */
+    public static final int CHUNK_PAGES = 8192;
+
+    /** Bytes per mapped chunk. */
+    protected static final long CHUNK_BYTES = (long) CHUNK_PAGES * MINIBASE_PAGESIZE;
+
+    /** Mapped chunks of the file, or null where not mapped yet. */
+    protected MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+
+    /** The buffer pool flushed on close, or null. */
+    protected BufferManager pool;
+
+    /**
+     * Sets the buffer pool whose pages closeDB flushes, before those
+     * Minibase.BufferManager holds; closeDB also shuts the pool down.
+     */
+    public void setBufferManager(BufferManager pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Creates and opens a new database with the given file name and size.
+     */
+    public void createDB(String fname, int num_pgs) {
+        chunks = new MappedByteBuffer[0];
+        super.createDB(fname, num_pgs);
+    }
+
+    /**
+     * Opens the database with the given file name.
+     */
+    public void openDB(String fname) {
+        chunks = new MappedByteBuffer[0];
+        super.openDB(fname);
+    }
+
+    /**
+     * Flushes all pages, forces them to disk and closes the database.
+     */
+    public void closeDB() {
+        if (pool != null) {
+            // read-ahead must not read from the file once it is closed
+            pool.shutdown();
+            pool.flushAllPages();
+        }
+        if (Minibase.BufferManager != null) {
+            Minibase.BufferManager.flushAllPages();
+        }
+        // a mapping stays valid after its channel is closed
+        force();
+        try {
+            fp.close();
+        } catch (IOException exc) {
+            Minibase.haltSystem(exc);
+        }
+        chunks = new MappedByteBuffer[0];
+    }
+
+    /**
+     * Forces every page written so far to the disk.
+     */
+    public void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            if (chunk != null) {
+                chunk.force();
+            }
+        }
+    }
+
+    /**
+     * Reads the contents of the specified page from disk.
+     *
+     * @throws IllegalArgumentException if pageno is invalid
+     */
+    public void read_page(PageId pageno, Page mempage) {
+        if ((pageno.pid < 0) || (pageno.pid >= num_pages)) {
+            throw new IllegalArgumentException("Invalid page number; read aborted");
+        }
+        ByteBuffer buf = slice(pageno.pid);
+        if (buf != null) {
+            buf.get(mempage.getData());
+            read_cnt++;
+        }
+    }
+
+    /**
+     * Writes the contents of the given page to disk.
+     *
+     * @throws IllegalArgumentException if pageno is invalid
+     */
+    public void write_page(PageId pageno, Page mempage) {
+        if ((pageno.pid < 0) || (pageno.pid >= num_pages)) {
+            throw new IllegalArgumentException("Invalid page number; write aborted");
+        }
+        ByteBuffer buf = slice(pageno.pid);
+        if (buf != null) {
+            buf.put(mempage.getData());
+            write_cnt++;
+        }
+    }
+
+    /**
+     * Gets a buffer positioned at the given page in its chunk, mapping the
+     * chunk first if needed; halts the system if the mapping fails.
+     */
+    protected ByteBuffer slice(int pid) {
+        int c = pid / CHUNK_PAGES;
+        long start = c * CHUNK_BYTES;
+        int size = (int) Math.min(CHUNK_BYTES, (long) num_pages * MINIBASE_PAGESIZE - start);
+        if (c >= chunks.length) {
+            chunks = Arrays.copyOf(chunks, c + 1);
+        }
+        if (chunks[c] == null || chunks[c].capacity() < size) {
+            // first use, or the database grew into this chunk
+            try {
+                chunks[c] = fp.getChannel().map(FileChannel.MapMode.READ_WRITE, start, size);
+            } catch (IOException exc) {
+                Minibase.haltSystem(exc);
+                return null;
+            }
+        }
+        ByteBuffer buf = chunks[c].duplicate();
+        buf.position((pid - c * CHUNK_PAGES) * MINIBASE_PAGESIZE);
+        return buf;
+    }
+
+} // public class MappedDiskMgr extends DiskMgr implements GlobalConst
@@ -0,0 +1,74 @@
+package diskmgr;
+
+import global.GlobalConst;
+import global.Minibase;
+import global.Page;
+import global.PageId;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads runs of consecutive pages with one scattering read each, instead of
+ * a seek and a read call per page.
+ * <p>
+ * The buffers wrap the pages' own arrays, so the run is read straight into
+ * them. As with RunWriter, only a plain DiskMgr is read this way; any
+ * subclass gets one read_page per page. Like DiskMgr this is not
+ * thread-safe; callers serialize calls on the disk manager.
+ */
+public class RunReader implements GlobalConst {
+
+    /**
+     * Reads count pages from disk, the first at the given page number and the
+     * rest at the pages after it.
+     *
+     * @return the number of read calls saved over one read_page per page
+     * @throws IllegalArgumentException if any of the page numbers is invalid
+     * @throws IllegalStateException if the file ends before the last page
+     */
+    public static int read_pages(DiskMgr disk, PageId firstno, Page[] pages,
+            int count) {
+        if (count == 1 || disk.getClass() != DiskMgr.class) {
+            PageId pageno = new PageId(firstno.pid);
+            for (int i = 0; i < count; i++, pageno.pid++) {
+                disk.read_page(pageno, pages[i]);
+            }
+            return 0;
+        }
+        if ((firstno.pid < 0) || (firstno.pid + count > disk.num_pages)) {
+            throw new IllegalArgumentException("Invalid page number; read aborted");
+        }
+
+        ByteBuffer[] bufs = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            bufs[i] = ByteBuffer.wrap(pages[i].getData());
+        }
+        ByteBuffer last = bufs[count - 1];
+        int calls = 0;
+        try {
+            // the channel shares its position with the RandomAccessFile
+            FileChannel channel = disk.fp.getChannel();
+            channel.position((long) firstno.pid * MINIBASE_PAGESIZE);
+            for (int i = 0; last.hasRemaining(); calls++) {
+                // a scattering read may stop short of the end
+                while (!bufs[i].hasRemaining()) {
+                    i++;
+                }
+                if (channel.read(bufs, i, count - i) < 0) {
+                    // createDB sizes the file, so it was cut short; rather
+                    // than leave the rest of the pages as they were
+                    throw new IllegalStateException("Page " + (firstno.pid + i)
+                        + " is past the end of the file; read aborted");
+                }
+            }
+        } catch (IOException exc) {
+            Minibase.haltSystem(exc);
+            return 0;
+        }
+        disk.read_cnt += count;
+        return count - calls;
+    }
+
+} // public class RunReader implements GlobalConst
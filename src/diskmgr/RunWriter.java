@@ -0,0 +1,70 @@
+package diskmgr;
+
+import global.GlobalConst;
+import global.Minibase;
+import global.Page;
+import global.PageId;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes runs of consecutive pages with one gathering write each, instead of
+ * a seek and a write call per page.
+ * <p>
+ * The buffers wrap the pages' own arrays, so the pages are not copied into
+ * one big array first. Only a plain DiskMgr is written this way: a
+ * MappedDiskMgr makes no system call per page anyway, and any other subclass
+ * may do more in write_page than put the bytes in the file, so both get one
+ * write_page per page. Like DiskMgr this is not thread-safe; callers
+ * serialize calls on the disk manager.
+ */
+public class RunWriter implements GlobalConst {
+
+    /**
+     * Writes count pages to disk, the first at the given page number and the
+     * rest at the pages after it.
+     *
+     * @return the number of write calls saved over one write_page per page
+     * @throws IllegalArgumentException if any of the page numbers is invalid
+     */
+    public static int write_pages(DiskMgr disk, PageId firstno, Page[] pages,
+            int count) {
+        if (count == 1 || disk.getClass() != DiskMgr.class) {
+            PageId pageno = new PageId(firstno.pid);
+            for (int i = 0; i < count; i++, pageno.pid++) {
+                disk.write_page(pageno, pages[i]);
+            }
+            return 0;
+        }
+        if ((firstno.pid < 0) || (firstno.pid + count > disk.num_pages)) {
+            throw new IllegalArgumentException("Invalid page number; write aborted");
+        }
+
+        ByteBuffer[] bufs = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            bufs[i] = ByteBuffer.wrap(pages[i].getData());
+        }
+        ByteBuffer last = bufs[count - 1];
+        int calls = 0;
+        try {
+            // the channel shares its position with the RandomAccessFile
+            FileChannel channel = disk.fp.getChannel();
+            channel.position((long) firstno.pid * MINIBASE_PAGESIZE);
+            for (int i = 0; last.hasRemaining(); calls++) {
+                // a gathering write may stop short of the end
+                while (!bufs[i].hasRemaining()) {
+                    i++;
+                }
+                channel.write(bufs, i, count - i);
+            }
+        } catch (IOException exc) {
+            Minibase.haltSystem(exc);
+            return 0;
+        }
+        disk.write_cnt += count;
+        return count - calls;
+    }
+
+} // public class RunWriter implements GlobalConst
@@ -0,0 +1,408 @@
+package tests;
+
+import bufmgr.BufferManager;
+import global.Convert;
+import global.Minibase;
+import global.Page;
+import global.PageId;
+import java.util.*;
+
+/**
+ * Test suite for pinning and unpinning from several threads at once, run
+ * against a BufferManager under each replacement policy, over a disk kept in
+ * memory.
+ */
+class ConcurrencyTest extends TestDriver {
+
+    /** The display name of the test suite. */
+    private static final String TEST_NAME = "buffer manager concurrency tests";
+
+    private static final int NUM_THREADS = 8;
+    private static final int NUM_ITERATIONS = 20000;
+    private static final int BUF_SIZE_MULTIPLIER = 3;
+    private static final int HOT_PAGE_FRACTION = 4;
+    private static final int NUM_NEW_PAGES = 100;
+
+    /** The buffer manager under test. */
+    protected BufferManager bufmgr;
+
+    /** The first of the pages test 1 writes. */
+    protected int firstPage;
+
+    /**
+     * Test application entry point; runs all tests.
+     */
+    public static void main(String argv[]) {
+
+        // run all the test cases, on a clean disk and pool for each policy
+        System.out.println("\n" + "Running " + TEST_NAME + "...");
+        boolean status = PASS;
+        for (String policy : BufferManager.getPolicyNames()) {
+            ConcurrencyTest bmt = new ConcurrencyTest();
+            Minibase.DiskManager = new MemoryDiskMgr(bmt.DB_SIZE);
+            bmt.bufmgr = new BufferManager(bmt.BUF_SIZE, policy);
+            status &= bmt.concurrentPinTest();
+            status &= bmt.setPolicyTest();
+            status &= bmt.resizeTest();
+            status &= bmt.newPageTest();
+        }
+
+        // display the final results
+        System.out.println();
+        if (status != PASS) {
+            System.out.println("Error(s) encountered during " + TEST_NAME + ".");
+        } else {
+            System.out.println("All " + TEST_NAME + " completed successfully!");
+        }
+
+    } // public static void main (String argv[])
+
+    /**
+     * Pins pages from several threads, mostly from a hot set that fits in the
+     * pool, and checks that every pin sees the page it asked for.
+     */
+    protected boolean concurrentPinTest() {
+
+        System.out.print("\n  Test 1 pins and unpins pages from " + NUM_THREADS
+            + " threads under " + bufmgr.getPolicy() + ":\n");
+
+        boolean status = PASS;
+        final int numDiskPages = bufmgr.getNumUnpinned() * BUF_SIZE_MULTIPLIER;
+        final int numHotPages = numDiskPages / HOT_PAGE_FRACTION;
+        Page pg = new Page();
+        PageId pid = new PageId();
+        PageId firstPid = new PageId();
+        System.out.print("  - Allocate a bunch of new pages\n");
+        try {
+            firstPid = bufmgr.newPage(pg, numDiskPages);
+            bufmgr.unpinPage(firstPid, UNPIN_CLEAN);
+        } catch (Exception e) {
+            System.err.print("*** Could not allocate " + numDiskPages);
+            System.err.print(" new pages in the database.\n");
+            e.printStackTrace();
+            return false;
+        }
+
+        // stamp each page with its own page number
+        System.out.print("  - Write something on each one\n");
+        for (pid.pid = firstPid.pid; status == PASS && pid.pid < firstPid.pid + numDiskPages; pid.pid = pid.pid + 1) {
+            try {
+                bufmgr.pinPage(pid, pg, PIN_DISKIO);
+                Convert.setIntValue(pid.pid + 99999, 0, pg.getData());
+                bufmgr.unpinPage(pid, UNPIN_DIRTY);
+            } catch (Exception e) {
+                status = FAIL;
+                System.err.print("*** Could not write page " + pid.pid + "\n");
+                e.printStackTrace();
+            }
+        }
+
+        System.out.print("  - Pin and unpin from all threads at once\n");
+        firstPage = firstPid.pid;
+        final boolean[] threadStatus = new boolean[NUM_THREADS];
+        Thread[] threads = new Thread[NUM_THREADS];
+        for (int t = 0; status == PASS && t < NUM_THREADS; t++) {
+            final int id = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    threadStatus[id] = pinLoop(id, firstPage, numHotPages, numDiskPages);
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; status == PASS && t < NUM_THREADS; t++) {
+            try {
+                threads[t].join();
+            } catch (InterruptedException e) {
+                status = FAIL;
+            }
+            status &= threadStatus[t];
+        }
+
+        if (status == PASS && bufmgr.getNumUnpinned() != bufmgr.getNumBuffers()) {
+            status = FAIL;
+            System.err.print("*** " + (bufmgr.getNumBuffers()
+                - bufmgr.getNumUnpinned()) + " frames are still pinned\n");
+        }
+
+        // every stamp must have reached the disk intact
+        if (status == PASS) {
+            System.out.print("  - Flush all pages and read them back from disk\n");
+            bufmgr.flushAllPages();
+            // pg still wraps a frame, so read into a page of its own
+            pg = new Page();
+            for (pid.pid = firstPage; pid.pid < firstPage + numDiskPages; pid.pid = pid.pid + 1) {
+                Minibase.DiskManager.read_page(pid, pg);
+                int data = Convert.getIntValue(0, pg.getData());
+                if (data != pid.pid + 99999) {
+                    status = FAIL;
+                    System.err.print("*** Read wrong data back from disk for page "
+                        + pid.pid + ", got " + (data - 99999) + "\n");
+                    break;
+                }
+            }
+        }
+
+        if (status == PASS) {
+            bufmgr.printBhrAndRefCount();
+            System.out.print("  Test 1 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean concurrentPinTest ()
+
+    /**
+     * Switches the policy over and over while the threads of test 1 pin the
+     * same pages again, and checks that every pin still sees its page and that
+     * no frame is left pinned.
+     */
+    protected boolean setPolicyTest() {
+
+        String policy = bufmgr.getPolicy();
+        System.out.print("\n  Test 2 switches policies while " + NUM_THREADS
+            + " threads pin pages, starting from " + policy + ":\n");
+
+        boolean status = PASS;
+        final int numDiskPages = bufmgr.getNumBuffers() * BUF_SIZE_MULTIPLIER;
+        final int numHotPages = numDiskPages / HOT_PAGE_FRACTION;
+        final boolean[] threadStatus = new boolean[NUM_THREADS];
+        Thread[] threads = new Thread[NUM_THREADS];
+        for (int t = 0; t < NUM_THREADS; t++) {
+            final int id = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    threadStatus[id] = pinLoop(NUM_THREADS + id, firstPage, numHotPages, numDiskPages);
+                }
+            };
+            threads[t].start();
+        }
+
+        System.out.print("  - Switch through every policy until the threads are done\n");
+        List<String> names = BufferManager.getPolicyNames();
+        int switches = 0;
+        for (int t = 0; t < NUM_THREADS; t++) {
+            while (threads[t].isAlive()) {
+                try {
+                    bufmgr.setPolicy(names.get(switches++ % names.size()));
+                } catch (Exception e) {
+                    status = FAIL;
+                    System.err.print("*** Could not switch policies\n");
+                    e.printStackTrace();
+                }
+            }
+            try {
+                threads[t].join();
+            } catch (InterruptedException e) {
+                status = FAIL;
+            }
+            status &= threadStatus[t];
+        }
+        bufmgr.setPolicy(policy);
+
+        if (status == PASS && bufmgr.getNumUnpinned() != bufmgr.getNumBuffers()) {
+            status = FAIL;
+            System.err.print("*** " + (bufmgr.getNumBuffers()
+                - bufmgr.getNumUnpinned()) + " frames are still pinned\n");
+        }
+
+        if (status == PASS) {
+            System.out.print("  Test 2 completed successfully after " + switches
+                + " switches.\n");
+        }
+        return status;
+
+    } // protected boolean setPolicyTest ()
+
+    /**
+     * Grows and shrinks the pool over and over while the threads of test 1
+     * pin the same pages again, and checks that every pin still sees its page
+     * and that no frame is left pinned.
+     */
+    protected boolean resizeTest() {
+
+        System.out.print("\n  Test 3 resizes the pool while " + NUM_THREADS
+            + " threads pin pages under " + bufmgr.getPolicy() + ":\n");
+
+        boolean status = PASS;
+        final int numbufs = bufmgr.getNumBuffers();
+        final int numDiskPages = numbufs * BUF_SIZE_MULTIPLIER;
+        final int numHotPages = numDiskPages / HOT_PAGE_FRACTION;
+        final boolean[] threadStatus = new boolean[NUM_THREADS];
+        Thread[] threads = new Thread[NUM_THREADS];
+        for (int t = 0; t < NUM_THREADS; t++) {
+            final int id = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    threadStatus[id] = pinLoop(2 * NUM_THREADS + id, firstPage, numHotPages, numDiskPages);
+                }
+            };
+            threads[t].start();
+        }
+
+        System.out.print("  - Double and halve the pool until the threads are done\n");
+        int resizes = 0;
+        for (int t = 0; t < NUM_THREADS; t++) {
+            while (threads[t].isAlive()) {
+                try {
+                    bufmgr.resize(resizes % 2 == 0 ? 2 * numbufs : numbufs);
+                    resizes++;
+                } catch (IllegalStateException e) {
+                    // a thread has a page pinned in a frame being released
+                } catch (Exception e) {
+                    status = FAIL;
+                    System.err.print("*** Could not resize the pool\n");
+                    e.printStackTrace();
+                }
+            }
+            try {
+                threads[t].join();
+            } catch (InterruptedException e) {
+                status = FAIL;
+            }
+            status &= threadStatus[t];
+        }
+        bufmgr.resize(numbufs);
+
+        if (status == PASS && bufmgr.getNumUnpinned() != bufmgr.getNumBuffers()) {
+            status = FAIL;
+            System.err.print("*** " + (bufmgr.getNumBuffers()
+                - bufmgr.getNumUnpinned()) + " frames are still pinned\n");
+        }
+
+        if (status == PASS) {
+            System.out.print("  Test 3 completed successfully after " + resizes
+                + " resizes.\n");
+        }
+        return status;
+
+    } // protected boolean resizeTest ()
+
+    /**
+     * Allocates and frees pages from several threads at once, and checks that
+     * no page is handed out twice.
+     */
+    protected boolean newPageTest() {
+
+        System.out.print("\n  Test 4 allocates and frees pages from " + NUM_THREADS
+            + " threads under " + bufmgr.getPolicy() + ":\n");
+
+        boolean status = PASS;
+        final MemoryDiskMgr disk = (MemoryDiskMgr) Minibase.DiskManager;
+        final int before = disk.getAllocCount();
+        final Set<Integer> allocated = Collections.synchronizedSet(new HashSet<Integer>());
+        final boolean[] threadStatus = new boolean[NUM_THREADS];
+        Thread[] threads = new Thread[NUM_THREADS];
+        System.out.print("  - Each thread allocates, unpins and frees "
+            + NUM_NEW_PAGES + " pages\n");
+        for (int t = 0; t < NUM_THREADS; t++) {
+            final int id = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    threadStatus[id] = newPageLoop(allocated);
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t < NUM_THREADS; t++) {
+            try {
+                threads[t].join();
+            } catch (InterruptedException e) {
+                status = FAIL;
+            }
+            status &= threadStatus[t];
+        }
+
+        System.out.print("  - Check that every page was handed out once\n");
+        int expected = NUM_THREADS * NUM_NEW_PAGES;
+        if (status == PASS && (allocated.size() != expected
+                || disk.getAllocCount() - before != expected)) {
+            status = FAIL;
+            System.err.print("*** " + allocated.size() + " distinct pages in "
+                + (disk.getAllocCount() - before) + " allocated, expected "
+                + expected + "\n");
+        }
+        if (status == PASS && bufmgr.getNumUnpinned() != bufmgr.getNumBuffers()) {
+            status = FAIL;
+            System.err.print("*** " + (bufmgr.getNumBuffers()
+                - bufmgr.getNumUnpinned()) + " frames are still pinned\n");
+        }
+
+        if (status == PASS) {
+            System.out.print("  Test 4 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean newPageTest ()
+
+    /**
+     * Body of one test thread.
+     */
+    protected boolean pinLoop(int seed, int firstPage, int numHotPages, int numDiskPages) {
+
+        Random rand = new Random(seed);
+        Page pg = new Page();
+        PageId pid = new PageId();
+        for (int i = 0; i < NUM_ITERATIONS; i++) {
+            if (rand.nextInt(10) < 8) {
+                pid.pid = firstPage + rand.nextInt(numHotPages);
+            } else {
+                pid.pid = firstPage + rand.nextInt(numDiskPages);
+            }
+            try {
+                bufmgr.pinPage(pid, pg, PIN_DISKIO);
+            } catch (Exception e) {
+                System.err.print("*** Could not pin page " + pid.pid + "\n");
+                e.printStackTrace();
+                return FAIL;
+            }
+            int data = Convert.getIntValue(0, pg.getData());
+            try {
+                bufmgr.unpinPage(pid, rand.nextBoolean());
+            } catch (Exception e) {
+                System.err.print("*** Could not unpin page " + pid.pid + "\n");
+                e.printStackTrace();
+                return FAIL;
+            }
+            if (data != pid.pid + 99999) {
+                System.err.print("*** Read wrong data back from page " + pid.pid
+                    + ", got " + (data - 99999) + "\n");
+                return FAIL;
+            }
+        }
+        return PASS;
+
+    } // protected boolean pinLoop ()
+
+    /**
+     * Body of one test thread of test 4; adds the pages it got to allocated.
+     */
+    protected boolean newPageLoop(Set<Integer> allocated) {
+
+        Page pg = new Page();
+        for (int i = 0; i < NUM_NEW_PAGES; i++) {
+            PageId pid;
+            try {
+                pid = bufmgr.newPage(pg, 1);
+                bufmgr.unpinPage(pid, UNPIN_CLEAN);
+            } catch (Exception e) {
+                System.err.print("*** Could not allocate a new page\n");
+                e.printStackTrace();
+                return FAIL;
+            }
+            if (!allocated.add(pid.pid)) {
+                System.err.print("*** Page " + pid.pid + " allocated twice\n");
+                return FAIL;
+            }
+            try {
+                bufmgr.freePage(pid);
+            } catch (Exception e) {
+                System.err.print("*** Could not free page " + pid.pid + "\n");
+                e.printStackTrace();
+                return FAIL;
+            }
+        }
+        return PASS;
+
+    } // protected boolean newPageLoop ()
+
+} // class ConcurrencyTest extends TestDriver
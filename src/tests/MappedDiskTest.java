@@ -0,0 +1,167 @@
+package tests;
+
+import bufmgr.BufferManager;
+import diskmgr.MappedDiskMgr;
+import global.Convert;
+import global.Minibase;
+import global.Page;
+import global.PageId;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Test suite for the memory-mapped disk manager, run against a BufferManager
+ * over a database file of its own.
+ */
+class MappedDiskTest extends TestDriver {
+
+    /** The display name of the test suite. */
+    private static final String TEST_NAME = "memory-mapped disk manager tests";
+
+    /** The buffer manager under test. */
+    protected BufferManager bufmgr;
+
+    /**
+     * Test application entry point; runs all tests.
+     */
+    public static void main(String argv[]) {
+
+        // run all the test cases
+        System.out.println("\n" + "Running " + TEST_NAME + "...");
+        MappedDiskTest mdt = new MappedDiskTest();
+        boolean status = mdt.roundTripTest();
+        new File(mdt.DB_PATH).delete();
+
+        // display the final results
+        System.out.println();
+        if (status != PASS) {
+            System.out.println("Error(s) encountered during " + TEST_NAME + ".");
+        } else {
+            System.out.println("All " + TEST_NAME + " completed successfully!");
+        }
+
+    } // public static void main (String argv[])
+
+    /**
+     * Writes more pages than the pool holds, closes the database, opens it
+     * again with a new disk manager and pool, and checks that every page
+     * reads back as written.
+     */
+    protected boolean roundTripTest() {
+
+        System.out.print("\n  Test 1 writes pages, closes the database and reads them back:\n");
+
+        boolean status = PASS;
+        int numPages = BUF_SIZE * 2;
+        Page pg = new Page();
+        PageId pid = new PageId();
+        PageId firstPid;
+        System.out.print("  - Create the database and write " + numPages + " pages\n");
+        try {
+            FileDiskMgr disk = new FileDiskMgr();
+            Minibase.DiskManager = disk;
+            disk.createDB(DB_PATH, DB_SIZE);
+            bufmgr = new BufferManager(BUF_SIZE);
+            disk.setBufferManager(bufmgr);
+            firstPid = bufmgr.newPage(pg, numPages);
+            bufmgr.unpinPage(firstPid, UNPIN_CLEAN);
+            for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+                bufmgr.pinPage(pid, pg, PIN_DISKIO);
+                Convert.setIntValue(pid.pid + 99999, 0, pg.getData());
+                bufmgr.unpinPage(pid, UNPIN_DIRTY);
+            }
+            // the last pages written are still dirty in the pool
+            disk.closeDB();
+        } catch (Exception e) {
+            System.err.print("*** Could not write the pages\n");
+            e.printStackTrace();
+            return FAIL;
+        }
+
+        System.out.print("  - Open the database again and read them back\n");
+        try {
+            FileDiskMgr disk = new FileDiskMgr();
+            Minibase.DiskManager = disk;
+            disk.openDB(DB_PATH);
+            bufmgr = new BufferManager(BUF_SIZE);
+            disk.setBufferManager(bufmgr);
+            for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+                bufmgr.pinPage(pid, pg, PIN_DISKIO);
+                int data = Convert.getIntValue(0, pg.getData());
+                bufmgr.unpinPage(pid, UNPIN_CLEAN);
+                if (data != pid.pid + 99999) {
+                    status = FAIL;
+                    System.err.print("*** Read wrong data back from page " + pid.pid
+                        + ", got " + (data - 99999) + "\n");
+                    break;
+                }
+            }
+            disk.closeDB();
+        } catch (Exception e) {
+            System.err.print("*** Could not read the pages back\n");
+            e.printStackTrace();
+            return FAIL;
+        }
+
+        if (status == PASS) {
+            System.out.print("  Test 1 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean roundTripTest ()
+
+    /**
+     * A memory-mapped disk manager without the space map, which DiskMgr keeps
+     * in Minibase.BufferManager: pages are handed out in order, and the size
+     * of the database is that of the file.
+     */
+    static class FileDiskMgr extends MappedDiskMgr {
+
+        /** Next page to allocate. */
+        protected int next;
+
+        public void createDB(String fname, int num_pgs) {
+            openFile(fname);
+            try {
+                fp.setLength((long) num_pgs * MINIBASE_PAGESIZE);
+            } catch (IOException exc) {
+                Minibase.haltSystem(exc);
+            }
+            num_pages = num_pgs;
+        }
+
+        public void openDB(String fname) {
+            openFile(fname);
+            try {
+                num_pages = (int) (fp.length() / MINIBASE_PAGESIZE);
+            } catch (IOException exc) {
+                Minibase.haltSystem(exc);
+            }
+        }
+
+        protected void openFile(String fname) {
+            name = fname;
+            chunks = new MappedByteBuffer[0];
+            try {
+                fp = new RandomAccessFile(fname, "rw");
+            } catch (IOException exc) {
+                Minibase.haltSystem(exc);
+            }
+        }
+
+        public PageId allocate_page(int run_size) {
+            PageId pageno = new PageId(next);
+            next += run_size;
+            return pageno;
+        }
+
+        public void deallocate_page(PageId pageno, int run_size) {
+            // pages are not reused
+        }
+
+    } // static class FileDiskMgr extends MappedDiskMgr
+
+} // class MappedDiskTest extends TestDriver
@@ -0,0 +1,131 @@
+package tests;
+
+import diskmgr.DiskMgr;
+import global.Page;
+import global.PageId;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A disk manager that keeps its pages in memory, for tests that run a
+ * BufferManager of their own: the shipped DiskMgr keeps its space map in
+ * Minibase.BufferManager, which cannot be loaded next to the bufmgr classes
+ * built from source.
+ * <p>
+ * Pages are handed out in order and never reused. As with DiskMgr, any page
+ * below the size of the database can be read, allocated or not; pages never
+ * written read as zeros. Like DiskMgr, allocation does not lock anything
+ * itself: callers must hold the disk manager's monitor, as BufferManager does,
+ * and allocate_page and deallocate_page check that they do, so that a test
+ * finds a caller that does not rather than a rare duplicate page.
+ */
+public class MemoryDiskMgr extends DiskMgr {
+
+    /** Contents of the pages written, by page number. */
+    protected final ConcurrentHashMap<Integer, byte[]> pages = new ConcurrentHashMap<Integer, byte[]>();
+
+    /** Next page to allocate. */
+    protected int next;
+
+    // --------------------------------------------------------------------------
+
+    /**
+     * Constructs a database of the given number of pages.
+     */
+    public MemoryDiskMgr(int num_pgs) {
+        num_pages = num_pgs;
+    }
+
+    /**
+     * Allocates a run of pages.
+     *
+     * @throws IllegalStateException if the database is full, or the caller
+     * does not hold the monitor
+     */
+    public PageId allocate_page(int run_size) {
+        checkMonitor();
+        if (run_size < 1 || next + run_size > num_pages) {
+            throw new IllegalStateException("Not enough space left to allocate "
+                + run_size + " pages");
+        }
+        PageId pageno = new PageId(next);
+        next += run_size;
+        return pageno;
+    }
+
+    public PageId allocate_page() {
+        return allocate_page(1);
+    }
+
+    public void deallocate_page(PageId pageno) {
+        deallocate_page(pageno, 1);
+    }
+
+    /**
+     * Deallocates a run of pages.
+     *
+     * @throws IllegalStateException if the caller does not hold the monitor
+     */
+    public void deallocate_page(PageId pageno, int run_size) {
+        checkMonitor();
+        for (int i = 0; i < run_size; i++) {
+            pages.remove(pageno.pid + i);
+        }
+    }
+
+    /**
+     * Reads the contents of the specified page.
+     *
+     * @throws IllegalArgumentException if pageno is invalid
+     */
+    public void read_page(PageId pageno, Page mempage) {
+        if ((pageno.pid < 0) || (pageno.pid >= num_pages)) {
+            throw new IllegalArgumentException("Invalid page number; read aborted");
+        }
+        byte[] data = pages.get(pageno.pid);
+        if (data == null) {
+            Arrays.fill(mempage.getData(), (byte) 0);
+        } else {
+            System.arraycopy(data, 0, mempage.getData(), 0, data.length);
+        }
+        synchronized (this) {
+            read_cnt++;
+        }
+    }
+
+    /**
+     * Writes the contents of the given page.
+     *
+     * @throws IllegalArgumentException if pageno is invalid
+     */
+    public void write_page(PageId pageno, Page mempage) {
+        if ((pageno.pid < 0) || (pageno.pid >= num_pages)) {
+            throw new IllegalArgumentException("Invalid page number; write aborted");
+        }
+        pages.put(pageno.pid, mempage.getData().clone());
+        synchronized (this) {
+            write_cnt++;
+        }
+    }
+
+    /**
+     * Checks that the caller holds the monitor, which DiskMgr's space map
+     * needs and so BufferManager takes for every call.
+     *
+     * @throws IllegalStateException if it does not
+     */
+    protected void checkMonitor() {
+        if (!Thread.holdsLock(this)) {
+            throw new IllegalStateException("Disk manager called without holding its monitor");
+        }
+    }
+
+    /**
+     * Gets the number of pages allocated so far.
+     */
+    public synchronized int getAllocCount() {
+        return next;
+    }
+
+} // public class MemoryDiskMgr extends DiskMgr
@@ -0,0 +1,158 @@
+package tests;
+
+import bufmgr.BufferManager;
+import global.Convert;
+import global.Minibase;
+import global.Page;
+import global.PageId;
+
+/**
+ * Test suite for reading ahead of sequential scans, run against a
+ * BufferManager over a disk kept in memory.
+ */
+class ReadAheadTest extends TestDriver {
+
+    /** The display name of the test suite. */
+    private static final String TEST_NAME = "buffer manager read-ahead tests";
+
+    /** Policies the tests run under. */
+    private static final String[] POLICIES = { "Clock", "Lru", "2Q", "Arc", "Lirs" };
+
+    private static final int NUM_PAGES = 20;
+    private static final int READ_AHEAD_WINDOW = 8;
+
+    /** The buffer manager under test. */
+    protected ScanBufferManager bufmgr;
+
+    /**
+     * Test application entry point; runs all tests.
+     */
+    public static void main(String argv[]) {
+
+        // run all the test cases, on a clean disk and pool for each policy
+        System.out.println("\n" + "Running " + TEST_NAME + "...");
+        boolean status = PASS;
+        for (String policy : POLICIES) {
+            ReadAheadTest rat = new ReadAheadTest();
+            Minibase.DiskManager = new MemoryDiskMgr(rat.DB_SIZE);
+            rat.bufmgr = new ScanBufferManager(rat.BUF_SIZE, policy);
+            rat.bufmgr.setReadAhead(READ_AHEAD_WINDOW, rat.BUF_SIZE / 4);
+            status &= rat.newPageAfterScanTest();
+        }
+
+        // display the final results
+        System.out.println();
+        if (status != PASS) {
+            System.out.println("Error(s) encountered during " + TEST_NAME + ".");
+        } else {
+            System.out.println("All " + TEST_NAME + " completed successfully!");
+        }
+
+    } // public static void main (String argv[])
+
+    /**
+     * Scans every allocated page, so that read-ahead goes past the last one,
+     * then allocates more pages and checks that the first of them holds the
+     * contents given to newPage.
+     */
+    protected boolean newPageAfterScanTest() {
+
+        System.out.print("\n  Test 1 allocates pages read ahead of a scan under "
+            + bufmgr.getPolicy() + ":\n");
+
+        boolean status = PASS;
+        Page pg = new Page();
+        PageId pid = new PageId();
+        PageId firstPid;
+        System.out.print("  - Allocate " + NUM_PAGES + " pages and scan them\n");
+        try {
+            firstPid = bufmgr.newPage(pg, NUM_PAGES);
+            bufmgr.unpinPage(firstPid, UNPIN_CLEAN);
+            for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + NUM_PAGES; pid.pid = pid.pid + 1) {
+                bufmgr.pinPage(pid, pg, PIN_DISKIO);
+                bufmgr.unpinPage(pid, UNPIN_CLEAN);
+            }
+            bufmgr.awaitScan();
+        } catch (Exception e) {
+            System.err.print("*** Could not scan the pages\n");
+            e.printStackTrace();
+            return FAIL;
+        }
+
+        int next = firstPid.pid + NUM_PAGES;
+        if (!bufmgr.isResident(next)) {
+            System.err.print("*** Page " + next + " past the last one was not read ahead\n");
+            return FAIL;
+        }
+
+        System.out.print("  - Allocate pages that were read ahead\n");
+        Page newpg = new Page();
+        Convert.setIntValue(next + 99999, 0, newpg.getData());
+        PageId newPid = bufmgr.newPage(newpg, READ_AHEAD_WINDOW);
+        if (newPid == null) {
+            System.err.print("*** Could not allocate pages read ahead\n");
+            return FAIL;
+        }
+        if (newPid.pid != next) {
+            status = FAIL;
+            System.err.print("*** Allocated page " + newPid.pid + ", expected " + next + "\n");
+        }
+        if (Convert.getIntValue(0, newpg.getData()) != next + 99999) {
+            status = FAIL;
+            System.err.print("*** New page " + newPid.pid + " does not hold its contents\n");
+        }
+
+        try {
+            bufmgr.unpinPage(newPid, UNPIN_DIRTY);
+            bufmgr.flushAllPages();
+            Minibase.DiskManager.read_page(newPid, pg);
+            if (Convert.getIntValue(0, pg.getData()) != next + 99999) {
+                status = FAIL;
+                System.err.print("*** New page " + newPid.pid + " was not written\n");
+            }
+        } catch (Exception e) {
+            status = FAIL;
+            System.err.print("*** Could not write page " + newPid.pid + "\n");
+            e.printStackTrace();
+        }
+
+        if (status == PASS && bufmgr.getNumUnpinned() != bufmgr.getNumBuffers()) {
+            status = FAIL;
+            System.err.print("*** " + (bufmgr.getNumBuffers() - bufmgr.getNumUnpinned())
+                + " frames are still pinned\n");
+        }
+
+        if (status == PASS) {
+            System.out.print("  Test 1 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean newPageAfterScanTest ()
+
+    /**
+     * A buffer manager that lets the test wait for read-ahead and look at
+     * what it has read.
+     */
+    static class ScanBufferManager extends BufferManager {
+
+        ScanBufferManager(int numbufs, String policy) {
+            super(numbufs, policy);
+        }
+
+        /**
+         * Waits until every page asked to be read ahead has been.
+         */
+        void awaitScan() {
+            awaitReadAhead();
+        }
+
+        /**
+         * Tells whether the page is in the pool.
+         */
+        boolean isResident(int pid) {
+            return lookup(pid) != null;
+        }
+
+    } // static class ScanBufferManager extends BufferManager
+
+} // class ReadAheadTest extends TestDriver
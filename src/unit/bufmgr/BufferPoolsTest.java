@@ -0,0 +1,195 @@
+package bufmgr;
+
+import global.Convert;
+import global.GlobalConst;
+import global.Minibase;
+import global.Page;
+import global.PageId;
+import tests.MemoryDiskMgr;
+
+import java.lang.management.ManagementFactory;
+import javax.management.ObjectName;
+
+/**
+ * Test suite for the named buffer pools, run over a disk kept in memory.
+ */
+class BufferPoolsTest extends UnitTestDriver implements GlobalConst {
+
+    /** The display name of the test suite. */
+    private static final String TEST_NAME = "buffer pools tests";
+
+    /**
+     * Test application entry point; runs all tests.
+     */
+    public static void main(String argv[]) {
+
+        // run all the test cases
+        System.out.println("\n" + "Running " + TEST_NAME + "...");
+        Minibase.DiskManager = new MemoryDiskMgr(1000);
+        BufferPoolsTest bpt = new BufferPoolsTest();
+        boolean status = PASS;
+        status &= bpt.createTest();
+        status &= bpt.bindTest();
+        status &= bpt.dropTest();
+
+        // display the final results
+        System.out.println();
+        if (status != PASS) {
+            System.out.println("Error(s) encountered during " + TEST_NAME + ".");
+        } else {
+            System.out.println("All " + TEST_NAME + " completed successfully!");
+        }
+
+    } // public static void main (String argv[])
+
+    /**
+     * Creates pools and looks them up by name.
+     */
+    protected boolean createTest() {
+
+        System.out.print("\n  Test 1 creates pools and looks them up:\n");
+        boolean status = PASS;
+        BufferManager def = BufferPools.create(BufferPools.DEFAULT_POOL, 20, "Clock");
+        BufferManager index = BufferPools.create("index", 10, "Lru");
+        status &= check(BufferPools.get(BufferPools.DEFAULT_POOL) == def
+            && BufferPools.get("index") == index, "Wrong pools by name");
+        status &= check(index.getNumBuffers() == 10 && index.getPolicy().equals("Lru"),
+            "Pool made with the wrong settings");
+        status &= check(BufferPools.names().size() == 2 && BufferPools.names().contains("index"),
+            "Names are " + BufferPools.names());
+        status &= check(isRegistered("index"), "Counters not registered with JMX");
+
+        System.out.print("  - A name cannot be used twice, or looked up if unused\n");
+        try {
+            BufferPools.create("index", 5, "Clock");
+            status &= check(false, "Created two pools named index");
+        } catch (IllegalArgumentException exc) {
+            status &= check(BufferPools.get("index") == index, "Pool index replaced");
+        }
+        try {
+            BufferPools.get("none");
+            status &= check(false, "Found a pool that does not exist");
+        } catch (IllegalArgumentException exc) {
+            // expected
+        }
+        dropAll();
+
+        if (status == PASS) {
+            System.out.print("  Test 1 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean createTest ()
+
+    /**
+     * Binds files, and temporary files, to pools and back to the default.
+     */
+    protected boolean bindTest() {
+
+        System.out.print("\n  Test 2 binds files to pools:\n");
+        boolean status = PASS;
+        try {
+            BufferPools.forFile("heap");
+            status &= check(false, "Found a pool with no default pool");
+        } catch (IllegalArgumentException exc) {
+            // expected
+        }
+        BufferManager def = BufferPools.create(BufferPools.DEFAULT_POOL, 20, "Clock");
+        BufferManager index = BufferPools.create("index", 10, "Clock");
+        BufferManager temp = BufferPools.create("temp", 10, "Clock");
+        BufferPools.bind("btree", "index");
+        BufferPools.bind(null, "temp");
+        status &= check(BufferPools.forFile("btree") == index, "btree not in pool index");
+        status &= check(BufferPools.forFile(null) == temp, "Temporary files not in pool temp");
+        status &= check(BufferPools.forFile("heap") == def, "heap not in the default pool");
+        try {
+            BufferPools.bind("heap", "none");
+            status &= check(false, "Bound a file to a pool that does not exist");
+        } catch (IllegalArgumentException exc) {
+            status &= check(BufferPools.forFile("heap") == def, "heap moved to a missing pool");
+        }
+
+        System.out.print("  - Unbind files back to the default pool\n");
+        BufferPools.unbind("btree");
+        BufferPools.unbind(null);
+        status &= check(BufferPools.forFile("btree") == def && BufferPools.forFile(null) == def,
+            "Unbound files not in the default pool");
+        dropAll();
+
+        if (status == PASS) {
+            System.out.print("  Test 2 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean bindTest ()
+
+    /**
+     * Drops a pool with dirty pages and a page writer running, and checks
+     * that its pages reach the disk, its threads stop, and its name and
+     * bindings are freed.
+     */
+    protected boolean dropTest() {
+
+        System.out.print("\n  Test 3 drops a pool with dirty pages:\n");
+        boolean status = PASS;
+        BufferManager def = BufferPools.create(BufferPools.DEFAULT_POOL, 20, "Clock");
+        BufferManager index = BufferPools.create("index", 10, "Clock");
+        BufferPools.bind("btree", "index");
+        index.startPageWriter(100, 0.9);
+        Page pg = new Page();
+        PageId pid = index.newPage(pg, 4);
+        int first = pid.pid;
+        index.unpinPage(pid, UNPIN_CLEAN);
+        for (pid.pid = first; pid.pid < first + 4; pid.pid++) {
+            index.pinPage(pid, pg, PIN_DISKIO);
+            Convert.setIntValue(pid.pid + 99999, 0, pg.getData());
+            index.unpinPage(pid, UNPIN_DIRTY);
+        }
+        PageWriter writer = index.pageWriter;
+        BufferPools.drop("index");
+
+        System.out.print("  - Check the disk, the page writer and the bindings\n");
+        for (pid.pid = first; pid.pid < first + 4; pid.pid++) {
+            Minibase.DiskManager.read_page(pid, pg);
+            int data = Convert.getIntValue(0, pg.getData());
+            status &= check(data == pid.pid + 99999, "Page " + pid.pid + " not written");
+        }
+        status &= check(!writer.isAlive(), "Page writer still running");
+        status &= check(!isRegistered("index"), "Counters still registered with JMX");
+        status &= check(BufferPools.names().size() == 1, "Names are " + BufferPools.names());
+        status &= check(BufferPools.forFile("btree") == def, "btree still bound to pool index");
+
+        System.out.print("  - The name can be used again\n");
+        BufferManager again = BufferPools.create("index", 10, "Clock");
+        status &= check(BufferPools.get("index") == again, "Pool index not made again");
+        dropAll();
+
+        if (status == PASS) {
+            System.out.print("  Test 3 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean dropTest ()
+
+    /**
+     * Drops every pool.
+     */
+    protected static void dropAll() {
+        for (String name : BufferPools.names()) {
+            BufferPools.drop(name);
+        }
+    }
+
+    /**
+     * Tells whether a pool's counters are registered with JMX.
+     */
+    protected static boolean isRegistered(String name) {
+        try {
+            return ManagementFactory.getPlatformMBeanServer().isRegistered(
+                new ObjectName(BufferStats.JMX_TYPE + ",name=" + ObjectName.quote(name)));
+        } catch (Exception exc) {
+            return false;
+        }
+    }
+
+} // class BufferPoolsTest extends UnitTestDriver implements GlobalConst
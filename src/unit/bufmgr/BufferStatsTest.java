@@ -0,0 +1,223 @@
+package bufmgr;
+
+import global.GlobalConst;
+import global.Minibase;
+import global.Page;
+import global.PageId;
+import tests.MemoryDiskMgr;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Test suite for the pool's counters, run against a BufferManager over a disk
+ * kept in memory.
+ */
+class BufferStatsTest extends UnitTestDriver implements GlobalConst {
+
+    /** The display name of the test suite. */
+    private static final String TEST_NAME = "buffer stats tests";
+
+    /** The buffer manager under test. */
+    protected BufferManager bufmgr;
+
+    /**
+     * Test application entry point; runs all tests.
+     */
+    public static void main(String argv[]) {
+
+        // run all the test cases
+        System.out.println("\n" + "Running " + TEST_NAME + "...");
+        BufferStatsTest bst = new BufferStatsTest();
+        boolean status = PASS;
+        status &= bst.countTest();
+        status &= bst.resetTest();
+        status &= bst.concurrentTest();
+        status &= bst.jmxTest();
+
+        // display the final results
+        System.out.println();
+        if (status != PASS) {
+            System.out.println("Error(s) encountered during " + TEST_NAME + ".");
+        } else {
+            System.out.println("All " + TEST_NAME + " completed successfully!");
+        }
+
+    } // public static void main (String argv[])
+
+    /**
+     * Dirties four pages in a pool of 4, pins one again, then two more
+     * pages, which evict two dirty pages, and flushes the rest.
+     */
+    protected boolean countTest() {
+
+        System.out.print("\n  Test 1 counts hits, misses, evictions and writes:\n");
+        boolean status = PASS;
+        newPool();
+        for (int pid = 0; pid < 4; pid++) {
+            pin(pid, UNPIN_DIRTY);
+        }
+        pin(0, UNPIN_CLEAN);
+        pin(4, UNPIN_CLEAN);
+        pin(5, UNPIN_CLEAN);
+        BufferStats stats = bufmgr.getStats();
+        status &= check(stats.getHits() == 1 && stats.getMisses() == 6,
+            stats.getHits() + " hits and " + stats.getMisses() + " misses, expected 1 and 6");
+        status &= check(Math.abs(stats.getHitRatio() - 1.0 / 7) < 1e-9, "Hit ratio is "
+            + stats.getHitRatio() + ", expected " + (1.0 / 7));
+        status &= check(stats.getEvictions() == 2 && stats.getDirtyVictimWrites() == 2,
+            stats.getEvictions() + " evictions and " + stats.getDirtyVictimWrites()
+            + " dirty victim writes, expected 2 and 2");
+        status &= check(stats.getPageReads() == 6 && stats.getDiskReads() == 6,
+            stats.getPageReads() + " page reads and " + stats.getDiskReads()
+            + " disk reads, expected 6 and 6");
+        status &= check(stats.getPinnedFrames() == 0 && stats.getNumBuffers() == 4
+            && stats.getPolicy().equals("Clock"), "Wrong pool state");
+
+        System.out.print("  - Flush the two dirty pages left\n");
+        bufmgr.flushAllPages();
+        status &= check(stats.getPageWrites() == 4 && stats.getDiskWrites() == 4,
+            stats.getPageWrites() + " page writes and " + stats.getDiskWrites()
+            + " disk writes, expected 4 and 4");
+
+        if (status == PASS) {
+            System.out.print("  Test 1 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean countTest ()
+
+    /**
+     * Takes a snapshot, and one that resets the counters.
+     */
+    protected boolean resetTest() {
+
+        System.out.print("\n  Test 2 takes snapshots and resets the counters:\n");
+        boolean status = PASS;
+        newPool();
+        pin(0, UNPIN_DIRTY);
+        pin(0, UNPIN_CLEAN);
+        BufferStats stats = bufmgr.getStats();
+        BufferStats.Snapshot snap = stats.snapshot();
+        status &= check(snap.hits == 1 && snap.misses == 1 && snap.hitRatio() == 0.5,
+            "Snapshot is " + snap);
+        snap = stats.snapshotAndReset();
+        status &= check(snap.hits == 1 && snap.misses == 1 && snap.pageReads == 1,
+            "Snapshot is " + snap);
+        snap = stats.snapshot();
+        status &= check(snap.hits == 0 && snap.misses == 0 && snap.pageReads == 0
+            && snap.hitRatio() == 0, "Snapshot after reset is " + snap);
+
+        System.out.print("  - reset leaves the disk manager's counters\n");
+        pin(0, UNPIN_CLEAN);
+        stats.reset();
+        status &= check(stats.getHits() == 0 && stats.getDiskReads() == 1,
+            stats.getHits() + " hits and " + stats.getDiskReads()
+            + " disk reads after reset, expected 0 and 1");
+
+        if (status == PASS) {
+            System.out.print("  Test 2 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean resetTest ()
+
+    /**
+     * Has 4 threads pin a page already in the pool 10000 times each, and
+     * checks that no hit is lost.
+     */
+    protected boolean concurrentTest() {
+
+        System.out.print("\n  Test 3 counts hits from 4 threads:\n");
+        newPool();
+        pin(0, UNPIN_CLEAN);
+        bufmgr.getStats().reset();
+        Thread[] workers = new Thread[4];
+        for (int t = 0; t < workers.length; t++) {
+            workers[t] = new Thread() {
+                public void run() {
+                    PageId pid = new PageId(0);
+                    Page pg = new Page();
+                    for (int i = 0; i < 10000; i++) {
+                        bufmgr.pinPage(pid, pg, PIN_DISKIO);
+                        bufmgr.unpinPage(pid, UNPIN_CLEAN);
+                    }
+                }
+            };
+            workers[t].start();
+        }
+        try {
+            for (Thread w : workers) {
+                w.join();
+            }
+        } catch (InterruptedException e) {
+            System.err.print("*** Interrupted waiting for the threads\n");
+            return FAIL;
+        }
+        BufferStats stats = bufmgr.getStats();
+        boolean status = check(stats.getHits() == 40000 && stats.getMisses() == 0,
+            stats.getHits() + " hits and " + stats.getMisses() + " misses, expected 40000 and 0");
+
+        if (status == PASS) {
+            System.out.print("  Test 3 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean concurrentTest ()
+
+    /**
+     * Registers the counters with JMX and reads them from the MBean server.
+     */
+    protected boolean jmxTest() {
+
+        System.out.print("\n  Test 4 reads the counters through JMX:\n");
+        boolean status = PASS;
+        newPool();
+        pin(0, UNPIN_CLEAN);
+        pin(0, UNPIN_CLEAN);
+        BufferStats stats = bufmgr.getStats();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName on = new ObjectName(BufferStats.JMX_TYPE + ",name="
+                + ObjectName.quote("stats test"));
+            stats.register("stats test");
+            status &= check(Long.valueOf(1).equals(server.getAttribute(on, "Hits"))
+                && Long.valueOf(1).equals(server.getAttribute(on, "Misses")),
+                "Wrong counters read through JMX");
+            status &= check("Clock".equals(server.getAttribute(on, "Policy")),
+                "Wrong policy read through JMX");
+            stats.unregister();
+            status &= check(!server.isRegistered(on), "Counters still registered");
+        } catch (Exception exc) {
+            System.err.print("*** Could not read the counters through JMX\n");
+            exc.printStackTrace();
+            return FAIL;
+        }
+
+        if (status == PASS) {
+            System.out.print("  Test 4 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean jmxTest ()
+
+    /**
+     * Makes a new pool of 4 frames without read-ahead, over a new disk.
+     */
+    protected void newPool() {
+        Minibase.DiskManager = new MemoryDiskMgr(100);
+        bufmgr = new BufferManager(4, "Clock");
+        bufmgr.setReadAhead(0, 0);
+    }
+
+    /**
+     * Pins and unpins a page.
+     */
+    protected void pin(int pid, boolean dirty) {
+        PageId pageno = new PageId(pid);
+        bufmgr.pinPage(pageno, new Page(), PIN_DISKIO);
+        bufmgr.unpinPage(pageno, dirty);
+    }
+
+} // class BufferStatsTest extends UnitTestDriver implements GlobalConst
@@ -0,0 +1,189 @@
+package bufmgr;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test suite for the set of frame numbers kept as a bitmap.
+ */
+class FrameBitmapTest extends UnitTestDriver {
+
+    /** The display name of the test suite. */
+    private static final String TEST_NAME = "frame bitmap tests";
+
+    /**
+     * Test application entry point; runs all tests.
+     */
+    public static void main(String argv[]) {
+
+        // run all the test cases
+        System.out.println("\n" + "Running " + TEST_NAME + "...");
+        FrameBitmapTest fbt = new FrameBitmapTest();
+        boolean status = PASS;
+        status &= fbt.wordBoundaryTest();
+        status &= fbt.randomTest();
+        status &= fbt.concurrentTest();
+
+        // display the final results
+        System.out.println();
+        if (status != PASS) {
+            System.out.println("Error(s) encountered during " + TEST_NAME + ".");
+        } else {
+            System.out.println("All " + TEST_NAME + " completed successfully!");
+        }
+
+    } // public static void main (String argv[])
+
+    /**
+     * Sets frames on both sides of the boundaries between words, and walks
+     * them with nextSetBit.
+     */
+    protected boolean wordBoundaryTest() {
+
+        System.out.print("\n  Test 1 sets frames at the ends of words:\n");
+        boolean status = PASS;
+        FrameBitmap bitmap = new FrameBitmap(130);
+        status &= check(bitmap.nextSetBit(0) == -1 && bitmap.cardinality() == 0,
+            "New bitmap is not empty");
+        int[] frames = { 0, 63, 64, 127, 128, 129 };
+        for (int f : frames) {
+            bitmap.set(f);
+        }
+        bitmap.set(63);
+        status &= check(bitmap.cardinality() == frames.length, "Cardinality is "
+            + bitmap.cardinality() + ", expected " + frames.length);
+        int from = 0;
+        for (int f : frames) {
+            int found = bitmap.nextSetBit(from);
+            status &= check(found == f, "Next from " + from + " is " + found + ", expected " + f);
+            from = found + 1;
+        }
+        status &= check(bitmap.nextSetBit(130) == -1, "Found a frame past the end");
+        status &= check(bitmap.nextSetBit(1) == 63 && bitmap.nextSetBit(65) == 127,
+            "Next set frame skipped into the wrong word");
+
+        System.out.print("  - Clear frames, and one that is not set\n");
+        bitmap.clear(63);
+        bitmap.clear(64);
+        bitmap.clear(65);
+        status &= check(!bitmap.get(63) && !bitmap.get(64) && bitmap.get(0) && bitmap.get(127),
+            "Wrong frames cleared");
+        status &= check(bitmap.nextSetBit(1) == 127, "Next from 1 is " + bitmap.nextSetBit(1)
+            + ", expected 127");
+        status &= check(bitmap.cardinality() == 4, "Cardinality is " + bitmap.cardinality()
+            + ", expected 4");
+
+        if (status == PASS) {
+            System.out.print("  Test 1 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean wordBoundaryTest ()
+
+    /**
+     * Compares random sets and clears with a BitSet.
+     */
+    protected boolean randomTest() {
+
+        System.out.print("\n  Test 2 compares random operations with a BitSet:\n");
+        boolean status = PASS;
+        Random random = new Random(74);
+        FrameBitmap bitmap = new FrameBitmap(200);
+        BitSet expected = new BitSet(200);
+        for (int i = 0; status == PASS && i < 100000; i++) {
+            int frameno = random.nextInt(200);
+            if (random.nextBoolean()) {
+                bitmap.set(frameno);
+                expected.set(frameno);
+            } else {
+                bitmap.clear(frameno);
+                expected.clear(frameno);
+            }
+            int from = random.nextInt(201);
+            int next = from < 200 ? expected.nextSetBit(from) : -1;
+            if (next >= 200) {
+                next = -1;
+            }
+            status &= check(bitmap.nextSetBit(from) == next, "Next from " + from + " is "
+                + bitmap.nextSetBit(from) + ", expected " + next);
+        }
+        for (int f = 0; f < 200; f++) {
+            status &= check(bitmap.get(f) == expected.get(f), "Wrong bit for frame " + f);
+        }
+        status &= check(bitmap.cardinality() == expected.cardinality(), "Cardinality is "
+            + bitmap.cardinality() + ", expected " + expected.cardinality());
+
+        if (status == PASS) {
+            System.out.print("  Test 2 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean randomTest ()
+
+    /**
+     * Has threads set and clear frames that share a word; each thread owns
+     * its frames and checks after every pass that none of its changes was
+     * lost to another's.
+     */
+    protected boolean concurrentTest() {
+
+        System.out.print("\n  Test 3 sets and clears frames of one word from 4 threads:\n");
+        final int threads = 4;
+        final FrameBitmap bitmap = new FrameBitmap(64);
+        final AtomicInteger lost = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int first = t;
+            workers[t] = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int round = 0; round < 100000; round++) {
+                        boolean set = (round % 2 == 0);
+                        for (int f = first; f < 64; f += threads) {
+                            if (set) {
+                                bitmap.set(f);
+                            } else {
+                                bitmap.clear(f);
+                            }
+                        }
+                        for (int f = first; f < 64; f += threads) {
+                            if (bitmap.get(f) != set) {
+                                lost.incrementAndGet();
+                            }
+                        }
+                    }
+                }
+            };
+            workers[t].start();
+        }
+        start.countDown();
+        try {
+            for (Thread w : workers) {
+                w.join();
+            }
+        } catch (InterruptedException e) {
+            System.err.print("*** Interrupted waiting for the threads\n");
+            return FAIL;
+        }
+
+        // each thread ends on a pass that clears its frames
+        boolean status = PASS;
+        status &= check(lost.get() == 0, lost.get() + " changes lost");
+        status &= check(bitmap.cardinality() == 0, "Cardinality is " + bitmap.cardinality()
+            + ", expected 0");
+
+        if (status == PASS) {
+            System.out.print("  Test 3 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean concurrentTest ()
+
+} // class FrameBitmapTest extends UnitTestDriver
@@ -0,0 +1,183 @@
+package bufmgr;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test suite for the intrusive list of frame numbers.
+ */
+class FrameListTest extends UnitTestDriver {
+
+    /** The display name of the test suite. */
+    private static final String TEST_NAME = "frame list tests";
+
+    /**
+     * Test application entry point; runs all tests.
+     */
+    public static void main(String argv[]) {
+
+        // run all the test cases
+        System.out.println("\n" + "Running " + TEST_NAME + "...");
+        FrameListTest flt = new FrameListTest();
+        boolean status = PASS;
+        status &= flt.orderTest();
+        status &= flt.replaceTest();
+        status &= flt.randomTest();
+
+        // display the final results
+        System.out.println();
+        if (status != PASS) {
+            System.out.println("Error(s) encountered during " + TEST_NAME + ".");
+        } else {
+            System.out.println("All " + TEST_NAME + " completed successfully!");
+        }
+
+    } // public static void main (String argv[])
+
+    /**
+     * Adds frames at both ends, moves and removes some, and checks the order.
+     */
+    protected boolean orderTest() {
+
+        System.out.print("\n  Test 1 adds, moves and removes frames:\n");
+        boolean status = PASS;
+        FrameList list = new FrameList(8);
+        status &= check(list.isEmpty() && list.first() == FrameList.NONE
+            && list.removeFirst() == FrameList.NONE, "New list is not empty");
+        list.addLast(3);
+        list.addLast(5);
+        list.addFirst(1);
+        list.addLast(7);
+        status &= checkOrder(list, 1, 3, 5, 7);
+
+        System.out.print("  - Adding a frame already on the list moves it\n");
+        list.addLast(3);
+        status &= checkOrder(list, 1, 5, 7, 3);
+        list.addFirst(7);
+        status &= checkOrder(list, 7, 1, 5, 3);
+
+        System.out.print("  - Remove from the head, the middle and the tail\n");
+        status &= check(list.removeFirst() == 7, "Head was not 7");
+        status &= check(list.remove(5), "Could not remove 5");
+        status &= check(!list.remove(5), "Removed 5 twice");
+        status &= check(!list.contains(5) && list.contains(1), "Wrong frames on the list");
+        status &= check(list.remove(3), "Could not remove 3");
+        status &= checkOrder(list, 1);
+        status &= check(list.removeFirst() == 1 && list.isEmpty(), "List not emptied");
+        status &= check(list.last() == FrameList.NONE, "Empty list has a tail");
+
+        if (status == PASS) {
+            System.out.print("  Test 1 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean orderTest ()
+
+    /**
+     * Puts frames in the place of others at the head, the middle and the
+     * tail.
+     */
+    protected boolean replaceTest() {
+
+        System.out.print("\n  Test 2 puts frames in the place of others:\n");
+        boolean status = PASS;
+        FrameList list = new FrameList(8);
+        list.addLast(0);
+        list.addLast(1);
+        list.addLast(2);
+        list.replace(1, 5);
+        status &= checkOrder(list, 0, 5, 2);
+        list.replace(0, 4);
+        list.replace(2, 6);
+        status &= checkOrder(list, 4, 5, 6);
+        status &= check(!list.contains(0) && !list.contains(1) && !list.contains(2),
+            "Replaced frames still on the list");
+        list.addLast(1);
+        status &= checkOrder(list, 4, 5, 6, 1);
+
+        if (status == PASS) {
+            System.out.print("  Test 2 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean replaceTest ()
+
+    /**
+     * Compares random operations with a LinkedList.
+     */
+    protected boolean randomTest() {
+
+        System.out.print("\n  Test 3 compares random operations with a LinkedList:\n");
+        boolean status = PASS;
+        Random random = new Random(74);
+        FrameList list = new FrameList(32);
+        LinkedList<Integer> expected = new LinkedList<Integer>();
+        for (int i = 0; status == PASS && i < 100000; i++) {
+            int frameno = random.nextInt(32);
+            switch (random.nextInt(4)) {
+            case 0:
+                list.addLast(frameno);
+                expected.remove((Integer) frameno);
+                expected.addLast(frameno);
+                break;
+            case 1:
+                list.addFirst(frameno);
+                expected.remove((Integer) frameno);
+                expected.addFirst(frameno);
+                break;
+            case 2:
+                status &= check(list.remove(frameno) == expected.remove((Integer) frameno),
+                    "Removing frame " + frameno + " disagrees");
+                break;
+            default:
+                Integer head = expected.pollFirst();
+                status &= check(list.removeFirst() == (head == null ? FrameList.NONE : head),
+                    "Removing the head disagrees");
+                break;
+            }
+            if (i % 1000 == 0) {
+                status &= checkOrder(list, toArray(expected));
+            }
+        }
+        status &= checkOrder(list, toArray(expected));
+
+        if (status == PASS) {
+            System.out.print("  Test 3 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean randomTest ()
+
+    /**
+     * Checks that the list holds just the given frames, in order, walking it
+     * from the head.
+     */
+    protected static boolean checkOrder(FrameList list, int... frames) {
+        List<Integer> found = new ArrayList<Integer>();
+        for (int f = list.first(); f != FrameList.NONE && found.size() <= frames.length; f = list.next(f)) {
+            found.add(f);
+        }
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int f : frames) {
+            expected.add(f);
+        }
+        boolean status = check(found.equals(expected), "List is " + found + ", expected " + expected);
+        status &= check(list.size() == frames.length, "Size is " + list.size()
+            + ", expected " + frames.length);
+        int last = frames.length == 0 ? FrameList.NONE : frames[frames.length - 1];
+        status &= check(list.last() == last, "Tail is " + list.last() + ", expected " + last);
+        return status;
+    }
+
+    private static int[] toArray(List<Integer> frames) {
+        int[] array = new int[frames.size()];
+        int i = 0;
+        for (int f : frames) {
+            array[i++] = f;
+        }
+        return array;
+    }
+
+} // class FrameListTest extends UnitTestDriver
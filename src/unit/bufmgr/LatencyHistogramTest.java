@@ -0,0 +1,247 @@
+package bufmgr;
+
+import global.GlobalConst;
+import global.Minibase;
+import global.Page;
+import global.PageId;
+import tests.MemoryDiskMgr;
+
+/**
+ * Test suite for the latency histograms, and for their use by the pool.
+ */
+class LatencyHistogramTest extends UnitTestDriver implements GlobalConst {
+
+    /** The display name of the test suite. */
+    private static final String TEST_NAME = "latency histogram tests";
+
+    /**
+     * Test application entry point; runs all tests.
+     */
+    public static void main(String argv[]) {
+
+        // run all the test cases
+        System.out.println("\n" + "Running " + TEST_NAME + "...");
+        LatencyHistogramTest lht = new LatencyHistogramTest();
+        boolean status = PASS;
+        status &= lht.bucketTest();
+        status &= lht.percentileTest();
+        status &= lht.addResetTest();
+        status &= lht.concurrentTest();
+        status &= lht.timingTest();
+
+        // display the final results
+        System.out.println();
+        if (status != PASS) {
+            System.out.println("Error(s) encountered during " + TEST_NAME + ".");
+        } else {
+            System.out.println("All " + TEST_NAME + " completed successfully!");
+        }
+
+    } // public static void main (String argv[])
+
+    /**
+     * Checks that the buckets follow one another with no gaps, and are no
+     * wider than a sixteenth of the values in them.
+     */
+    protected boolean bucketTest() {
+
+        System.out.print("\n  Test 1 checks the bounds of every bucket:\n");
+        boolean status = PASS;
+        for (long v = 0; v < LatencyHistogram.SUB_BUCKETS; v++) {
+            status &= check(LatencyHistogram.bucketOf(v) == v
+                && LatencyHistogram.highestOf((int) v) == v, "Value " + v + " not exact");
+        }
+        long low = 0;
+        for (int b = 0; status == PASS && b < LatencyHistogram.BUCKETS - 1; b++) {
+            long high = LatencyHistogram.highestOf(b);
+            status &= check(LatencyHistogram.bucketOf(low) == b
+                && LatencyHistogram.bucketOf(high) == b
+                && LatencyHistogram.bucketOf(high + 1) == b + 1,
+                "Bucket " + b + " does not hold " + low + " to " + high);
+            status &= check((high - low) * 16 <= Math.max(low, 1), "Bucket " + b + " from "
+                + low + " to " + high + " is too wide");
+            low = high + 1;
+        }
+        status &= check(LatencyHistogram.bucketOf(1L << 50) == LatencyHistogram.BUCKETS - 1
+            && LatencyHistogram.bucketOf(Long.MAX_VALUE) == LatencyHistogram.BUCKETS - 1,
+            "Long latencies not in the last bucket");
+
+        if (status == PASS) {
+            System.out.print("  Test 1 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean bucketTest ()
+
+    /**
+     * Records known latencies and reads percentiles back.
+     */
+    protected boolean percentileTest() {
+
+        System.out.print("\n  Test 2 reads percentiles of known latencies:\n");
+        boolean status = PASS;
+        LatencyHistogram h = new LatencyHistogram();
+        status &= check(h.getPercentile(0.5) == 0 && h.getMax() == 0 && h.getCount() == 0,
+            "Empty histogram is not zero");
+        for (long v = 1; v <= 10; v++) {
+            h.record(v);
+        }
+        status &= check(h.getPercentile(0.5) == 5 && h.getPercentile(1) == 10
+            && h.getPercentile(0) == 1, "Small latencies not read back exactly");
+
+        System.out.print("  - Percentiles are at most a bucket over, and never past the max\n");
+        h = new LatencyHistogram();
+        for (long v = 1; v <= 100000; v++) {
+            h.record(v * 1000);
+        }
+        double[] qs = { 0.5, 0.9, 0.99, 0.999 };
+        for (double q : qs) {
+            long exact = Math.round(q * 100000) * 1000;
+            long found = h.getPercentile(q);
+            status &= check(found >= exact && found <= exact + exact / 16,
+                "Percentile " + q + " is " + found + ", expected " + exact);
+        }
+        status &= check(h.getPercentile(1) == 100000000L && h.getMax() == 100000000L,
+            "Maximum is " + h.getMax());
+        status &= check(h.getCount() == 100000, "Count is " + h.getCount());
+
+        System.out.print("  - A negative latency counts as 0, and a huge one is kept\n");
+        h = new LatencyHistogram();
+        h.record(-5);
+        h.record(1L << 50);
+        status &= check(h.getPercentile(0.5) == 0 && h.getPercentile(1) == 1L << 50,
+            "Wrong percentiles of -5 and 2^50");
+
+        if (status == PASS) {
+            System.out.print("  Test 2 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean percentileTest ()
+
+    /**
+     * Adds one histogram to another, and resets one.
+     */
+    protected boolean addResetTest() {
+
+        System.out.print("\n  Test 3 adds and resets histograms:\n");
+        boolean status = PASS;
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            a.record(10);
+        }
+        for (int i = 0; i < 10; i++) {
+            b.record(5000);
+        }
+        a.add(b);
+        status &= check(a.getCount() == 100 && a.getMax() == 5000, "Sum has count "
+            + a.getCount() + " and max " + a.getMax());
+        status &= check(a.getPercentile(0.9) == 10 && a.getPercentile(0.91) >= 5000,
+            "Wrong percentiles of the sum");
+        status &= check(b.getCount() == 10, "Adding changed the histogram added");
+        a.reset();
+        status &= check(a.getCount() == 0 && a.getMax() == 0 && a.getPercentile(0.5) == 0,
+            "Histogram not reset");
+
+        if (status == PASS) {
+            System.out.print("  Test 3 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean addResetTest ()
+
+    /**
+     * Records from 8 threads at once, and checks that no latency is lost.
+     */
+    protected boolean concurrentTest() {
+
+        System.out.print("\n  Test 4 records from 8 threads:\n");
+        final LatencyHistogram h = new LatencyHistogram();
+        Thread[] workers = new Thread[8];
+        for (int t = 0; t < workers.length; t++) {
+            final long top = (t + 1) * 1000;
+            workers[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < 100000; i++) {
+                        h.record(i % top);
+                    }
+                }
+            };
+            workers[t].start();
+        }
+        try {
+            for (Thread w : workers) {
+                w.join();
+            }
+        } catch (InterruptedException e) {
+            System.err.print("*** Interrupted waiting for the threads\n");
+            return FAIL;
+        }
+        boolean status = check(h.getCount() == 800000 && h.getMax() == 7999,
+            "Count is " + h.getCount() + " and max " + h.getMax());
+
+        if (status == PASS) {
+            System.out.print("  Test 4 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean concurrentTest ()
+
+    /**
+     * Pins pages on a pool with timing off and then on, and checks that
+     * latencies are recorded only while it is on, one per pin and read.
+     */
+    protected boolean timingTest() {
+
+        System.out.print("\n  Test 5 records a pool's latencies while timing:\n");
+        boolean status = PASS;
+        Minibase.DiskManager = new MemoryDiskMgr(100);
+        BufferManager bufmgr = new BufferManager(4, "Clock");
+        bufmgr.setReadAhead(0, 0);
+        BufferStats stats = bufmgr.getStats();
+        pinPages(bufmgr);
+        status &= check(stats.getPinHitLatency().getCount() == 0
+            && stats.getPinMissLatency().getCount() == 0, "Latencies recorded with timing off");
+
+        stats.setTiming(true);
+        stats.reset();
+        pinPages(bufmgr);
+        long hits = stats.getHits();
+        long misses = stats.getMisses();
+        status &= check(stats.getPinHitLatency().getCount() == hits
+            && stats.getPinMissLatency().getCount() == misses,
+            "Pin latencies counted " + stats.getPinHitLatency().getCount() + " hits and "
+            + stats.getPinMissLatency().getCount() + " misses, expected " + hits
+            + " and " + misses);
+        status &= check(stats.getDiskReadLatency().getCount() == misses,
+            "Disk read latencies counted " + stats.getDiskReadLatency().getCount()
+            + ", expected " + misses);
+        status &= check(stats.getLatencies().get("pinMiss.count") == misses,
+            "Latencies by name are " + stats.getLatencies());
+
+        if (status == PASS) {
+            System.out.print("  Test 5 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean timingTest ()
+
+    /**
+     * Pins and unpins pages 0 to 7 twice over on a pool of 4, and page 0
+     * again after each, so some pins hit and some miss.
+     */
+    protected static void pinPages(BufferManager bufmgr) {
+        Page pg = new Page();
+        PageId pid = new PageId();
+        for (int i = 0; i < 16; i++) {
+            pid.pid = i % 8;
+            bufmgr.pinPage(pid, pg, PIN_DISKIO);
+            bufmgr.unpinPage(pid, UNPIN_CLEAN);
+            pid.pid = 0;
+            bufmgr.pinPage(pid, pg, PIN_DISKIO);
+            bufmgr.unpinPage(pid, UNPIN_CLEAN);
+        }
+    }
+
+} // class LatencyHistogramTest extends UnitTestDriver implements GlobalConst
@@ -0,0 +1,241 @@
+package bufmgr;
+
+import global.GlobalConst;
+import global.Minibase;
+import global.Page;
+import global.PageId;
+import tests.MemoryDiskMgr;
+
+import java.util.LinkedList;
+import java.util.Random;
+
+/**
+ * Test suite for the miss ratio sampler, checked against LRU stack distances
+ * counted exactly.
+ */
+class MissRatioSamplerTest extends UnitTestDriver implements GlobalConst {
+
+    /** The display name of the test suite. */
+    private static final String TEST_NAME = "miss ratio sampler tests";
+
+    /**
+     * Test application entry point; runs all tests.
+     */
+    public static void main(String argv[]) {
+
+        // run all the test cases
+        System.out.println("\n" + "Running " + TEST_NAME + "...");
+        MissRatioSamplerTest mrst = new MissRatioSamplerTest();
+        boolean status = PASS;
+        status &= mrst.exactTest();
+        status &= mrst.lruPoolTest();
+        status &= mrst.sampledTest();
+        status &= mrst.concurrentTest();
+
+        // display the final results
+        System.out.println();
+        if (status != PASS) {
+            System.out.println("Error(s) encountered during " + TEST_NAME + ".");
+        } else {
+            System.out.println("All " + TEST_NAME + " completed successfully!");
+        }
+
+    } // public static void main (String argv[])
+
+    /**
+     * Samples every pin of 20000 references to 300 pages, enough to
+     * renumber the times a few times, and checks every reuse distance and
+     * hit ratio against an LRU stack.
+     */
+    protected boolean exactTest() {
+
+        System.out.print("\n  Test 1 samples every pin and counts exact distances:\n");
+        boolean status = PASS;
+        int[] refs = references(20000, 300);
+        MissRatioSampler sampler = new MissRatioSampler(null, 1, 0);
+        for (int pid : refs) {
+            sampler.pin(pid);
+        }
+        long[] distances = stackDistances(refs, 300);
+        status &= check(sampler.references == refs.length && sampler.coldMisses == distances[300],
+            "Sampled " + sampler.references + " references and " + sampler.coldMisses
+            + " cold misses");
+        for (int d = 0; d < 300; d++) {
+            long found = d < sampler.distances.length ? sampler.distances[d] : 0;
+            status &= check(found == distances[d], found + " references at distance " + d
+                + ", expected " + distances[d]);
+        }
+
+        System.out.print("  - Check the hit ratio at every size\n");
+        long hits = 0;
+        for (int frames = 1; status == PASS && frames <= 300; frames++) {
+            hits += distances[frames - 1];
+            double expected = (double) hits / refs.length;
+            status &= check(Math.abs(sampler.hitRatio(frames) - expected) < 1e-9, "Hit ratio at "
+                + frames + " frames is " + sampler.hitRatio(frames) + ", expected " + expected);
+        }
+        status &= check(sampler.getMaxFrames() == 300, "Most frames worth estimating is "
+            + sampler.getMaxFrames() + ", expected 300");
+
+        if (status == PASS) {
+            System.out.print("  Test 1 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean exactTest ()
+
+    /**
+     * Runs the references on Lru pools of several sizes, sampling every
+     * pin, and checks the curve against the hits the pools had.
+     */
+    protected boolean lruPoolTest() {
+
+        System.out.print("\n  Test 2 compares the curve with Lru pools:\n");
+        boolean status = PASS;
+        int[] refs = references(5000, 200);
+        int[] sizes = { 8, 32, 100 };
+        Minibase.DiskManager = new MemoryDiskMgr(1000);
+        Page pg = new Page();
+        PageId pid = new PageId();
+        for (int frames : sizes) {
+            BufferManager bufmgr = new BufferManager(frames, "Lru");
+            bufmgr.setReadAhead(0, 0);
+            bufmgr.startMissRatioSampling(1, 0);
+            long hits = 0;
+            for (int ref : refs) {
+                if (bufmgr.lookup(ref) != null) {
+                    hits++;
+                }
+                pid.pid = ref;
+                bufmgr.pinPage(pid, pg, PIN_DISKIO);
+                bufmgr.unpinPage(pid, UNPIN_CLEAN);
+            }
+            double expected = (double) hits / refs.length;
+            double found = bufmgr.getMissRatioCurve(new int[] { frames })[0];
+            status &= check(Math.abs(found - expected) < 1e-9, "Hit ratio at " + frames
+                + " frames is " + found + ", the pool hit " + expected);
+        }
+
+        if (status == PASS) {
+            System.out.print("  Test 2 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean lruPoolTest ()
+
+    /**
+     * Samples a tenth of 4000 pages over 200000 references, and checks that
+     * the curve stays within a few points of the exact one.
+     */
+    protected boolean sampledTest() {
+
+        System.out.print("\n  Test 3 samples a tenth of the pages:\n");
+        boolean status = PASS;
+        int[] refs = references(200000, 4000);
+        MissRatioSampler sampler = new MissRatioSampler(null, 0.1, 0);
+        for (int pid : refs) {
+            sampler.pin(pid);
+        }
+        long[] distances = stackDistances(refs, 4000);
+        status &= check(sampler.references > 0 && sampler.references < refs.length,
+            "Sampled " + sampler.references + " of " + refs.length + " references");
+        long hits = 0;
+        int size = 0;
+        for (int frames = 250; frames <= 4000; frames *= 2) {
+            for (; size < frames; size++) {
+                hits += distances[size];
+            }
+            double expected = (double) hits / refs.length;
+            double found = sampler.hitRatio(frames);
+            status &= check(Math.abs(found - expected) < 0.05, "Hit ratio at " + frames
+                + " frames is " + found + ", expected about " + expected);
+        }
+
+        if (status == PASS) {
+            System.out.print("  Test 3 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean sampledTest ()
+
+    /**
+     * Pins the same references from 4 threads at once, and checks that no
+     * pin and no sampled reference is lost.
+     */
+    protected boolean concurrentTest() {
+
+        System.out.print("\n  Test 4 pins from 4 threads at once:\n");
+        boolean status = PASS;
+        final int threads = 4;
+        final int[] refs = references(20000, 4000);
+        MissRatioSampler alone = new MissRatioSampler(null, 0.1, 0);
+        for (int pid : refs) {
+            alone.pin(pid);
+        }
+        final MissRatioSampler sampler = new MissRatioSampler(null, 0.1, 0);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread() {
+                public void run() {
+                    for (int pid : refs) {
+                        sampler.pin(pid);
+                    }
+                }
+            };
+            workers[t].start();
+        }
+        try {
+            for (Thread w : workers) {
+                w.join();
+            }
+        } catch (InterruptedException e) {
+            System.err.print("*** Interrupted waiting for the threads\n");
+            return FAIL;
+        }
+        status &= check(sampler.pins.sum() == threads * refs.length, "Counted "
+            + sampler.pins.sum() + " pins, expected " + threads * refs.length);
+        status &= check(sampler.references == threads * alone.references, "Sampled "
+            + sampler.references + " references, expected " + threads * alone.references);
+
+        if (status == PASS) {
+            System.out.print("  Test 4 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean concurrentTest ()
+
+    /**
+     * Makes a string of references to pages below the given number, most
+     * of them to the first tenth.
+     */
+    protected static int[] references(int count, int pages) {
+        Random random = new Random(74);
+        int[] refs = new int[count];
+        for (int i = 0; i < count; i++) {
+            refs[i] = random.nextInt(10) < 7 ? random.nextInt(pages / 10) : random.nextInt(pages);
+        }
+        return refs;
+    }
+
+    /**
+     * Counts the references at each LRU stack distance, the number of other
+     * pages referenced since the last reference to the same page, with an
+     * LRU stack; first references are counted at the number of pages.
+     */
+    protected static long[] stackDistances(int[] refs, int pages) {
+        long[] distances = new long[pages + 1];
+        LinkedList<Integer> stack = new LinkedList<Integer>();
+        for (int pid : refs) {
+            int d = stack.indexOf(pid);
+            if (d < 0) {
+                distances[pages]++;
+            } else {
+                distances[d]++;
+                stack.remove(d);
+            }
+            stack.addFirst(pid);
+        }
+        return distances;
+    }
+
+} // class MissRatioSamplerTest extends UnitTestDriver implements GlobalConst
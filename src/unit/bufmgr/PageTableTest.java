@@ -0,0 +1,202 @@
+package bufmgr;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Test suite for the page table.
+ */
+class PageTableTest extends UnitTestDriver {
+
+    /** The display name of the test suite. */
+    private static final String TEST_NAME = "page table tests";
+
+    /**
+     * Test application entry point; runs all tests.
+     */
+    public static void main(String argv[]) {
+
+        // run all the test cases
+        System.out.println("\n" + "Running " + TEST_NAME + "...");
+        PageTableTest ptt = new PageTableTest();
+        boolean status = PASS;
+        status &= ptt.insertDeleteTest();
+        status &= ptt.reprobeTest();
+        status &= ptt.growTest();
+        status &= ptt.randomTest();
+
+        // display the final results
+        System.out.println();
+        if (status != PASS) {
+            System.out.println("Error(s) encountered during " + TEST_NAME + ".");
+        } else {
+            System.out.println("All " + TEST_NAME + " completed successfully!");
+        }
+
+    } // public static void main (String argv[])
+
+    /**
+     * Maps, looks up and removes a few pages.
+     */
+    protected boolean insertDeleteTest() {
+
+        System.out.print("\n  Test 1 maps, looks up and removes pages:\n");
+        boolean status = PASS;
+        PageTable table = new PageTable(4, 1);
+        status &= check(table.get(7) == PageTable.NOT_FOUND, "Empty table found page 7");
+        status &= check(table.putIfAbsent(7, 0) == PageTable.NOT_FOUND, "Could not map page 7");
+        status &= check(table.putIfAbsent(9, 1) == PageTable.NOT_FOUND, "Could not map page 9");
+        status &= check(table.putIfAbsent(7, 2) == 0, "Page 7 mapped twice");
+        status &= check(table.get(7) == 0 && table.get(9) == 1, "Wrong frames for pages 7 and 9");
+        status &= check(table.size() == 2, "Size is " + table.size() + ", expected 2");
+
+        System.out.print("  - Remove only from the frame the page is mapped to\n");
+        status &= check(table.remove(7, 1) == PageTable.NOT_FOUND, "Removed page 7 from frame 1");
+        status &= check(table.get(7) == 0, "Page 7 lost");
+        status &= check(table.remove(7, 0) == 0, "Could not remove page 7 from frame 0");
+        status &= check(table.get(7) == PageTable.NOT_FOUND, "Page 7 still mapped");
+        status &= check(table.remove(9) == 1, "Could not remove page 9");
+        status &= check(table.remove(9) == PageTable.NOT_FOUND, "Removed page 9 twice");
+        status &= check(table.size() == 0, "Size is " + table.size() + ", expected 0");
+
+        if (status == PASS) {
+            System.out.print("  Test 1 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean insertDeleteTest ()
+
+    /**
+     * Maps pages that hash to the same slot, so each one after the first is
+     * found by probing past the others, then removes them in an order that
+     * needs entries shifted back.
+     */
+    protected boolean reprobeTest() {
+
+        System.out.print("\n  Test 2 maps and removes pages that collide:\n");
+        boolean status = PASS;
+
+        // a table of 4 entries has 8 slots
+        int[] pids = collidingPages(8, 4);
+        PageTable table = new PageTable(4, 1);
+        for (int i = 0; i < pids.length; i++) {
+            table.putIfAbsent(pids[i], i);
+        }
+        for (int i = 0; i < pids.length; i++) {
+            status &= check(table.get(pids[i]) == i, "Colliding page " + pids[i] + " not found");
+        }
+
+        // removing the first of the run leaves a hole that the rest must be
+        // shifted back over, or they could no longer be reached
+        System.out.print("  - Remove the first and then the middle of the run\n");
+        status &= check(table.remove(pids[0]) == 0, "Could not remove page " + pids[0]);
+        status &= check(table.get(pids[0]) == PageTable.NOT_FOUND, "Page " + pids[0] + " still mapped");
+        for (int i = 1; i < pids.length; i++) {
+            status &= check(table.get(pids[i]) == i, "Page " + pids[i] + " lost after removal");
+        }
+        status &= check(table.remove(pids[2]) == 2, "Could not remove page " + pids[2]);
+        status &= check(table.get(pids[1]) == 1 && table.get(pids[3]) == 3,
+            "Pages lost after removing from the middle");
+
+        // the slots freed must be usable again
+        status &= check(table.putIfAbsent(pids[0], 5) == PageTable.NOT_FOUND,
+            "Could not map page " + pids[0] + " again");
+        status &= check(table.get(pids[0]) == 5, "Page " + pids[0] + " mapped to the wrong frame");
+        status &= check(table.size() == 3, "Size is " + table.size() + ", expected 3");
+
+        if (status == PASS) {
+            System.out.print("  Test 2 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean reprobeTest ()
+
+    /**
+     * Maps many more pages than the table was made for, so it grows, then
+     * removes every other one.
+     */
+    protected boolean growTest() {
+
+        System.out.print("\n  Test 3 maps more pages than the table was made for:\n");
+        boolean status = PASS;
+        PageTable table = new PageTable(4);
+        for (int pid = 0; pid < 1000; pid++) {
+            table.putIfAbsent(pid, pid % 100);
+        }
+        for (int pid = 0; pid < 1000; pid += 2) {
+            table.remove(pid);
+        }
+        for (int pid = 0; status == PASS && pid < 1000; pid++) {
+            int expected = (pid % 2 == 0) ? PageTable.NOT_FOUND : pid % 100;
+            status &= check(table.get(pid) == expected, "Wrong frame for page " + pid);
+        }
+        status &= check(table.size() == 500, "Size is " + table.size() + ", expected 500");
+
+        if (status == PASS) {
+            System.out.print("  Test 3 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean growTest ()
+
+    /**
+     * Compares random maps and removals with a HashMap.
+     */
+    protected boolean randomTest() {
+
+        System.out.print("\n  Test 4 compares random operations with a HashMap:\n");
+        boolean status = PASS;
+        Random random = new Random(74);
+        PageTable table = new PageTable(32, 4);
+        Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+        for (int i = 0; status == PASS && i < 100000; i++) {
+            int pid = random.nextInt(200);
+            if (random.nextBoolean()) {
+                Integer old = expected.get(pid);
+                int found = table.putIfAbsent(pid, i % 64);
+                if (old == null) {
+                    expected.put(pid, i % 64);
+                }
+                status &= check(found == (old == null ? PageTable.NOT_FOUND : old),
+                    "Mapping page " + pid + " found frame " + found);
+            } else {
+                Integer old = expected.remove(pid);
+                int found = table.remove(pid);
+                status &= check(found == (old == null ? PageTable.NOT_FOUND : old),
+                    "Removing page " + pid + " found frame " + found);
+            }
+        }
+        for (int pid = 0; status == PASS && pid < 200; pid++) {
+            Integer frameno = expected.get(pid);
+            status &= check(table.get(pid) == (frameno == null ? PageTable.NOT_FOUND : frameno),
+                "Wrong frame for page " + pid);
+        }
+        status &= check(table.size() == expected.size(), "Size is " + table.size()
+            + ", expected " + expected.size());
+
+        if (status == PASS) {
+            System.out.print("  Test 4 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean randomTest ()
+
+    /**
+     * Finds pages that PageTable's hash sends to the same slot of a table
+     * with the given number of slots.
+     */
+    protected static int[] collidingPages(int slots, int count) {
+        int[] pids = new int[count];
+        int n = 0;
+        for (int pid = 1; n < count; pid++) {
+            int h = pid * 0x9E3779B9;
+            h ^= h >>> 16;
+            if ((h & (slots - 1)) == 3) {
+                pids[n++] = pid;
+            }
+        }
+        return pids;
+    }
+
+} // class PageTableTest extends UnitTestDriver
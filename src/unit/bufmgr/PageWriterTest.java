@@ -0,0 +1,197 @@
+package bufmgr;
+
+import global.Convert;
+import global.GlobalConst;
+import global.Minibase;
+import global.Page;
+import global.PageId;
+import tests.MemoryDiskMgr;
+
+/**
+ * Test suite for the background page writer, run against a BufferManager over
+ * a disk kept in memory.
+ */
+class PageWriterTest extends UnitTestDriver implements GlobalConst {
+
+    /** The display name of the test suite. */
+    private static final String TEST_NAME = "page writer tests";
+
+    /** Number of frames in the pool. */
+    private static final int NUMBUFS = 10;
+
+    /** The buffer manager under test. */
+    protected BufferManager bufmgr;
+
+    /** The first of the pages in the pool. */
+    protected int firstPid;
+
+    /**
+     * Test application entry point; runs all tests.
+     */
+    public static void main(String argv[]) {
+
+        // run all the test cases
+        System.out.println("\n" + "Running " + TEST_NAME + "...");
+        PageWriterTest pwt = new PageWriterTest();
+        boolean status = PASS;
+        status &= pwt.writeRoundTest();
+        status &= pwt.thresholdTest();
+
+        // display the final results
+        System.out.println();
+        if (status != PASS) {
+            System.out.println("Error(s) encountered during " + TEST_NAME + ".");
+        } else {
+            System.out.println("All " + TEST_NAME + " completed successfully!");
+        }
+
+    } // public static void main (String argv[])
+
+    /**
+     * Runs rounds of a page writer that is not started, so each writes what
+     * it would in a tenth of a second: up to three pages from the hand on,
+     * passing over a pinned frame.
+     */
+    protected boolean writeRoundTest() {
+
+        System.out.print("\n  Test 1 writes rounds of pages from the hand on:\n");
+        boolean status = PASS;
+        fillPool();
+        PageWriter writer = new PageWriter(bufmgr, 30, 0.5);
+        PageId pinned = new PageId(frameOf(1));
+        bufmgr.pinPage(pinned, new Page(), PIN_DISKIO);
+
+        System.out.print("  - Each round writes three frames, passing over frame 1\n");
+        writer.writeRound();
+        status &= checkDirty(false, true, false, false, true, true, true, true, true, true);
+        writer.writeRound();
+        writer.writeRound();
+        status &= checkDirty(false, true, false, false, false, false, false, false, false, false);
+        status &= check(writer.hand == 0, "Hand is at " + writer.hand + ", expected 0");
+
+        System.out.print("  - A round with only the pinned frame dirty writes nothing\n");
+        writer.writeRound();
+        status &= checkDirty(false, true, false, false, false, false, false, false, false, false);
+        bufmgr.unpinPage(pinned, UNPIN_CLEAN);
+        writer.writeRound();
+        status &= checkDirty(false, false, false, false, false, false, false, false, false, false);
+
+        System.out.print("  - Check that every page reached the disk\n");
+        status &= checkDisk();
+
+        if (status == PASS) {
+            System.out.print("  Test 1 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean writeRoundTest ()
+
+    /**
+     * Starts the page writer on a pool of 10 frames with a dirty share of a
+     * half, and checks that it leaves 5 dirty frames alone and writes all of
+     * 6.
+     */
+    protected boolean thresholdTest() {
+
+        System.out.print("\n  Test 2 writes pages only above the dirty share:\n");
+        boolean status = PASS;
+        fillPool();
+        bufmgr.flushAllPages();
+        for (int i = 0; i < 5; i++) {
+            dirty(frameOf(i));
+        }
+        bufmgr.startPageWriter(1000, 0.5);
+
+        System.out.print("  - Leave 5 dirty frames\n");
+        sleep(500);
+        status &= check(bufmgr.dirtyFrames.cardinality() == 5,
+            bufmgr.dirtyFrames.cardinality() + " dirty frames, expected 5");
+
+        System.out.print("  - Write all of 6 dirty frames\n");
+        dirty(frameOf(5));
+        for (int i = 0; i < 50 && bufmgr.dirtyFrames.cardinality() > 0; i++) {
+            sleep(100);
+        }
+        status &= check(bufmgr.dirtyFrames.cardinality() == 0,
+            bufmgr.dirtyFrames.cardinality() + " dirty frames, expected 0");
+        bufmgr.shutdown();
+        status &= checkDisk();
+
+        if (status == PASS) {
+            System.out.print("  Test 2 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean thresholdTest ()
+
+    /**
+     * Makes a new pool without read-ahead and fills it with dirty pages.
+     */
+    protected void fillPool() {
+        Minibase.DiskManager = new MemoryDiskMgr(1000);
+        bufmgr = new BufferManager(NUMBUFS, "Clock");
+        bufmgr.setReadAhead(0, 0);
+        PageId pid = bufmgr.newPage(new Page(), NUMBUFS);
+        bufmgr.unpinPage(pid, UNPIN_CLEAN);
+        firstPid = pid.pid;
+        for (int i = 0; i < NUMBUFS; i++) {
+            dirty(firstPid + i);
+        }
+    }
+
+    /**
+     * Pins the page, writes its number plus 99999 into it and unpins it
+     * dirty.
+     */
+    protected void dirty(int pid) {
+        PageId pageno = new PageId(pid);
+        Page pg = new Page();
+        bufmgr.pinPage(pageno, pg, PIN_DISKIO);
+        Convert.setIntValue(pid + 99999, 0, pg.getData());
+        bufmgr.unpinPage(pageno, UNPIN_DIRTY);
+    }
+
+    /**
+     * Gets the page held by the given frame.
+     */
+    protected int frameOf(int frameno) {
+        return bufmgr.frametab[frameno].pageno.pid;
+    }
+
+    /**
+     * Checks which frames are dirty, by both the frame's flag and the dirty
+     * set.
+     */
+    protected boolean checkDirty(boolean... dirty) {
+        boolean status = PASS;
+        for (int i = 0; i < dirty.length; i++) {
+            status &= check(bufmgr.frametab[i].dirty == dirty[i]
+                && bufmgr.dirtyFrames.get(i) == dirty[i],
+                "Frame " + i + (dirty[i] ? " is clean" : " is dirty"));
+        }
+        return status;
+    }
+
+    /**
+     * Checks that the disk holds what dirty wrote into each page of the pool.
+     */
+    protected boolean checkDisk() {
+        boolean status = PASS;
+        Page pg = new Page();
+        for (int pid = firstPid; pid < firstPid + NUMBUFS; pid++) {
+            Minibase.DiskManager.read_page(new PageId(pid), pg);
+            int data = Convert.getIntValue(0, pg.getData());
+            status &= check(data == pid + 99999, "Page " + pid + " not written");
+        }
+        return status;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+} // class PageWriterTest extends UnitTestDriver implements GlobalConst
@@ -0,0 +1,209 @@
+package bufmgr;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test suite for the pool lock, whose shared holders count themselves in
+ * stripes.
+ */
+class PoolLockTest extends UnitTestDriver {
+
+    /** The display name of the test suite. */
+    private static final String TEST_NAME = "pool lock tests";
+
+    /** Milliseconds to give a thread that should be waiting. */
+    private static final int WAIT_MILLIS = 100;
+
+    /**
+     * Test application entry point; runs all tests.
+     */
+    public static void main(String argv[]) {
+
+        // run all the test cases
+        System.out.println("\n" + "Running " + TEST_NAME + "...");
+        PoolLockTest plt = new PoolLockTest();
+        boolean status = PASS;
+        status &= plt.exclusiveWaitsTest();
+        status &= plt.sharedWaitsTest();
+        status &= plt.concurrentTest();
+
+        // display the final results
+        System.out.println();
+        if (status != PASS) {
+            System.out.println("Error(s) encountered during " + TEST_NAME + ".");
+        } else {
+            System.out.println("All " + TEST_NAME + " completed successfully!");
+        }
+
+    } // public static void main (String argv[])
+
+    /**
+     * Checks that locking exclusively waits for a shared holder.
+     */
+    protected boolean exclusiveWaitsTest() {
+
+        System.out.print("\n  Test 1 locks exclusively while the lock is held shared:\n");
+        boolean status = PASS;
+        final PoolLock lock = new PoolLock();
+        final AtomicBoolean locked = new AtomicBoolean();
+        lock.lockShared();
+        Thread writer = new Thread() {
+            public void run() {
+                lock.lockExclusive();
+                locked.set(true);
+                lock.unlockExclusive();
+            }
+        };
+        writer.start();
+        sleep(WAIT_MILLIS);
+        status &= check(!locked.get(), "Locked exclusively while held shared");
+
+        System.out.print("  - Unlock and let the exclusive holder in\n");
+        lock.unlockShared();
+        status &= join(writer);
+        status &= check(locked.get(), "Never locked exclusively");
+
+        if (status == PASS) {
+            System.out.print("  Test 1 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean exclusiveWaitsTest ()
+
+    /**
+     * Checks that locking shared waits for an exclusive holder.
+     */
+    protected boolean sharedWaitsTest() {
+
+        System.out.print("\n  Test 2 locks shared while the lock is held exclusively:\n");
+        boolean status = PASS;
+        final PoolLock lock = new PoolLock();
+        final AtomicBoolean locked = new AtomicBoolean();
+        lock.lockExclusive();
+        Thread reader = new Thread() {
+            public void run() {
+                lock.lockShared();
+                locked.set(true);
+                lock.unlockShared();
+            }
+        };
+        reader.start();
+        sleep(WAIT_MILLIS);
+        status &= check(!locked.get(), "Locked shared while held exclusively");
+
+        System.out.print("  - Unlock and let the shared holder in\n");
+        lock.unlockExclusive();
+        status &= join(reader);
+        status &= check(locked.get(), "Never locked shared");
+
+        System.out.print("  - Lock exclusively again once it has left\n");
+        lock.lockExclusive();
+        lock.unlockExclusive();
+
+        if (status == PASS) {
+            System.out.print("  Test 2 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean sharedWaitsTest ()
+
+    /**
+     * Has threads lock shared over and over while another locks exclusively,
+     * and checks that no shared holder ever ran with the exclusive one.
+     */
+    protected boolean concurrentTest() {
+
+        System.out.print("\n  Test 3 locks shared from 4 threads and exclusively from one:\n");
+        final int threads = 4;
+        final PoolLock lock = new PoolLock();
+        final AtomicInteger readers = new AtomicInteger();
+        final AtomicBoolean writing = new AtomicBoolean();
+        final AtomicInteger overlaps = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads + 1];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread() {
+                public void run() {
+                    await(start);
+                    for (int i = 0; i < 200000; i++) {
+                        lock.lockShared();
+                        readers.incrementAndGet();
+                        if (writing.get()) {
+                            overlaps.incrementAndGet();
+                        }
+                        readers.decrementAndGet();
+                        lock.unlockShared();
+                    }
+                }
+            };
+        }
+        workers[threads] = new Thread() {
+            public void run() {
+                await(start);
+                for (int i = 0; i < 2000; i++) {
+                    lock.lockExclusive();
+                    writing.set(true);
+                    if (readers.get() != 0) {
+                        overlaps.incrementAndGet();
+                    }
+                    writing.set(false);
+                    lock.unlockExclusive();
+                }
+            }
+        };
+        for (Thread w : workers) {
+            w.start();
+        }
+        start.countDown();
+        boolean status = PASS;
+        for (Thread w : workers) {
+            status &= join(w);
+        }
+        status &= check(overlaps.get() == 0, overlaps.get()
+            + " times a shared holder ran with the exclusive one");
+
+        if (status == PASS) {
+            System.out.print("  Test 3 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean concurrentTest ()
+
+    /**
+     * Sleeps for the given time.
+     */
+    protected static void sleep(int millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for the latch to open.
+     */
+    protected static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for a thread to finish.
+     */
+    protected static boolean join(Thread thread) {
+        try {
+            thread.join();
+            return PASS;
+        } catch (InterruptedException e) {
+            System.err.print("*** Interrupted waiting for a thread\n");
+            return FAIL;
+        }
+    }
+
+} // class PoolLockTest extends UnitTestDriver
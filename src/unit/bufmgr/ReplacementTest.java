@@ -0,0 +1,292 @@
+package bufmgr;
+
+import global.GlobalConst;
+import global.Minibase;
+import global.Page;
+import global.PageId;
+import java.util.*;
+import tests.MemoryDiskMgr;
+
+/**
+ * Test suite for the replacement policies, run against a BufferManager over a
+ * disk kept in memory. Each test pins and unpins a fixed string of pages on a
+ * small pool and checks which pages are evicted, in order.
+ */
+class ReplacementTest extends UnitTestDriver implements GlobalConst {
+
+    /** The display name of the test suite. */
+    private static final String TEST_NAME = "replacement policy tests";
+
+    /** Pages in the database. */
+    private static final int DB_SIZE = 1000;
+
+    /** The buffer manager under test. */
+    protected BufferManager bufmgr;
+
+    /**
+     * Test application entry point; runs all tests.
+     */
+    public static void main(String argv[]) {
+
+        // run all the test cases
+        System.out.println("\n" + "Running " + TEST_NAME + "...");
+        ReplacementTest rt = new ReplacementTest();
+        boolean status = PASS;
+        status &= rt.lruKScanTest();
+        status &= rt.arcGhostTest();
+        status &= rt.twoQScanTest();
+        status &= rt.gClockUsageTest();
+        status &= rt.clockProTestPageTest();
+        status &= rt.lirsLoopTest();
+        status &= rt.tinyLfuScanTest();
+        status &= rt.tinyLfuInnerTest();
+
+        // display the final results
+        System.out.println();
+        if (status != PASS) {
+            System.out.println("Error(s) encountered during " + TEST_NAME + ".");
+        } else {
+            System.out.println("All " + TEST_NAME + " completed successfully!");
+        }
+
+    } // public static void main (String argv[])
+
+    /**
+     * LRU-K keeps pages referenced twice through a scan that outlasts their
+     * correlated period. Four hot pages are referenced, then 20 cold pages
+     * fill the pool, then the hot pages again, more than 16 pins later. A
+     * scan of 30 pages then evicts the cold pages, and after them the scan
+     * pages as they leave their correlated period; LRU would evict the hot
+     * pages right after the cold ones.
+     */
+    protected boolean lruKScanTest() {
+
+        System.out.print("\n  Test 1 runs a scan past pages referenced twice under LruK:\n");
+        int[] refs = concat(range(1, 4), range(101, 20), range(1, 4), range(201, 30));
+        int[] victims = concat(range(101, 20), range(201, 10));
+        return checkVictims(1, "LruK", 24, refs, victims);
+
+    } // protected boolean lruKScanTest ()
+
+    /**
+     * ARC moves its target size for T1 on ghost hits. Pages 1 and 2 are
+     * referenced twice and go to T2; 3 and 4 then leave T1 for B1. The miss
+     * on the ghost of 3 raises the target, so the next miss evicts 1 from T2
+     * rather than 5 from T1. The miss on the ghost of 1 lowers it to zero,
+     * so the last miss takes 7, the only page left in T1, rather than 2.
+     */
+    protected boolean arcGhostTest() {
+
+        System.out.print("\n  Test 2 follows ghost hits under Arc:\n");
+        int[] refs = { 1, 2, 3, 4, 1, 2, 5, 3, 6, 7, 1, 8 };
+        int[] victims = { 3, 4, 1, 5, 6, 7 };
+        return checkVictims(2, "Arc", 4, refs, victims);
+
+    } // protected boolean arcGhostTest ()
+
+    /**
+     * 2Q lets a scan churn only A1in. On a pool of 4, A1in keeps one page
+     * and A1out remembers two. Page 1, read again while its ghost is in
+     * A1out, goes to Am and stays through the scan that follows. A1in gives
+     * up its pages first in, first out, so the hit on 6 does not save it.
+     * The ghost of 2 has been pushed out of A1out by the time 2 comes back,
+     * so 2 goes through A1in again.
+     */
+    protected boolean twoQScanTest() {
+
+        System.out.print("\n  Test 3 runs a scan past a page promoted to Am under 2Q:\n");
+        int[] refs = { 1, 2, 3, 4, 5, 1, 6, 7, 6, 8, 2, 9 };
+        int[] victims = { 1, 2, 3, 4, 5, 6, 7 };
+        return checkVictims(3, "2Q", 4, refs, victims);
+
+    } // protected boolean twoQScanTest ()
+
+    /**
+     * GCLOCK keeps a page for as many turns of the hand as it has been
+     * pinned. Page 1 is pinned four times and page 2 twice, so the first
+     * sweep evicts 3 and 4. Page 2 runs out on the next turn, and page 1
+     * only after the newer pages 5 and 6.
+     */
+    protected boolean gClockUsageTest() {
+
+        System.out.print("\n  Test 4 counts pins as usage under GClock:\n");
+        int[] refs = { 1, 2, 3, 4, 1, 1, 1, 2, 5, 6, 7, 8, 9, 10 };
+        int[] victims = { 3, 4, 2, 5, 6, 1 };
+        return checkVictims(4, "GClock", 4, refs, victims);
+
+    } // protected boolean gClockUsageTest ()
+
+    /**
+     * CLOCK-Pro makes a page hot when it comes back during its test period.
+     * On a pool of 4, pages 1 to 3 fill the hot share, and 4 and 5 come in
+     * cold and are evicted into test pages. Page 4 misses again while still
+     * a test page, so it comes back hot and the cold target grows. The hot
+     * hand then demotes 1 and 2, and the next misses evict them rather than
+     * 3 or 4.
+     */
+    protected boolean clockProTestPageTest() {
+
+        System.out.print("\n  Test 5 promotes a test page under ClockPro:\n");
+        int[] refs = { 1, 2, 3, 4, 5, 4, 6, 7 };
+        int[] victims = { 4, 5, 1, 2 };
+        return checkVictims(5, "ClockPro", 4, refs, victims);
+
+    } // protected boolean clockProTestPageTest ()
+
+    /**
+     * LIRS keeps most of a loop one page larger than the pool. On a pool of
+     * 4, pages 1 to 3 become LIR and stay through three passes over 1 to 5,
+     * while 4 and 5 take turns in the one HIR frame. Then 5, reused while
+     * still in the stack, becomes LIR and demotes 1, which 6 evicts; 4,
+     * missing while its non-resident node is in the stack, becomes LIR too
+     * and demotes 2, which 7 evicts.
+     */
+    protected boolean lirsLoopTest() {
+
+        System.out.print("\n  Test 6 runs a loop larger than the pool under Lirs:\n");
+        int[] refs = concat(range(1, 5), range(1, 5), range(1, 5), new int[] { 5, 6, 4, 7 });
+        int[] victims = { 4, 5, 4, 5, 4, 1, 6, 2 };
+        return checkVictims(6, "Lirs", 4, refs, victims);
+
+    } // protected boolean lirsLoopTest ()
+
+    /**
+     * TinyLFU keeps a scan out of the frames of pages pinned often. On a pool
+     * of 4 the window holds one frame. Pages 1 to 3 are pinned three times
+     * each, and 101 fills the last frame. The first page of the scan that
+     * follows is not admitted, but the window is still empty, so it takes
+     * the frame of 1, the victim Clock proposed. From then on each page of
+     * the scan is pinned less often than the victim Clock proposes, so it
+     * replaces the one before it in the window, and 2, 3 and 101 stay.
+     */
+    protected boolean tinyLfuScanTest() {
+
+        System.out.print("\n  Test 7 runs a scan past pages pinned often under TinyLfu:\n");
+        int[] refs = concat(range(1, 3), range(1, 3), range(1, 3), range(101, 6));
+        int[] victims = { 1, 102, 103, 104, 105 };
+        return checkVictims(7, "TinyLfu", 4, refs, victims);
+
+    } // protected boolean tinyLfuScanTest ()
+
+    /**
+     * TinyLfu:Lru puts TinyLFU admission in front of Lru rather than Clock.
+     * Pages 1 to 3 and 101 fill a pool of 4, and 1 to 3 are pinned twice
+     * more. The window is still empty when 102 misses, so it takes the frame
+     * of the victim Lru proposes, 101, the least recently pinned; Clock
+     * would have cleared every bit and proposed 1. Then 103, pinned no more
+     * often than anything in the main frames, replaces 102 in the window.
+     */
+    protected boolean tinyLfuInnerTest() {
+
+        System.out.print("\n  Test 8 names the policy TinyLfu filters:\n");
+        boolean status = PASS;
+        Minibase.DiskManager = new MemoryDiskMgr(DB_SIZE);
+        bufmgr = new BufferManager(4, "TinyLfu:Lirs");
+        status &= check(bufmgr.replacer instanceof TinyLfu
+            && ((TinyLfu) bufmgr.replacer).main instanceof Lirs, "TinyLfu:Lirs does not filter Lirs");
+
+        System.out.print("  - Switch to tinylfu:gclock\n");
+        bufmgr.setPolicy("tinylfu:gclock");
+        status &= check(bufmgr.replacer instanceof TinyLfu
+            && ((TinyLfu) bufmgr.replacer).main instanceof GClock, "tinylfu:gclock does not filter GClock");
+
+        System.out.print("  - Switch to Lru:Clock, which no policy makes\n");
+        try {
+            bufmgr.setPolicy("Lru:Clock");
+            status &= check(false, "Lru:Clock was taken");
+        } catch (IllegalArgumentException exc) {
+            // expected
+        }
+        if (status != PASS) {
+            return status;
+        }
+
+        int[] refs = concat(range(1, 3), range(101, 1), new int[] { 2, 3, 1, 2, 3, 1 }, range(102, 2));
+        int[] victims = { 101, 102 };
+        return checkVictims(8, "TinyLfu:Lru", 4, refs, victims);
+
+    } // protected boolean tinyLfuInnerTest ()
+
+    /**
+     * Pins and unpins the pages in turn on a new pool of the given size,
+     * without read-ahead, and checks that the pages evicted, in order, are
+     * the ones expected.
+     */
+    protected boolean checkVictims(int test, String policy, int numbufs, int[] refs, int[] victims) {
+
+        Minibase.DiskManager = new MemoryDiskMgr(DB_SIZE);
+        bufmgr = new BufferManager(numbufs, policy);
+        bufmgr.setReadAhead(0, 0);
+
+        System.out.print("  - Pin " + refs.length + " pages on a pool of " + numbufs + "\n");
+        Page pg = new Page();
+        PageId pid = new PageId();
+        List<Integer> resident = new ArrayList<Integer>();
+        List<Integer> evicted = new ArrayList<Integer>();
+        try {
+            for (int ref : refs) {
+                pid.pid = ref;
+                bufmgr.pinPage(pid, pg, PIN_DISKIO);
+                bufmgr.unpinPage(pid, UNPIN_CLEAN);
+                if (!resident.contains(ref)) {
+                    resident.add(ref);
+                }
+                for (Iterator<Integer> it = resident.iterator(); it.hasNext(); ) {
+                    int page = it.next();
+                    if (bufmgr.lookup(page) == null) {
+                        evicted.add(page);
+                        it.remove();
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.err.print("*** Could not pin page " + pid.pid + "\n");
+            e.printStackTrace();
+            return FAIL;
+        }
+
+        System.out.print("  - Check the pages evicted\n");
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int v : victims) {
+            expected.add(v);
+        }
+        if (!evicted.equals(expected)) {
+            System.err.print("*** Evicted " + evicted + "\n");
+            System.err.print("*** Expected " + expected + "\n");
+            return FAIL;
+        }
+
+        System.out.print("  Test " + test + " completed successfully.\n");
+        return PASS;
+
+    } // protected boolean checkVictims ()
+
+    /**
+     * Gets count consecutive page numbers from first.
+     */
+    protected static int[] range(int first, int count) {
+        int[] pages = new int[count];
+        for (int i = 0; i < count; i++) {
+            pages[i] = first + i;
+        }
+        return pages;
+    }
+
+    /**
+     * Gets the page numbers of the arrays one after another.
+     */
+    protected static int[] concat(int[]... parts) {
+        int length = 0;
+        for (int[] part : parts) {
+            length += part.length;
+        }
+        int[] pages = new int[length];
+        int i = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, pages, i, part.length);
+            i += part.length;
+        }
+        return pages;
+    }
+
+} // class ReplacementTest extends UnitTestDriver implements GlobalConst
@@ -0,0 +1,222 @@
+package bufmgr;
+
+import global.GlobalConst;
+import global.Minibase;
+import global.Page;
+import global.PageId;
+import tests.MemoryDiskMgr;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Test suite for recording page reference traces and replaying them.
+ */
+class TraceReplayTest extends UnitTestDriver implements GlobalConst {
+
+    /** The display name of the test suite. */
+    private static final String TEST_NAME = "trace replay tests";
+
+    /** The trace file. */
+    protected File file;
+
+    /**
+     * Test application entry point; runs all tests.
+     */
+    public static void main(String argv[]) throws IOException {
+
+        // run all the test cases
+        System.out.println("\n" + "Running " + TEST_NAME + "...");
+        TraceReplayTest trt = new TraceReplayTest();
+        trt.file = File.createTempFile("trace", ".bmtr");
+        boolean status = PASS;
+        status &= trt.roundTripTest();
+        status &= trt.recordTest();
+        status &= trt.replayTest();
+        status &= trt.badFileTest();
+        trt.file.delete();
+
+        // display the final results
+        System.out.println();
+        if (status != PASS) {
+            System.out.println("Error(s) encountered during " + TEST_NAME + ".");
+        } else {
+            System.out.println("All " + TEST_NAME + " completed successfully!");
+        }
+
+    } // public static void main (String argv[])
+
+    /**
+     * Writes records whose page numbers take from one to five bytes, and
+     * loads them back.
+     */
+    protected boolean roundTripTest() {
+
+        System.out.print("\n  Test 1 writes records and loads them back:\n");
+        boolean status = PASS;
+        int[] ops = { TraceWriter.PIN, TraceWriter.UNPIN, TraceWriter.PIN,
+            TraceWriter.UNPIN_DIRTY, TraceWriter.FREE, TraceWriter.PIN };
+        int[] pids = { 0, 127, 128, 300000, Integer.MAX_VALUE, INVALID_PAGEID };
+        TraceReplay replay = new TraceReplay();
+        try {
+            TraceWriter writer = new TraceWriter(file.getPath());
+            for (int i = 0; i < ops.length; i++) {
+                writer.record(ops[i], pids[i]);
+            }
+            writer.close();
+            replay.load(file.getPath());
+        } catch (IOException exc) {
+            System.err.print("*** Could not write and load the trace\n");
+            exc.printStackTrace();
+            return FAIL;
+        }
+        status &= checkTrace(replay, ops, pids);
+        status &= check(replay.references() == 3, "References are " + replay.references()
+            + ", expected 3");
+
+        if (status == PASS) {
+            System.out.print("  Test 1 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean roundTripTest ()
+
+    /**
+     * Traces pins, unpins and a free on a pool, hits and misses alike.
+     */
+    protected boolean recordTest() {
+
+        System.out.print("\n  Test 2 traces the calls made on a pool:\n");
+        boolean status = PASS;
+        Minibase.DiskManager = new MemoryDiskMgr(100);
+        BufferManager bufmgr = new BufferManager(4, "Clock");
+        bufmgr.setReadAhead(0, 0);
+        Page pg = new Page();
+        TraceReplay replay = new TraceReplay();
+        try {
+            bufmgr.startTrace(file.getPath());
+            bufmgr.pinPage(new PageId(5), pg, PIN_DISKIO);
+            bufmgr.pinPage(new PageId(5), pg, PIN_DISKIO);
+            bufmgr.unpinPage(new PageId(5), UNPIN_CLEAN);
+            bufmgr.unpinPage(new PageId(5), UNPIN_DIRTY);
+            bufmgr.pinPage(new PageId(9), pg, PIN_DISKIO);
+            bufmgr.unpinPage(new PageId(9), UNPIN_CLEAN);
+            bufmgr.freePage(new PageId(9));
+            bufmgr.stopTrace();
+            // not traced
+            bufmgr.pinPage(new PageId(7), pg, PIN_DISKIO);
+            replay.load(file.getPath());
+        } catch (IOException exc) {
+            System.err.print("*** Could not record and load the trace\n");
+            exc.printStackTrace();
+            return FAIL;
+        }
+        int[] ops = { TraceWriter.PIN, TraceWriter.PIN, TraceWriter.UNPIN,
+            TraceWriter.UNPIN_DIRTY, TraceWriter.PIN, TraceWriter.UNPIN, TraceWriter.FREE };
+        int[] pids = { 5, 5, 5, 5, 9, 9, 9 };
+        status &= checkTrace(replay, ops, pids);
+
+        if (status == PASS) {
+            System.out.print("  Test 2 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean recordTest ()
+
+    /**
+     * Replays pins of 1, 2, 3, 1, 4, 1, 2 on 3 frames, with 2 unpinned
+     * dirty. OPT evicts 3, which is not used again, and hits three times;
+     * LRU evicts 2, writing it, and hits twice.
+     */
+    protected boolean replayTest() {
+
+        System.out.print("\n  Test 3 replays a trace under OPT and Lru:\n");
+        boolean status = PASS;
+        int[] refs = { 1, 2, 3, 1, 4, 1, 2 };
+        TraceReplay replay = new TraceReplay();
+        try {
+            TraceWriter writer = new TraceWriter(file.getPath());
+            for (int i = 0; i < refs.length; i++) {
+                writer.record(TraceWriter.PIN, refs[i]);
+                writer.record(i == 1 ? TraceWriter.UNPIN_DIRTY : TraceWriter.UNPIN, refs[i]);
+            }
+            writer.close();
+            replay.load(file.getPath());
+        } catch (IOException exc) {
+            System.err.print("*** Could not write and load the trace\n");
+            exc.printStackTrace();
+            return FAIL;
+        }
+        status &= check(replay.opt(3) == 3, "OPT hit " + replay.opt(3) + " times, expected 3");
+        long[] lru = replay.replay("Lru", 3);
+        status &= check(lru[0] == 2, "Lru hit " + lru[0] + " times, expected 2");
+        status &= check(lru[1] == 1, "Lru wrote " + lru[1] + " victims, expected 1");
+
+        System.out.print("  - A pool as large as the trace misses only once per page\n");
+        int[] sizes = replay.defaultSizes();
+        status &= check(sizes.length == 1 && sizes[0] == 4, "Default sizes are "
+            + Arrays.toString(sizes) + ", expected [4]");
+        status &= check(replay.opt(4) == 3 && replay.replay("Lru", 4)[0] == 3,
+            "Wrong hits on 4 frames");
+
+        if (status == PASS) {
+            System.out.print("  Test 3 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean replayTest ()
+
+    /**
+     * Loads a file that is not a trace, and one cut off in a record.
+     */
+    protected boolean badFileTest() {
+
+        System.out.print("\n  Test 4 loads files that are not whole traces:\n");
+        boolean status = PASS;
+        TraceReplay replay = new TraceReplay();
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(new byte[] { 'B', 'M', 'T', 'X', 1 });
+            out.close();
+            replay.load(file.getPath());
+            status &= check(false, "Loaded a file with the wrong magic number");
+        } catch (IOException exc) {
+            // expected
+        }
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(new byte[] { 'B', 'M', 'T', 'R', 1, TraceWriter.PIN, (byte) 0x85 });
+            out.close();
+            replay.load(file.getPath());
+            status &= check(false, "Loaded a trace cut off in a record");
+        } catch (EOFException exc) {
+            // expected
+        } catch (IOException exc) {
+            status &= check(false, "Trace cut off in a record failed with " + exc);
+        }
+
+        if (status == PASS) {
+            System.out.print("  Test 4 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean badFileTest ()
+
+    /**
+     * Checks that a loaded trace holds just the given records.
+     */
+    protected static boolean checkTrace(TraceReplay replay, int[] ops, int[] pids) {
+        boolean status = check(replay.count == ops.length, "Loaded " + replay.count
+            + " records, expected " + ops.length);
+        for (int i = 0; status == PASS && i < ops.length; i++) {
+            status &= check(replay.ops[i] == ops[i] && replay.pids[i] == pids[i],
+                "Record " + i + " is " + replay.ops[i] + " " + replay.pids[i]
+                + ", expected " + ops[i] + " " + pids[i]);
+        }
+        return status;
+    }
+
+} // class TraceReplayTest extends UnitTestDriver implements GlobalConst
@@ -0,0 +1,29 @@
+package bufmgr;
+
+/**
+ * Base of the tests of the package-private classes of the buffer manager,
+ * which live in package bufmgr so they can reach them, and of the tests in
+ * package diskmgr; like the suites driven by tests.TestDriver, each test
+ * returns PASS or FAIL and prints what went wrong.
+ */
+public abstract class UnitTestDriver {
+
+    /** Success value of a test. */
+    protected static final boolean PASS = true;
+
+    /** Failure value of a test. */
+    protected static final boolean FAIL = false;
+
+    /**
+     * Prints the failure unless the condition holds.
+     *
+     * @return the condition
+     */
+    protected static boolean check(boolean condition, String failure) {
+        if (!condition) {
+            System.err.print("*** " + failure + "\n");
+        }
+        return condition;
+    }
+
+} // public abstract class UnitTestDriver
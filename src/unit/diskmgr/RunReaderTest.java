@@ -0,0 +1,243 @@
+package diskmgr;
+
+import bufmgr.BufferManager;
+import global.Convert;
+import global.Minibase;
+import global.Page;
+import global.PageId;
+
+import java.io.IOException;
+
+/**
+ * Test suite for reading runs of pages, and for pinning them through
+ * BufferManager.pinPages; it opens its databases as RunWriterTest does.
+ */
+class RunReaderTest extends RunWriterTest {
+
+    /** The display name of the test suite. */
+    private static final String TEST_NAME = "run reader tests";
+
+    /**
+     * Test application entry point; runs all tests.
+     */
+    public static void main(String argv[]) {
+
+        // run all the test cases
+        System.out.println("\n" + "Running " + TEST_NAME + "...");
+        RunReaderTest rrt = new RunReaderTest();
+        boolean status = PASS;
+        status &= rrt.scatterTest();
+        status &= rrt.pinPagesTest();
+        status &= rrt.pinPagesFullTest();
+        status &= rrt.truncatedTest();
+
+        // display the final results
+        System.out.println();
+        if (status != PASS) {
+            System.out.println("Error(s) encountered during " + TEST_NAME + ".");
+        } else {
+            System.out.println("All " + TEST_NAME + " completed successfully!");
+        }
+
+    } // public static void main (String argv[])
+
+    /**
+     * Writes pages one at a time and reads them back as a run with one
+     * scattering read.
+     */
+    protected boolean scatterTest() {
+
+        System.out.print("\n  Test 1 reads back a run of pages written one at a time:\n");
+        boolean status = PASS;
+        DiskMgr disk = openDisk();
+        Page[] pages = makePages(20, 8);
+        for (int i = 0; i < pages.length; i++) {
+            disk.write_page(new PageId(20 + i), pages[i]);
+        }
+        Page[] read = makePages(0, 8);
+        int saved = RunReader.read_pages(disk, new PageId(20), read, 8);
+        status &= check(saved > 0, "No read calls saved");
+        status &= check(disk.getReadCount() == 8, "Read count is " + disk.getReadCount()
+            + ", expected 8");
+        status &= checkRun(read, 20);
+
+        System.out.print("  - A run past the end of the database reads nothing\n");
+        try {
+            RunReader.read_pages(disk, new PageId(NUM_PAGES - 1), makePages(0, 2), 2);
+            status &= check(false, "Read past the end of the database");
+        } catch (IllegalArgumentException exc) {
+            status &= check(disk.getReadCount() == 8, "Read count is " + disk.getReadCount()
+                + ", expected 8");
+        }
+        closeDisk(disk);
+
+        if (status == PASS) {
+            System.out.print("  Test 1 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean scatterTest ()
+
+    /**
+     * Pins a run of pages one of which is already in the pool, so the
+     * others are read in two runs, and unpins them.
+     */
+    protected boolean pinPagesTest() {
+
+        System.out.print("\n  Test 2 pins a run of pages around one already in the pool:\n");
+        boolean status = PASS;
+        DiskMgr disk = openDisk();
+        RunWriter.write_pages(disk, new PageId(0), makePages(0, 16), 16);
+        Minibase.DiskManager = disk;
+        BufferManager bufmgr = new BufferManager(8, "Clock");
+        bufmgr.setReadAhead(0, 0);
+        PageId pageno = new PageId(3);
+        bufmgr.pinPage(pageno, new Page(), PIN_DISKIO);
+        bufmgr.unpinPage(pageno, UNPIN_CLEAN);
+
+        Page[] pages = new Page[6];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = new Page();
+        }
+        int reads = disk.getReadCount();
+        bufmgr.pinPages(new PageId(0), 6, pages);
+        status &= checkRun(pages, 0);
+        status &= check(disk.getReadCount() - reads == 5, (disk.getReadCount() - reads)
+            + " pages read, expected 5");
+        status &= check(bufmgr.getNumPinned() == 6, bufmgr.getNumPinned()
+            + " frames pinned, expected 6");
+
+        System.out.print("  - Unpin the run dirty and flush it\n");
+        Convert.setIntValue(-1, 4, pages[2].getData());
+        bufmgr.unpinPages(new PageId(0), 6, UNPIN_DIRTY);
+        status &= check(bufmgr.getNumPinned() == 0, bufmgr.getNumPinned()
+            + " frames pinned, expected 0");
+        bufmgr.flushAllPages();
+        Page pg = new Page();
+        disk.read_page(new PageId(2), pg);
+        status &= check(Convert.getIntValue(4, pg.getData()) == -1, "Page 2 not written back");
+        bufmgr.shutdown();
+        closeDisk(disk);
+
+        if (status == PASS) {
+            System.out.print("  Test 2 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean pinPagesTest ()
+
+    /**
+     * Pins a run longer than the frames left, and checks that none of it
+     * stays pinned.
+     */
+    protected boolean pinPagesFullTest() {
+
+        System.out.print("\n  Test 3 pins a run longer than the frames left:\n");
+        boolean status = PASS;
+        DiskMgr disk = openDisk();
+        Minibase.DiskManager = disk;
+        BufferManager bufmgr = new BufferManager(8, "Clock");
+        bufmgr.setReadAhead(0, 0);
+        Page[] pages = new Page[6];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = new Page();
+        }
+        bufmgr.pinPages(new PageId(0), 6, pages);
+        try {
+            bufmgr.pinPages(new PageId(4), 6, pages);
+            status &= check(false, "Pinned more pages than the pool holds");
+        } catch (IllegalStateException exc) {
+            status &= check(bufmgr.getNumPinned() == 6, bufmgr.getNumPinned()
+                + " frames pinned, expected 6");
+        }
+
+        System.out.print("  - The pool is usable afterwards\n");
+        bufmgr.unpinPages(new PageId(0), 6, UNPIN_CLEAN);
+        bufmgr.pinPages(new PageId(4), 6, pages);
+        status &= check(bufmgr.getNumPinned() == 6, bufmgr.getNumPinned()
+            + " frames pinned, expected 6");
+        bufmgr.unpinPages(new PageId(4), 6, UNPIN_CLEAN);
+        bufmgr.shutdown();
+        closeDisk(disk);
+
+        if (status == PASS) {
+            System.out.print("  Test 3 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean pinPagesFullTest ()
+
+    /**
+     * Cuts the database file short, and checks that a run reaching past its
+     * end is not read, nor left in the pool to be pinned later.
+     */
+    protected boolean truncatedTest() {
+
+        System.out.print("\n  Test 4 reads a run past the end of a file cut short:\n");
+        boolean status = PASS;
+        DiskMgr disk = openDisk();
+        try {
+            disk.fp.setLength((long) (NUM_PAGES - 2) * MINIBASE_PAGESIZE);
+        } catch (IOException exc) {
+            Minibase.haltSystem(exc);
+        }
+        try {
+            RunReader.read_pages(disk, new PageId(NUM_PAGES - 4), makePages(0, 4), 4);
+            status &= check(false, "Read past the end of the file");
+        } catch (IllegalStateException exc) {
+            // expected
+        }
+
+        System.out.print("  - Pin the run through the buffer manager\n");
+        Minibase.DiskManager = disk;
+        BufferManager bufmgr = new BufferManager(8, "Clock");
+        bufmgr.setReadAhead(0, 0);
+        Page[] pages = new Page[4];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = new Page();
+        }
+        try {
+            bufmgr.pinPages(new PageId(NUM_PAGES - 4), 4, pages);
+            status &= check(false, "Pinned pages past the end of the file");
+        } catch (IllegalStateException exc) {
+            status &= check(bufmgr.getNumPinned() == 0, bufmgr.getNumPinned()
+                + " frames pinned, expected 0");
+        }
+
+        System.out.print("  - Restore the file and pin the run again\n");
+        Page[] written = makePages(NUM_PAGES - 4, 4);
+        try {
+            disk.fp.setLength((long) NUM_PAGES * MINIBASE_PAGESIZE);
+        } catch (IOException exc) {
+            Minibase.haltSystem(exc);
+        }
+        for (int i = 0; i < written.length; i++) {
+            disk.write_page(new PageId(NUM_PAGES - 4 + i), written[i]);
+        }
+        bufmgr.pinPages(new PageId(NUM_PAGES - 4), 4, pages);
+        status &= checkRun(pages, NUM_PAGES - 4);
+        bufmgr.unpinPages(new PageId(NUM_PAGES - 4), 4, UNPIN_CLEAN);
+        bufmgr.shutdown();
+        closeDisk(disk);
+
+        if (status == PASS) {
+            System.out.print("  Test 4 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean truncatedTest ()
+
+    /**
+     * Checks that the pages of a run hold their page numbers plus 99999.
+     */
+    protected static boolean checkRun(Page[] pages, int first) {
+        boolean status = PASS;
+        for (int i = 0; i < pages.length; i++) {
+            int data = Convert.getIntValue(0, pages[i].getData());
+            status &= check(data == first + i + 99999, "Page " + (first + i) + " holds "
+                + (data - 99999));
+        }
+        return status;
+    }
+
+} // class RunReaderTest extends RunWriterTest
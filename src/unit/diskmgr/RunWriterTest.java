@@ -0,0 +1,223 @@
+package diskmgr;
+
+import bufmgr.BufferManager;
+import bufmgr.UnitTestDriver;
+import global.Convert;
+import global.GlobalConst;
+import global.Minibase;
+import global.Page;
+import global.PageId;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Test suite for writing runs of pages, on a plain DiskMgr over a file of its
+ * own; DiskMgr's space map lives in Minibase.BufferManager, so the file is
+ * opened here and pages are never allocated.
+ */
+class RunWriterTest extends UnitTestDriver implements GlobalConst {
+
+    /** The display name of the test suite. */
+    private static final String TEST_NAME = "run writer tests";
+
+    /** Number of pages in the database. */
+    protected static final int NUM_PAGES = 64;
+
+    /** The database file. */
+    protected File file;
+
+    /**
+     * Test application entry point; runs all tests.
+     */
+    public static void main(String argv[]) {
+
+        // run all the test cases
+        System.out.println("\n" + "Running " + TEST_NAME + "...");
+        RunWriterTest rwt = new RunWriterTest();
+        boolean status = PASS;
+        status &= rwt.gatherTest();
+        status &= rwt.subclassTest();
+        status &= rwt.flushTest();
+
+        // display the final results
+        System.out.println();
+        if (status != PASS) {
+            System.out.println("Error(s) encountered during " + TEST_NAME + ".");
+        } else {
+            System.out.println("All " + TEST_NAME + " completed successfully!");
+        }
+
+    } // public static void main (String argv[])
+
+    /**
+     * Writes a run of pages with one gathering write, and reads each back.
+     */
+    protected boolean gatherTest() {
+
+        System.out.print("\n  Test 1 writes a run of pages and reads them back:\n");
+        boolean status = PASS;
+        DiskMgr disk = openDisk();
+        Page[] pages = makePages(10, 8);
+        int saved = RunWriter.write_pages(disk, new PageId(10), pages, 8);
+        status &= check(saved > 0, "No write calls saved");
+        status &= check(disk.getWriteCount() == 8, "Write count is " + disk.getWriteCount()
+            + ", expected 8");
+        status &= checkPages(disk, 10, 8);
+
+        System.out.print("  - A run past the end of the database writes nothing\n");
+        try {
+            RunWriter.write_pages(disk, new PageId(NUM_PAGES - 2), makePages(NUM_PAGES - 2, 4), 4);
+            status &= check(false, "Wrote past the end of the database");
+        } catch (IllegalArgumentException exc) {
+            status &= check(disk.getWriteCount() == 8, "Write count is " + disk.getWriteCount()
+                + ", expected 8");
+        }
+        closeDisk(disk);
+
+        if (status == PASS) {
+            System.out.print("  Test 1 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean gatherTest ()
+
+    /**
+     * Writes a run on a subclass of DiskMgr, which gets one write_page per
+     * page.
+     */
+    protected boolean subclassTest() {
+
+        System.out.print("\n  Test 2 writes a run through a subclass page by page:\n");
+        boolean status = PASS;
+        final int[] calls = new int[1];
+        DiskMgr disk = new DiskMgr() {
+            public void write_page(PageId pageno, Page mempage) {
+                calls[0]++;
+                super.write_page(pageno, mempage);
+            }
+        };
+        openFile(disk);
+        int saved = RunWriter.write_pages(disk, new PageId(3), makePages(3, 5), 5);
+        status &= check(saved == 0, saved + " write calls saved, expected 0");
+        status &= check(calls[0] == 5, calls[0] + " calls to write_page, expected 5");
+        status &= checkPages(disk, 3, 5);
+        closeDisk(disk);
+
+        if (status == PASS) {
+            System.out.print("  Test 2 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean subclassTest ()
+
+    /**
+     * Dirties runs of 6, 2 and 1 pages in a pool and flushes them, which
+     * saves 5 and 1 write calls.
+     */
+    protected boolean flushTest() {
+
+        System.out.print("\n  Test 3 flushes runs of dirty pages together:\n");
+        boolean status = PASS;
+        DiskMgr disk = openDisk();
+        Minibase.DiskManager = disk;
+        BufferManager bufmgr = new BufferManager(20, "Clock");
+        bufmgr.setReadAhead(0, 0);
+        int[] pids = { 12, 0, 9, 1, 2, 8, 3, 4, 5 };
+        Page pg = new Page();
+        for (int pid : pids) {
+            PageId pageno = new PageId(pid);
+            bufmgr.pinPage(pageno, pg, PIN_DISKIO);
+            Convert.setIntValue(pid + 99999, 0, pg.getData());
+            bufmgr.unpinPage(pageno, UNPIN_DIRTY);
+        }
+        bufmgr.flushAllPages();
+        status &= check(bufmgr.getWritesSaved() == 6, bufmgr.getWritesSaved()
+            + " write calls saved, expected 6");
+        status &= check(disk.getWriteCount() == pids.length, "Write count is "
+            + disk.getWriteCount() + ", expected " + pids.length);
+        for (int pid : pids) {
+            status &= checkPages(disk, pid, 1);
+        }
+
+        System.out.print("  - A second flush writes nothing\n");
+        bufmgr.flushAllPages();
+        status &= check(disk.getWriteCount() == pids.length, "Write count is "
+            + disk.getWriteCount() + ", expected " + pids.length);
+        bufmgr.shutdown();
+        closeDisk(disk);
+
+        if (status == PASS) {
+            System.out.print("  Test 3 completed successfully.\n");
+        }
+        return status;
+
+    } // protected boolean flushTest ()
+
+    /**
+     * Opens a plain DiskMgr over a new, empty database file.
+     */
+    protected DiskMgr openDisk() {
+        DiskMgr disk = new DiskMgr();
+        openFile(disk);
+        return disk;
+    }
+
+    /**
+     * Opens a new, empty database file of NUM_PAGES pages under the disk
+     * manager.
+     */
+    protected void openFile(DiskMgr disk) {
+        try {
+            file = File.createTempFile("runs", ".minibase");
+            disk.name = file.getPath();
+            disk.fp = new RandomAccessFile(file, "rw");
+            disk.fp.setLength((long) NUM_PAGES * MINIBASE_PAGESIZE);
+        } catch (IOException exc) {
+            Minibase.haltSystem(exc);
+        }
+        disk.num_pages = NUM_PAGES;
+    }
+
+    /**
+     * Closes and deletes the database file.
+     */
+    protected void closeDisk(DiskMgr disk) {
+        try {
+            disk.fp.close();
+        } catch (IOException exc) {
+            Minibase.haltSystem(exc);
+        }
+        file.delete();
+    }
+
+    /**
+     * Makes pages holding their page number plus 99999, for a run from the
+     * given page.
+     */
+    protected static Page[] makePages(int first, int count) {
+        Page[] pages = new Page[count];
+        for (int i = 0; i < count; i++) {
+            pages[i] = new Page();
+            Convert.setIntValue(first + i + 99999, 0, pages[i].getData());
+        }
+        return pages;
+    }
+
+    /**
+     * Reads the pages of a run one at a time, and checks that each holds its
+     * page number plus 99999.
+     */
+    protected static boolean checkPages(DiskMgr disk, int first, int count) {
+        boolean status = PASS;
+        Page pg = new Page();
+        for (int pid = first; pid < first + count; pid++) {
+            disk.read_page(new PageId(pid), pg);
+            int data = Convert.getIntValue(0, pg.getData());
+            status &= check(data == pid + 99999, "Page " + pid + " holds " + (data - 99999));
+        }
+        return status;
+    }
+
+} // class RunWriterTest extends UnitTestDriver implements GlobalConst